@@ -0,0 +1,92 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.entities;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Compares {@link CommonSubstring} with the longest common substring table it replaced, on a bug 
+ * title and the long message of a squash merge listing many commits.
+ * @author Thomas Watkins
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CommonSubstringBenchmark {
+	private static final String TITLE = "NullPointerException when closing the dependency manager";
+	private static final String[] WORDS = { "fix", "update", "the", "deployment", "admin", "client", "test", 
+			"remove", "unused", "import", "for", "agent", "repository", "target", "log", "manager" };
+	
+	@Param({ "1000", "100000", "1000000" })
+	private int messageLength;
+	
+	private String message;
+	
+	@Setup
+	public void createMessage() {
+		Random random = new Random(42);
+		StringBuilder builder = new StringBuilder("Merge pull request #512 from feature/ACE-700\n\n");
+		int commit = 0;
+		while (builder.length() < this.messageLength) {
+			builder.append("* ACE-").append(commit++).append(' ');
+			for (int word = 0; word < 8; word++)
+				builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+			builder.append('\n');
+		}
+		//The title is only found at the end, so the whole message is read
+		builder.append("* ACE-700 fix ").append(TITLE).append(" twice\n");
+		this.message = builder.toString();
+	}
+	
+	@Benchmark
+	public boolean contains() {
+		return CommonSubstring.contains(TITLE, this.message, 16);
+	}
+	
+	@Benchmark
+	public boolean longestCommonSubstringTable() {
+		return longestCommonSubstring(TITLE, this.message) >= 16;
+	}
+	
+	/**
+	 * The longest common substring table previously used by {@link Link}.
+	 */
+	private static int longestCommonSubstring(String s1, String s2) {
+		int[][] dp = new int[2][s2.length() + 1];
+		int result = 0;
+		for (int i = 1; i <= s1.length(); i++) {
+			for (int j = 1; j <= s2.length(); j++) {
+				if (s1.charAt(i - 1) == s2.charAt(j - 1)) {
+					dp[i % 2][j] = dp[(i - 1) % 2][j - 1] + 1;
+					result = Math.max(result, dp[i % 2][j]);
+				} else
+					dp[i % 2][j] = 0;
+			}
+		}
+		return result;
+	}
+}
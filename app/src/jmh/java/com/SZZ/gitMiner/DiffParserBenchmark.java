@@ -0,0 +1,143 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * Compares {@link DiffParser} with the line by line reading of "git diff -U0" it replaced, on a 
+ * generated diff. Run with "gradlew jmh", the gc profiler reports the bytes allocated per parse.
+ * @author Thomas Watkins
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DiffParserBenchmark {
+	private static final String DIFF_GIT = "diff --git a/";
+	
+	@Param({ "10", "1000" })
+	private int files;
+	
+	@Param({ "20" })
+	private int hunks;
+	
+	private byte[] diff;
+	private DiffParser parser;
+	
+	@Setup
+	public void createDiff() {
+		StringBuilder builder = new StringBuilder();
+		for (int file = 0; file < this.files; file++) {
+			String path = "src/main/java/org/apache/ace/module" + file + "/Component" + file + ".java";
+			builder.append(DIFF_GIT).append(path).append(" b/").append(path).append('\n');
+			builder.append("index 3b18e51..a9c2f4d 100644\n");
+			builder.append("--- a/").append(path).append('\n');
+			builder.append("+++ b/").append(path).append('\n');
+			for (int hunk = 0; hunk < this.hunks; hunk++) {
+				int line = 10 + hunk * 40;
+				builder.append("@@ -").append(line).append(",5 +").append(line).append(",3 @@ public class Component").append(file).append(" {\n");
+				for (int i = 0; i < 5; i++)
+					builder.append("-\t\tcount = count + ").append(i).append("; // removed line of the old version\n");
+				for (int i = 0; i < 3; i++)
+					builder.append("+\t\tcount += ").append(i).append(";\n");
+			}
+		}
+		this.diff = builder.toString().getBytes(StandardCharsets.UTF_8);
+		this.parser = new DiffParser();
+	}
+	
+	/**
+	 * Parses the diff with a reused parser, the removed lines are not copied.
+	 */
+	@Benchmark
+	public void parse(Blackhole blackhole) throws IOException {
+		this.parser.parse(new ByteArrayInputStream(this.diff), (oldPath, newPath, linesRemoved, binary) -> {
+			blackhole.consume(newPath);
+			blackhole.consume(linesRemoved.getLineCount());
+		});
+	}
+	
+	/**
+	 * Reads the diff as the command line backend did before {@link DiffParser}, a string per line 
+	 * and a boxed integer per removed line.
+	 */
+	@Benchmark
+	public void readLines(Blackhole blackhole) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(this.diff), StandardCharsets.UTF_8));
+		ArrayList<Integer> removed = null;
+		int oldRemaining = 0;
+		int newRemaining = 0;
+		String line;
+		
+		while ((line = reader.readLine()) != null) {
+			if (oldRemaining > 0 || newRemaining > 0) {
+				if (line.startsWith("-"))
+					oldRemaining--;
+				else if (line.startsWith("+"))
+					newRemaining--;
+				continue;
+			}
+			if (line.startsWith(DIFF_GIT)) {
+				if (removed != null)
+					blackhole.consume(removed);
+				int length = (line.length() - DIFF_GIT.length() - " b/".length()) / 2;
+				blackhole.consume(line.substring(DIFF_GIT.length(), DIFF_GIT.length() + length));
+				removed = new ArrayList<>();
+			} else if (line.startsWith("@@ -") && removed != null) {
+				int[] hunk = parseHunkHeader(line);
+				for (int i = 0; i < hunk[1]; i++)
+					removed.add(hunk[0] + i);
+				oldRemaining = hunk[1];
+				newRemaining = hunk[3];
+			}
+		}
+		blackhole.consume(removed);
+	}
+	
+	/**
+	 * Parses a hunk header "@@ -a,b +c,d @@" as the command line backend did, a missing count is 1.
+	 * @param line the hunk header
+	 * @return the old start, old count, new start and new count
+	 */
+	private static int[] parseHunkHeader(String line) {
+		String[] ranges = line.substring(3, line.indexOf(" @@", 3)).split(" ");
+		int[] hunk = new int[4];
+		for (int i = 0; i < 2; i++) {
+			String range = ranges[i].substring(1);
+			int comma = range.indexOf(',');
+			hunk[i * 2] = Integer.parseInt(comma < 0 ? range : range.substring(0, comma));
+			hunk[i * 2 + 1] = comma < 0 ? 1 : Integer.parseInt(range.substring(comma + 1));
+		}
+		return hunk;
+	}
+}
@@ -0,0 +1,133 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.SZZ.entities.FileDiff;
+/**
+ * Compares the in-process JGit diff of a bug fixing commit with the git command line diff, both 
+ * through {@link GitBackend#getDiffs}, on a generated repository. The command line backend needs 
+ * git on the path.
+ * @author Thomas Watkins
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GitDiffBenchmark {
+	
+	@Param({ "jgit", "cli" })
+	private String backendName;
+	
+	@Param({ "1", "20" })
+	private int files;
+	
+	private File directory;
+	private Git git;
+	private GitBackend backend;
+	private String fix;
+	private ArrayList<String> paths;
+	
+	@Setup
+	public void createRepository() throws Exception {
+		this.directory = Files.createTempDirectory("szz-diff").toFile();
+		this.git = Git.init().setDirectory(this.directory).call();
+		this.paths = new ArrayList<>();
+		for (int file = 0; file < this.files; file++) {
+			this.paths.add("src/Component" + file + ".java");
+			write(this.paths.get(file), source(file, false));
+		}
+		commit("Add components");
+		for (int file = 0; file < this.files; file++)
+			write(this.paths.get(file), source(file, true));
+		this.fix = commit("ACE-1 fix components");
+		
+		if (this.backendName.equals("jgit")) {
+			JGitBackend backend = new JGitBackend(new CommitGraph());
+			backend.setRepository(this.git.getRepository());
+			this.backend = backend;
+		} else
+			this.backend = new CliBackend(this.directory, DiffAlgorithm.SupportedAlgorithm.MYERS, new CommitGraph());
+	}
+	
+	@TearDown
+	public void deleteRepository() throws IOException {
+		this.backend.close();
+		this.git.close();
+		try (Stream<Path> paths = Files.walk(this.directory.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+	
+	@Benchmark
+	public HashMap<String, FileDiff> getDiffs() throws IOException {
+		return this.backend.getDiffs(this.fix, this.paths);
+	}
+	
+	/**
+	 * Generates a source file of 500 lines, the fixed version changes every 25th line.
+	 */
+	private static String source(int file, boolean fixed) {
+		StringBuilder builder = new StringBuilder("public class Component" + file + " {\n");
+		for (int line = 0; line < 500; line++) {
+			if (fixed && line % 25 == 0)
+				builder.append("\tif (count != null) count.increment(").append(line).append(");\n");
+			else
+				builder.append("\tcount.increment(").append(line).append(");\n");
+		}
+		return builder.append("}\n").toString();
+	}
+	
+	private void write(String path, String content) throws IOException {
+		File file = new File(this.directory, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Commits every change.
+	 * @return the hash of the commit
+	 */
+	private String commit(String message) throws Exception {
+		this.git.add().addFilepattern(".").call();
+		PersonIdent author = new PersonIdent("Test", "test@example.com");
+		return this.git.commit().setMessage(message).setAuthor(author).setCommitter(author).setSign(false).call().getName();
+	}
+}
@@ -11,68 +11,65 @@
 //
 package com.SZZ.application;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.File;
 
 import org.apache.log4j.PropertyConfigurator;
 
-import com.SZZ.entities.Bug;
-import com.SZZ.entities.Commit;
-import com.SZZ.entities.Link;
-import com.SZZ.entities.Suspect;
-import com.SZZ.gitMiner.GitMiner;
-import com.SZZ.jMiner.JiraMiner;
-import com.SZZ.linker.LinkConnector;
+import com.SZZ.entities.TaskScheduler;
+import com.SZZ.gitMiner.WindowCacheTuning;
 /**
  * A SZZ implementation that mines a jira bug database, acquires issues, mines a github repository,
  * acquires a list of commits, and conducts the SZZ algorithm to derive the bug fixing and bug inducing
- * commits for a given github project.
+ * commits for a given github project. With --batch=FILE every project of a manifest is run instead.
  * @author Thomas Watkins
  */
 public class Application {
 	
-	public static void main(String[] args) {
+	public static void main(String[] args) throws InterruptedException {
 		
 		PropertyConfigurator.configure("log4j.properties");
+		if(args.length > 0 && args[0].startsWith("--batch=")) {
+			Options options = new Options(args, 0);
+			installWindowCache(options);
+			new BatchRunner(new File(options.get("batch", null)), options).run();
+			WindowCacheTuning.printStatistics();
+			return;
+		}
 		System.out.println("Running AG-SZZ");
 		System.out.println("Github Repo URL: " + args[0]);
 		System.out.println("Jira Issues URL: " + args[1]);
 		System.out.println("Jira Project: " + args[2]);
 	     
-		String githubURL = args[0];
-		String jiraIssuesURL = args[1];
-		String jiraKey = args[2];		
-		
-		//Get Jira Issues
-		JiraMiner jMiner = new JiraMiner(jiraIssuesURL, jiraKey);	
-		HashMap<String, Bug> issues = jMiner.mineIssues();
-		System.out.println("Total Issues List: " + issues.size());
-		
-		//Get Git Commits
-		GitMiner gMiner = new GitMiner(githubURL);		
-		ArrayList<Commit> commits = gMiner.mineGit();
-		System.out.println("Total Commits List: " + commits.size());
-		
-		
-		//Get Bug Fixing Commits
-		LinkConnector connector = new LinkConnector(issues, commits, jiraKey);
-		ArrayList<Link> bugFixingCommits = connector.getBugFixingCommits();
-		System.out.println("Total Bug Fixing Commits: " + bugFixingCommits.size());
-		
+		Options options = new Options(args, 3);
+		installWindowCache(options);
+		TaskScheduler scheduler = new TaskScheduler(options.getInt("threads", Runtime.getRuntime().availableProcessors()));
+		new ProjectRun(args[0], args[1], args[2], options).run(scheduler);
 		
-		//Get Bug Introducing Commits from bug fixing commits
-		ArrayList<Link> bugIntroducingCommits = gMiner.calculateBugIntroducingCommits(bugFixingCommits);
-		
-		
-		//Extract bug-introducing commits and remove duplicates
-		HashMap<String, Integer> fixInducingCommits = new HashMap<>();		
-		for(Link link: bugIntroducingCommits) {	
-			for (Map.Entry<String, Suspect> entry : link.getBugIntroducingCommits().entrySet()) {
-				fixInducingCommits.put(entry.getValue().getHash(),1);		  
-			}
-		}
-		System.out.println("Total Fix Inducing Commits: " + fixInducingCommits.size());
+		WindowCacheTuning.printStatistics();
+		scheduler.close();
 		
 	}
+	
+	/**
+	 * Sizes the JGit pack cache, before any repository is opened.
+	 * @param options the run settings
+	 */
+	private static void installWindowCache(Options options) {
+		WindowCacheTuning windowCache = new WindowCacheTuning();
+		if(options.getInt("packed-git-limit", 0) > 0)
+			windowCache.setPackedGitLimit(options.getInt("packed-git-limit", 0) * 1024L * 1024L);
+		//Both sizes are held by JGit in an int of bytes
+		long packedGitWindow = options.getLong("packed-git-window", 0);
+		if(packedGitWindow < 0 || packedGitWindow > Integer.MAX_VALUE / 1024)
+			throw new IllegalArgumentException("--packed-git-window must be from 1 to " + (Integer.MAX_VALUE / 1024) + " KB: " + packedGitWindow);
+		if(packedGitWindow > 0)
+			windowCache.setPackedGitWindowSize((int) (packedGitWindow * 1024L));
+		long deltaBaseCache = options.getLong("delta-base-cache", 0);
+		if(deltaBaseCache < 0 || deltaBaseCache > Integer.MAX_VALUE / (1024 * 1024))
+			throw new IllegalArgumentException("--delta-base-cache must be from 1 to " + (Integer.MAX_VALUE / (1024 * 1024)) + " MB: " + deltaBaseCache);
+		if(deltaBaseCache > 0)
+			windowCache.setDeltaBaseCacheLimit((int) (deltaBaseCache * 1024L * 1024L));
+		windowCache.setPackedGitMMAP(options.getBoolean("packed-git-mmap"));
+		windowCache.install();
+	}
 }
@@ -0,0 +1,239 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.application;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import com.SZZ.entities.TaskScheduler;
+import com.SZZ.gitMiner.RepositoryManager;
+import com.SZZ.jMiner.JiraClient;
+/**
+ * Runs every project of a manifest, several at once, sharing one scheduler and one memory budget. 
+ * Each line of the manifest is a github url, a jira issues url and a jira key, optionally followed 
+ * by --name=value settings for that project only. Projects are started largest first, judged by the 
+ * size of their mirror, and a project is only started while its share of the memory budget is free, 
+ * so small projects fill the room left beside large ones. Every project writes its own csv files, 
+ * and a summary of every project is rewritten as each one finishes, so a slow or failing project 
+ * does not hold back the results of the others.
+ * @author Thomas Watkins
+ */
+public class BatchRunner {
+	private static final long MB = 1024 * 1024;
+	/** Memory reserved for a project whose mirror does not exist yet or is tiny */
+	private static final long MIN_RESERVATION = 64 * MB;
+	
+	private File manifest;
+	private Options options;
+	private int projectLimit;
+	private long memoryBudget;
+	private ArrayList<Project> projects;
+	private int running;
+	private long reserved;
+	
+	/**
+	 * Creates a batch runner.
+	 * @param manifest the manifest of projects
+	 * @param options the settings of every project
+	 */
+	public BatchRunner(File manifest, Options options) {
+		this.manifest = manifest;
+		this.options = options;
+		this.projectLimit = options.getInt("projects", 4);
+		//The JGit caches are shared by every project and take their own part of the heap
+		this.memoryBudget = options.getInt("memory-budget", (int) (Runtime.getRuntime().maxMemory() / 2 / MB)) * MB;
+		this.projects = new ArrayList<>();
+	}
+	
+	/**
+	 * Runs every project and writes the summary.
+	 * @throws InterruptedException if the batch is interrupted
+	 */
+	public void run() throws InterruptedException {
+		readManifest();
+		System.out.println("Running AG-SZZ on " + this.projects.size() + " projects, " + this.projectLimit 
+				+ " at once within " + this.memoryBudget / MB + "MB");
+		TaskScheduler scheduler = new TaskScheduler(this.options.getInt("threads", Runtime.getRuntime().availableProcessors()));
+		ArrayList<Project> pending = new ArrayList<>(this.projects);
+		pending.sort(Comparator.comparingLong((Project project) -> project.reservation).reversed());
+		
+		synchronized(this) {
+			writeSummary();
+			while(!pending.isEmpty() || this.running > 0) {
+				Project next = null;
+				if(this.running < this.projectLimit) {
+					for(Project project: pending) {
+						//A project larger than the whole budget runs on its own
+						if(this.running == 0 || this.reserved + project.reservation <= this.memoryBudget) {
+							next = project;
+							break;
+						}
+					}
+				}
+				if(next == null) {
+					wait();
+					continue;
+				}
+				pending.remove(next);
+				next.status = "running";
+				this.running++;
+				this.reserved += next.reservation;
+				Project project = next;
+				try {
+					new Thread(() -> runProject(project, scheduler), project.run.getJiraKey()).start();
+				} catch (Throwable e) {
+					//The thread never ran, so its reservation is released here
+					e.printStackTrace();
+					project.status = "failed: " + e;
+					this.running--;
+					this.reserved -= project.reservation;
+					writeSummary();
+				}
+			}
+		}
+		scheduler.close();
+		System.out.println("Batch finished, summary written to " + getSummaryFile());
+	}
+	
+	/**
+	 * Runs one project on its own thread, then releases its share of the budget whatever happened. 
+	 * A project that throws, even an error such as running out of memory, is marked as failed.
+	 * @param project the project
+	 * @param scheduler the shared scheduler
+	 */
+	private void runProject(Project project, TaskScheduler scheduler) {
+		long start = System.currentTimeMillis();
+		try {
+			System.out.println("Starting " + project.run.getJiraKey() + " (" + project.reservation / MB + "MB)");
+			project.run.run(scheduler);
+			project.status = "done";
+		} catch (Throwable e) {
+			project.status = "failed: " + e;
+			e.printStackTrace();
+		} finally {
+			if(project.status.equals("running"))
+				project.status = "failed";
+			project.seconds = (System.currentTimeMillis() - start) / 1000;
+			synchronized(this) {
+				this.running--;
+				this.reserved -= project.reservation;
+				notifyAll();
+				writeSummary();
+			}
+			System.out.println("Finished " + project.run.getJiraKey() + ": " + project.status + " in " + project.seconds + "s");
+		}
+	}
+	
+	/**
+	 * Reads the projects of the manifest, skipping blank lines and lines starting with #.
+	 */
+	private void readManifest() {
+		try {
+			List<String> lines = Files.readAllLines(this.manifest.toPath(), StandardCharsets.UTF_8);
+			RepositoryManager repositoryManager = new RepositoryManager(ProjectRun.getRepositoryCache(this.options));
+			//Projects share one client, so the request rate holds for the whole batch
+			JiraClient jiraClient = ProjectRun.createJiraClient(this.options);
+			ConcurrentHashMap<String, Object> jiraLocks = new ConcurrentHashMap<>();
+			for(String line: lines) {
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#"))
+					continue;
+				String[] fields = line.split("\\s+");
+				if(fields.length < 3) {
+					System.out.println("Ignoring manifest line: " + line);
+					continue;
+				}
+				Options projectOptions = new Options(fields, 3, this.options);
+				Project project = new Project(new ProjectRun(fields[0], fields[1], fields[2], projectOptions));
+				project.run.setJiraClient(jiraClient);
+				project.run.setJiraLocks(jiraLocks);
+				//Several repositories may link to one Jira project
+				project.run.setFilePrefix(fields[2] + "-" + RepositoryManager.getRepositoryName(fields[0]));
+				
+				//About twice the packed size of the repository, for its commits, graph and blames
+				long estimate = 2 * getSize(repositoryManager.getMirrorDirectory(fields[0]));
+				if(projectOptions.getInt("memory", 0) > 0)
+					estimate = projectOptions.getInt("memory", 0) * MB;
+				project.reservation = Math.min(this.memoryBudget, Math.max(MIN_RESERVATION, estimate));
+				if(projectOptions.getLong("blame-cache-mb", 0) == 0)
+					project.run.setBlameCacheBytes(Math.max(10 * MB, project.reservation / 10));
+				this.projects.add(project);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Writes the summary of every project, those still running or waiting included. A summary that 
+	 * cannot be written is reported and does not stop the batch.
+	 */
+	private void writeSummary() {
+		try (PrintWriter writer = new PrintWriter(getSummaryFile(), "UTF-8")) {
+			writer.println("JiraKey;Repository;Status;Issues;Commits;BugFixingCommits;FixInducingCommits;Seconds;");
+			for(Project project: this.projects) {
+				ProjectRun run = project.run;
+				writer.println(run.getJiraKey() + ";" + run.getGithubURL() + ";" + project.status.replace(";", "") + ";" 
+						+ run.getIssueCount() + ";" + run.getCommitCount() + ";" + run.getBugFixingCount() + ";" 
+						+ run.getFixInducingCount() + ";" + project.seconds + ";");
+			}
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * @return the summary file, named after the manifest unless --summary is given
+	 */
+	private File getSummaryFile() {
+		String name = this.manifest.getName().replaceFirst("\\.[^.]*$", "");
+		return new File(this.options.get("summary", name + "-Summary.csv"));
+	}
+	
+	/**
+	 * @param directory a directory
+	 * @return the total size of the files in the directory, 0 if it does not exist
+	 */
+	private static long getSize(File directory) {
+		if(!directory.isDirectory())
+			return 0;
+		try (Stream<Path> paths = Files.walk(directory.toPath())) {
+			return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+	
+	/**
+	 * A project of the manifest and its outcome.
+	 */
+	private static class Project {
+		private ProjectRun run;
+		private long reservation;
+		private String status;
+		private long seconds;
+		
+		private Project(ProjectRun run) {
+			this.run = run;
+			this.status = "waiting";
+		}
+	}
+}
@@ -1,14 +1,22 @@
 package com.SZZ.application;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+
 import com.SZZ.entities.Commit;
-import com.SZZ.entities.FileThread;
+import com.SZZ.entities.CommitTable;
 import com.SZZ.entities.Link;
 import com.SZZ.entities.Suspect;
+import com.SZZ.entities.TaskScheduler;
 import com.SZZ.gitMiner.GitUtil;
+import com.SZZ.gitMiner.RepositoryManager;
+import com.SZZ.state.MappedCommitIndex;
 
 public class Experiments {
 	private ArrayList<Commit> allCommits;
@@ -20,19 +28,48 @@ public class Experiments {
 	private GitUtil gitUtil;	
 	private ArrayList<Integer> values;
 	private ArrayList<Commit> fixInducingCommitsList;
+	private CommitTable fixInducingCommitTable;
+	private MappedCommitIndex commitIndex;
 	private int outlier = 150;
 	
 	
-	public Experiments(ArrayList<Commit> commits, ArrayList<Link> bugFixingCommits,	ArrayList<Link> fixInducingCommitHolders) {
+	/**
+	 * Creates the experiments on the results of a run. The bug introducing commits are read from the 
+	 * commit index of the run if there is one, only those missing from it are read from the repository.
+	 * @param githubURL the github repository url
+	 * @param commits every commit of the run
+	 * @param bugFixingCommits the bug fixing links
+	 * @param fixInducingCommitHolders the links holding the bug introducing commits
+	 * @param commitIndex the commit index written by the run, null to read every bug introducing commit from the repository
+	 */
+	public Experiments(String githubURL, ArrayList<Commit> commits, ArrayList<Link> bugFixingCommits,	ArrayList<Link> fixInducingCommitHolders, File commitIndex) {
 		this.allCommits = commits;
 		this.bugFixingCommits = bugFixingCommits;
 		this.fixInducingCommitHolders = fixInducingCommitHolders;
 		allCommitsHash = new HashMap<>();
 		bugFixingCommitsHash = new HashMap<>();
 		fixInducingCommitsHash = new HashMap<>();
-		this.gitUtil = new GitUtil("");
+		this.gitUtil = new GitUtil(githubURL);
+		//The mirror left by the run is read as it is
+		RepositoryManager repositoryManager = new RepositoryManager(new File(System.getProperty("user.dir") + "/Repos"));
+		repositoryManager.setOffline(true);
+		this.gitUtil.setRepositoryManager(repositoryManager);
+		try {
+			this.gitUtil.open();
+		} catch (IOException | GitAPIException e) {
+			throw new IllegalStateException("Could not open the repository " + githubURL, e);
+		}
+		if(commitIndex != null && commitIndex.exists()) {
+			try {
+				this.commitIndex = MappedCommitIndex.open(commitIndex, true);
+			} catch (IOException e) {
+				System.out.println("Could not read commit index, reading commits from the repository");
+				e.printStackTrace();
+			}
+		}
 		values = new ArrayList<>();
 		fixInducingCommitsList = new ArrayList<>();
+		fixInducingCommitTable = new CommitTable();
 		createHashMaps();
 		//calculateFileSizes();		
 		calculateDays();
@@ -47,12 +84,22 @@ public class Experiments {
 			this.bugFixingCommitsHash.put(l.getCommit().getHash(), l.getCommit());
 		}		
 		
+		//Suspects in the commit index already have their affected files
+		ArrayList<Commit> indexedCommits = new ArrayList<>();
 		for(Link l: fixInducingCommitHolders) {
 			for (Map.Entry<String, Suspect> entry : l.getBugIntroducingCommits().entrySet()) {
-				this.fixInducingCommitsList.add(new Commit(entry.getValue().getHash(),entry.getValue().getDate(),entry.getValue().getAuthor(), ""));		  
+				ObjectId objectId = ObjectId.fromString(entry.getValue().getHash());
+				int indexRow = this.commitIndex == null ? -1 : this.commitIndex.find(objectId);
+				if(indexRow >= 0 && this.commitIndex.getFileCount(indexRow) >= 0) {
+					indexedCommits.add(this.commitIndex.getCommit(indexRow));
+					continue;
+				}
+				int row = this.fixInducingCommitTable.add(objectId, entry.getValue().getDate(), entry.getValue().getAuthor(), "");
+				this.fixInducingCommitsList.add(this.fixInducingCommitTable.getCommit(row));		  
 			}
 		}
 		this.fixInducingCommitsList = acquireAffectedFiles(this.fixInducingCommitsList);
+		this.fixInducingCommitsList.addAll(indexedCommits);
 		
 		for(Commit c: this.fixInducingCommitsList) {
 			this.fixInducingCommitsHash.put(c.getHash(), c);
@@ -209,27 +256,18 @@ public class Experiments {
 	
 	
 	private ArrayList<Commit> acquireAffectedFiles(ArrayList<Commit> commits) {
-		int CORES = Runtime.getRuntime().availableProcessors();
-		int[] splits = new int[CORES];
-		int rem = commits.size() % CORES;
-		int split = (commits.size() - rem) / CORES; 
-		
-		for(int i = 0; i < CORES; i++) 
-			splits[i] = split;
-		splits[CORES-1] += rem;
-		
-		FileThread[] threads = new FileThread[CORES];
-		for(int i = 0; i < CORES; i++) 
-			threads[i] = new FileThread(splits[i], split, i, this.gitUtil, commits);
-				
-		try {
-			for(FileThread t: threads) 
-				t.start();			
-			for(FileThread t: threads)		
-				t.join();
-		} catch (Exception e) {			
-			e.printStackTrace();
-		}		
+		TaskScheduler scheduler = new TaskScheduler(Runtime.getRuntime().availableProcessors());
+		scheduler.forEach(commits, null, commit -> {
+			try {
+				commit.setFiles(this.gitUtil.getFiles(commit.getHash()));
+			} catch (Exception e) {
+				System.out.println("Could not read the affected files of " + commit.getHash());
+				e.printStackTrace();
+			}
+		});
+		scheduler.close();
+		//Commits without affected files would count as affecting a negative number of files
+		commits.removeIf(commit -> commit.getFileCount() < 0);
 		
 		return commits;		
 	}
@@ -237,8 +275,8 @@ public class Experiments {
 	private void calculateFileSizes() {	
 		//1
 		for(Link l: bugFixingCommits) {
-			if(fixInducingCommitsHash.get(l.getCommit().getHash()) != null && l.getCommit().getFiles().size() < outlier) {
-				values.add(l.getCommit().getFiles().size());
+			if(fixInducingCommitsHash.get(l.getCommit().getHash()) != null && l.getCommit().getFileCount() < outlier) {
+				values.add(l.getCommit().getFileCount());
 			}
 		}
 		double meanVal = mean();
@@ -248,8 +286,8 @@ public class Experiments {
 		
 		//2
 		for(Link l: bugFixingCommits) { 
-			if(fixInducingCommitsHash.get(l.getCommit().getHash()) == null && l.getCommit().getFiles().size() < outlier) {
-				values.add(l.getCommit().getFiles().size());
+			if(fixInducingCommitsHash.get(l.getCommit().getHash()) == null && l.getCommit().getFileCount() < outlier) {
+				values.add(l.getCommit().getFileCount());
 			}
 		}
 		meanVal = mean();
@@ -259,8 +297,8 @@ public class Experiments {
 		
 		//3		
 		for(Link l: bugFixingCommits) { 
-			if(l.getCommit().getFiles().size() < outlier)
-				values.add(l.getCommit().getFiles().size());
+			if(l.getCommit().getFileCount() < outlier)
+				values.add(l.getCommit().getFileCount());
 		}
 		meanVal = mean();
 		standardVal = standardDeviation(meanVal);
@@ -269,8 +307,8 @@ public class Experiments {
 		
 		//4		
 		for(Commit c: fixInducingCommitsList) {
-			if(bugFixingCommitsHash.get(c.getHash()) == null && c.getFiles().size() < outlier) {
-				values.add(c.getFiles().size());
+			if(bugFixingCommitsHash.get(c.getHash()) == null && c.getFileCount() < outlier) {
+				values.add(c.getFileCount());
 			}
 		}
 		meanVal = mean();
@@ -281,8 +319,8 @@ public class Experiments {
 		
 		//5
 		for(Commit c: allCommits) {
-			if(bugFixingCommitsHash.get(c.getHash()) == null && fixInducingCommitsHash.get(c.getHash()) == null && c.getFiles().size() < outlier ) {
-				values.add(c.getFiles().size());
+			if(bugFixingCommitsHash.get(c.getHash()) == null && fixInducingCommitsHash.get(c.getHash()) == null && c.getFileCount() < outlier ) {
+				values.add(c.getFileCount());
 			}
 		}
 		meanVal = mean();
@@ -293,8 +331,8 @@ public class Experiments {
 		
 		//6
 		for(Commit c: allCommits) {
-			if(bugFixingCommitsHash.get(c.getHash()) == null && c.getFiles().size() < outlier) {
-				values.add(c.getFiles().size());
+			if(bugFixingCommitsHash.get(c.getHash()) == null && c.getFileCount() < outlier) {
+				values.add(c.getFileCount());
 			}
 		}
 		meanVal = mean();
@@ -305,8 +343,8 @@ public class Experiments {
 		
 		//7		
 		for(Commit c: fixInducingCommitsList) {	
-			if(c.getFiles().size() < outlier)
-				values.add(c.getFiles().size());
+			if(c.getFileCount() < outlier)
+				values.add(c.getFileCount());
 		}
 		meanVal = mean();
 		standardVal = standardDeviation(meanVal);
@@ -316,8 +354,8 @@ public class Experiments {
 		
 		//8
 		for(Commit c: allCommits) {
-			if(fixInducingCommitsHash.get(c.getHash()) == null && c.getFiles().size() < outlier) {
-				values.add(c.getFiles().size());
+			if(fixInducingCommitsHash.get(c.getHash()) == null && c.getFileCount() < outlier) {
+				values.add(c.getFileCount());
 			}
 		}
 		meanVal = mean();
@@ -327,8 +365,8 @@ public class Experiments {
 		
 		//9
 		for(Commit c: allCommits) {
-			if(c.getFiles().size() < outlier)
-				values.add(c.getFiles().size());
+			if(c.getFileCount() < outlier)
+				values.add(c.getFileCount());
 		}
 		meanVal = mean();
 		standardVal = standardDeviation(meanVal);
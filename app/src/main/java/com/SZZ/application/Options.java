@@ -0,0 +1,117 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.application;
+
+import java.util.HashMap;
+/**
+ * Optional run settings given after the positional arguments in the form --name=value, 
+ * or --name for a flag.
+ * @author Thomas Watkins
+ */
+public class Options {
+	private HashMap<String, String> values;
+	
+	/**
+	 * Creates the options from the command line arguments.
+	 * @param args the command line arguments
+	 * @param start the index of the first optional argument
+	 */
+	public Options(String[] args, int start) {
+		this(args, start, null);
+	}
+	
+	/**
+	 * Creates the options from arguments, on top of options already given.
+	 * @param args the arguments
+	 * @param start the index of the first optional argument
+	 * @param defaults the options used where the arguments do not give one, or null
+	 */
+	public Options(String[] args, int start, Options defaults) {
+		this.values = defaults == null ? new HashMap<>() : new HashMap<>(defaults.values);
+		for(int i = start; i < args.length; i++) {
+			if(!args[i].startsWith("--")) {
+				System.out.println("Ignoring unknown argument: " + args[i]);
+				continue;
+			}
+			String option = args[i].substring(2);
+			int equals = option.indexOf('=');
+			if(equals < 0)
+				this.values.put(option, "true");
+			else
+				this.values.put(option.substring(0, equals), option.substring(equals + 1));
+		}
+	}
+	
+	/**
+	 * @param name the option name
+	 * @param defaultValue the value returned if the option is not given
+	 * @return the option value
+	 */
+	public String get(String name, String defaultValue) {
+		return this.values.getOrDefault(name, defaultValue);
+	}
+	
+	/**
+	 * @param name the option name
+	 * @param defaultValue the value returned if the option is not given or not a number
+	 * @return the option value
+	 */
+	public int getInt(String name, int defaultValue) {
+		try {
+			return Integer.parseInt(get(name, Integer.toString(defaultValue)));
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid value for --" + name + ", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+	
+	/**
+	 * @param name the option name
+	 * @param defaultValue the value returned if the option is not given or not a number
+	 * @return the option value
+	 */
+	public long getLong(String name, long defaultValue) {
+		try {
+			return Long.parseLong(get(name, Long.toString(defaultValue)));
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid value for --" + name + ", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+	
+	/**
+	 * @param name the option name
+	 * @param defaultValue the value returned if the option is not given or not a number
+	 * @return the option value
+	 */
+	public double getDouble(String name, double defaultValue) {
+		try {
+			return Double.parseDouble(get(name, Double.toString(defaultValue)));
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid value for --" + name + ", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+	
+	/**
+	 * @param name the flag name
+	 * @return true if the flag was given
+	 */
+	public boolean getBoolean(String name) {
+		return Boolean.parseBoolean(get(name, "false"));
+	}
+	
+	@Override
+	public String toString() {
+		return this.values.toString();
+	}
+}
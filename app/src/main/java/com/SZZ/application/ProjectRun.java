@@ -0,0 +1,382 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.application;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import com.SZZ.entities.Bug;
+import com.SZZ.entities.Commit;
+import com.SZZ.entities.Link;
+import com.SZZ.entities.Suspect;
+import com.SZZ.entities.TaskScheduler;
+import com.SZZ.gitMiner.GitMiner;
+import com.SZZ.gitMiner.RepositoryManager;
+import com.SZZ.jMiner.IssueDumpImporter;
+import com.SZZ.jMiner.IssueSource;
+import com.SZZ.jMiner.JiraClient;
+import com.SZZ.jMiner.JiraMiner;
+import com.SZZ.linker.IssueKeyMatcher;
+import com.SZZ.linker.LinkConnector;
+import com.SZZ.linker.OutlierPolicy;
+import com.SZZ.output.ResultSink;
+import com.SZZ.pipeline.StreamingPipeline;
+import com.SZZ.state.RunJournal;
+import com.SZZ.state.RunState;
+/**
+ * Runs the SZZ algorithm on one github repository and its jira project, writing the csv files of 
+ * the project. The scheduler is given by the caller, so several projects can share its threads.
+ * @author Thomas Watkins
+ */
+public class ProjectRun {
+	private String githubURL;
+	private String jiraIssuesURL;
+	private String jiraKey;
+	private String filePrefix;
+	private Options options;
+	private long blameCacheBytes;
+	private JiraClient jiraClient;
+	private ConcurrentHashMap<String, Object> jiraLocks;
+	private int issueCount;
+	private long commitCount;
+	private int bugFixingCount;
+	private int fixInducingCount;
+	
+	/**
+	 * Creates a run of a project.
+	 * @param githubURL the github repository url
+	 * @param jiraIssuesURL the jira issues url
+	 * @param jiraKey the key of the jira project
+	 * @param options the run settings
+	 */
+	public ProjectRun(String githubURL, String jiraIssuesURL, String jiraKey, Options options) {
+		this.githubURL = githubURL;
+		this.jiraIssuesURL = jiraIssuesURL;
+		this.jiraKey = jiraKey;
+		this.filePrefix = jiraKey;
+		this.options = options;
+		this.blameCacheBytes = options.getLong("blame-cache-mb", 0) * 1024 * 1024;
+		this.jiraClient = createJiraClient(options);
+		this.jiraLocks = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * Sets the client fetching issues, so projects on the same Jira can share its limits.
+	 * @param jiraClient the Jira client
+	 */
+	public void setJiraClient(JiraClient jiraClient) {
+		this.jiraClient = jiraClient;
+	}
+	
+	/**
+	 * Sets the locks of the Jira keys, so projects mining the same key do not write its issue store 
+	 * and page files at the same time.
+	 * @param jiraLocks a lock for every Jira key, shared by the projects
+	 */
+	public void setJiraLocks(ConcurrentHashMap<String, Object> jiraLocks) {
+		this.jiraLocks = jiraLocks;
+	}
+	
+	/**
+	 * Sets the start of the names of the result, run state and commit index files of the project, 
+	 * so projects sharing a Jira key do not share files.
+	 * @param filePrefix the start of the file names, the Jira key by default
+	 */
+	public void setFilePrefix(String filePrefix) {
+		this.filePrefix = filePrefix;
+	}
+	
+	/**
+	 * Sets the maximum size of the blame cache, overriding --blame-cache-mb.
+	 * @param blameCacheBytes the number of bytes, 0 for the default
+	 */
+	public void setBlameCacheBytes(long blameCacheBytes) {
+		this.blameCacheBytes = blameCacheBytes;
+	}
+	
+	/**
+	 * Mines the issues and the repository, then calculates the bug fixing and bug introducing commits.
+	 * @param scheduler the scheduler running the tasks of the project
+	 * @throws InterruptedException if the run is interrupted
+	 */
+	public void run(TaskScheduler scheduler) throws InterruptedException {
+		Options options = this.options;
+		DiffAlgorithm.SupportedAlgorithm diffAlgorithm = GitMiner.getDiffAlgorithm(options.get("diff-algorithm", "myers"));
+		OutlierPolicy outlierPolicy = OutlierPolicy.create(options.get("outlier-policy", "median"), 
+				options.getInt("outlier-factor", LinkConnector.OUTLIER_FACTOR), 
+				options.getDouble("outlier-percentile", 95), options.getDouble("outlier-fence", 1.5));
+		long outlierPeriod = options.getInt("outlier-period", 0) * 86400L;
+		long maxSuspectAge = options.getInt("max-suspect-age", (int) Link.MAX_SUSPECT_AGE);
+		String gitBackend = options.get("git-backend", "jgit");
+		//Other Jira projects referenced by the repository's commits
+		ArrayList<String> projectKeys = new ArrayList<>();
+		projectKeys.add(this.jiraKey);
+		for(String key: options.get("link-keys", "").split(",")) {
+			if(!key.trim().isEmpty() && !projectKeys.contains(key.trim()))
+				projectKeys.add(key.trim());
+		}
+		
+		//Results of the previous run are reused unless a setting that changes them differs
+		String configuration = "key=" + String.join(",", projectKeys) + ";diff-algorithm=" + diffAlgorithm 
+				+ ";outlier-policy=" + outlierPolicy + ";outlier-period=" + outlierPeriod + ";max-suspect-age=" + maxSuspectAge + ";git-backend=" + gitBackend;
+		File stateFile = new File(this.filePrefix + "-RunState.dat");
+		RunState runState = options.getBoolean("full") ? new RunState(configuration) : RunState.load(stateFile, configuration);
+		
+		//Set up the repository, walked first when only referenced issues are fetched
+		GitMiner gMiner = new GitMiner(this.githubURL);		
+		gMiner.setDiffAlgorithm(diffAlgorithm);
+		gMiner.setBackend(gitBackend);
+		gMiner.setRunState(runState);
+		gMiner.setCommitIndex(new File(options.get("commit-index", this.filePrefix + "-Commits.idx")), !options.getBoolean("full"));
+		gMiner.setScheduler(scheduler);
+		RepositoryManager repositoryManager = new RepositoryManager(getRepositoryCache(options));
+		repositoryManager.setSeed(options.get("repo-seed", null));
+		repositoryManager.setOffline(options.getBoolean("offline"));
+		gMiner.setRepositoryManager(repositoryManager);
+		//The repository and any git processes are released whatever happens, a batch runs on after a failed project
+		try {
+			try {
+				gMiner.open();
+			} catch (IOException | GitAPIException e) {
+				throw new IllegalStateException("Could not open the repository " + this.githubURL, e);
+			}
+			if(this.blameCacheBytes > 0)
+				gMiner.setBlameCacheSize(this.blameCacheBytes);
+		
+			//Get Jira Issues, from export files for trackers that cannot be reached
+			HashMap<String, Bug> issues;
+			if(!options.get("jira-dump", "").isEmpty()) {
+				ArrayList<File> dumps = new ArrayList<>();
+				for(String dump: options.get("jira-dump", "").split(","))
+					dumps.add(new File(dump.trim()));
+				try {
+					issues = new IssueDumpImporter(scheduler, projectKeys).importIssues(dumps);
+				} catch (IOException e) {
+					throw new IllegalStateException("Could not import the Jira dump", e);
+				}
+			} else if(options.getBoolean("jira-targeted")) {
+				issues = mineIssues(projectKeys, findIssueKeys(gMiner, projectKeys));
+			} else {
+				issues = mineIssues(projectKeys, null);
+			}
+			System.out.println("Total Issues List: " + issues.size());
+			this.issueCount = issues.size();
+		
+			//Open the result files, written as the links are finished
+			ResultSink resultSink;
+			try {
+				resultSink = ResultSink.create(options.get("output-format", "csv"), this.filePrefix, 
+						options.get("output-compression", "none"));
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not open the result files", e);
+			}
+			gMiner.setResultSink(resultSink);
+		
+			//Journal every finished link so an interrupted run can resume, flushed as well when the run is killed
+			RunJournal journal;
+			try {
+				journal = RunJournal.open(new File(this.filePrefix + "-RunState.journal"), configuration, options.getBoolean("resume"));
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not open the run journal", e);
+			}
+			runState.setJournal(journal);
+			Thread flush = new Thread(() -> {
+				journal.close();
+				System.out.println("Run of " + this.jiraKey + " interrupted, continue it with --resume");
+			});
+			Runtime.getRuntime().addShutdownHook(flush);
+		
+			//Get Git Commits
+			ArrayList<Link> bugIntroducingCommits;
+			try {
+				if(options.getBoolean("streaming")) {
+					//Walk, link and blame as overlapping stages
+					LinkConnector connector = new LinkConnector(issues, new ArrayList<>(), this.jiraKey);
+					connector.setProjectKeys(projectKeys);
+					connector.setOutlierPolicy(outlierPolicy);
+					connector.setOutlierPeriod(outlierPeriod);
+					connector.setMaxSuspectAge(maxSuspectAge);
+					connector.setResultSink(resultSink);
+					StreamingPipeline pipeline = new StreamingPipeline(gMiner, connector, scheduler);
+					if(options.getInt("commit-capacity", 0) > 0)
+						pipeline.setCommitCapacity(options.getInt("commit-capacity", 0));
+					bugIntroducingCommits = pipeline.run();
+					this.commitCount = pipeline.getCommitCount();
+				} else {
+					ArrayList<Commit> commits = gMiner.mineGit();
+					System.out.println("Total Commits List: " + commits.size());
+					this.commitCount = commits.size();
+				
+				
+					//Get Bug Fixing Commits
+					LinkConnector connector = new LinkConnector(issues, commits, this.jiraKey);
+					connector.setScheduler(scheduler);
+					connector.setProjectKeys(projectKeys);
+					connector.setOutlierPolicy(outlierPolicy);
+					connector.setOutlierPeriod(outlierPeriod);
+					connector.setMaxSuspectAge(maxSuspectAge);
+					connector.setResultSink(resultSink);
+					ArrayList<Link> bugFixingCommits = connector.getBugFixingCommits();
+					System.out.println("Total Bug Fixing Commits: " + bugFixingCommits.size());
+				
+				
+					//Get Bug Introducing Commits from bug fixing commits
+					bugIntroducingCommits = gMiner.calculateBugIntroducingCommits(bugFixingCommits);
+				}
+				//The journal is the only record of the finished links until the state is saved
+				if(runState.save(stateFile))
+					journal.clear();
+			} finally {
+				try {
+					resultSink.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				try {
+					Runtime.getRuntime().removeShutdownHook(flush);
+				} catch (IllegalStateException e) {
+					//Already shutting down, the hook flushes the journal
+				}
+				journal.close();
+			}
+			this.bugFixingCount = bugIntroducingCommits.size();
+		
+		
+			//Extract bug-introducing commits and remove duplicates
+			HashMap<String, Integer> fixInducingCommits = new HashMap<>();		
+			for(Link link: bugIntroducingCommits) {	
+				for (Map.Entry<String, Suspect> entry : link.getBugIntroducingCommits().entrySet()) {
+					fixInducingCommits.put(entry.getValue().getHash(),1);		  
+				}
+			}
+			System.out.println("Total Fix Inducing Commits: " + fixInducingCommits.size());
+			this.fixInducingCount = fixInducingCommits.size();
+		
+			gMiner.printStatistics();
+		} finally {
+			gMiner.close();
+		}
+	}
+	
+	/**
+	 * Walks the repository's log for the keys of the issues its commits refer to. Commits are linked 
+	 * by their short message, so only it is searched.
+	 * @param gMiner the miner of the repository
+	 * @param projectKeys the keys of the Jira projects
+	 * @return the issue keys, in lower case
+	 */
+	private HashSet<String> findIssueKeys(GitMiner gMiner, ArrayList<String> projectKeys) {
+		IssueKeyMatcher matcher = new IssueKeyMatcher(projectKeys);
+		HashSet<String> issueKeys = new HashSet<>();
+		Iterable<RevCommit> logs = gMiner.getGitLogs();
+		int commits = 0;
+		if(logs != null) {
+			for(RevCommit rev: logs) {
+				issueKeys.addAll(matcher.match(rev.getShortMessage()));
+				commits++;
+			}
+		}
+		System.out.println("Found " + issueKeys.size() + " issue keys in " + commits + " commits");
+		return issueKeys;
+	}
+	
+	/**
+	 * Mines the issues of every project from Jira. The files of a Jira key are named by the key alone, 
+	 * so one project at a time mines each key and the next reads the store it left.
+	 * @param projectKeys the keys of the Jira projects, this project's first
+	 * @param issueKeys the keys of the issues referenced by commits to only fetch those, null to fetch every fixed bug
+	 * @return HashMap containing the extracted issues
+	 */
+	private HashMap<String, Bug> mineIssues(ArrayList<String> projectKeys, HashSet<String> issueKeys) {
+		HashMap<String, Bug> issues = new HashMap<>();
+		for(String key: projectKeys) {
+			JiraMiner jMiner = new JiraMiner(this.jiraIssuesURL, key);
+			jMiner.setClient(this.jiraClient, this.options.getInt("jira-connections", 4));
+			jMiner.setSource(IssueSource.create(this.options.get("jira-api", "xml")));
+			jMiner.setOffline(this.options.getBoolean("offline"));
+			jMiner.setFullSync(this.options.getBoolean("full"));
+			synchronized(this.jiraLocks.computeIfAbsent(key.toUpperCase(), k -> new Object())) {
+				issues.putAll(issueKeys == null ? jMiner.mineIssues() : jMiner.mineIssues(issueKeys));
+			}
+		}
+		return issues;
+	}
+	
+	/**
+	 * @param options the run settings
+	 * @return a Jira client with the connections, timeout and request rate of the settings
+	 */
+	public static JiraClient createJiraClient(Options options) {
+		return new JiraClient(options.getInt("jira-connections", 4), Duration.ofSeconds(options.getInt("jira-timeout", 60)), 
+				options.getDouble("jira-rate", 0));
+	}
+	
+	/**
+	 * @param options the run settings
+	 * @return the directory holding the repository mirrors
+	 */
+	public static File getRepositoryCache(Options options) {
+		return new File(options.get("repo-cache", System.getProperty("user.dir") + "/Repos"));
+	}
+	
+	/**
+	 * @return the github repository url
+	 */
+	public String getGithubURL() {
+		return this.githubURL;
+	}
+	
+	/**
+	 * @return the key of the jira project
+	 */
+	public String getJiraKey() {
+		return this.jiraKey;
+	}
+	
+	/**
+	 * @return the number of issues mined
+	 */
+	public int getIssueCount() {
+		return this.issueCount;
+	}
+	
+	/**
+	 * @return the number of commits mined
+	 */
+	public long getCommitCount() {
+		return this.commitCount;
+	}
+	
+	/**
+	 * @return the number of bug fixing links
+	 */
+	public int getBugFixingCount() {
+		return this.bugFixingCount;
+	}
+	
+	/**
+	 * @return the number of distinct bug introducing commits
+	 */
+	public int getFixInducingCount() {
+		return this.fixInducingCount;
+	}
+}
@@ -0,0 +1,55 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.entities;
+
+import com.SZZ.gitMiner.GitUtil;
+/**
+ * The blame of one file of a bug fixing commit. A link is split into one blame task per file so 
+ * the files of a large fix commit are blamed in parallel.
+ * @author Thomas Watkins
+ */
+public class BlameTask {
+	private Link link;
+	private FileDiff diff;
+	
+	/**
+	 * Creates a blame task.
+	 * @param link the link of the bug fixing commit
+	 * @param diff the diff of the file to be blamed
+	 */
+	public BlameTask(Link link, FileDiff diff) {
+		this.link = link;
+		this.diff = diff;
+	}
+	
+	/**
+	 * Blames the file, storing the blamed lines in the link.
+	 * @param gitUtil the git utility
+	 */
+	public void run(GitUtil gitUtil) {
+		this.link.blame(gitUtil, this.diff);
+	}
+	
+	/**
+	 * @return the link of the bug fixing commit
+	 */
+	public Link getLink() {
+		return this.link;
+	}
+	
+	/**
+	 * @return the estimated cost of the task, the size of the file blamed
+	 */
+	public long getCost() {
+		return this.diff.getSize();
+	}
+}
@@ -13,96 +13,107 @@ package com.SZZ.entities;
 
 import java.util.ArrayList;
 /**
- * Representation of a git Commit.
+ * Representation of a git Commit. A commit is a view of a row of a commit store, only the 
+ * bug links found while linking are held by the commit itself.
  * @author Thomas Watkins
  */
 public class Commit {
-	private String hash;
-	private long timeStamp;
-	private String author;
-	private String comment;
-	private ArrayList<AffectedFile> files;
-	private String bugIDLink;
+	private CommitStore store;
+	private int row;
+	private ArrayList<String> bugIDLinks;
 	
 	/**
-	 * Creates a commit.
-	 * @param hash the commit hash
-	 * @param timeStamp the time stamp of the commit
-	 * @param author the author of the comment
-	 * @param comment the commit message
+	 * Creates a view of a commit.
+	 * @param store the store holding the commit
+	 * @param row the row of the commit in the store
 	 */
-	public Commit(String hash, long timeStamp, String author, String comment) {
-		this.hash = hash;
-		this.timeStamp = timeStamp;
-		this.author = author;
-		this.comment = comment;		
-		this.bugIDLink = "";
+	public Commit(CommitStore store, int row) {
+		this.store = store;
+		this.row = row;
+		this.bugIDLinks = new ArrayList<>();
 	}
 
 	/**	 
-	 * Stores the potential bug link id for this commit.
-	 * @param bugIDLink the bug link id
+	 * Stores the potential bug link ids for this commit.
+	 * @param bugIDLinks the bug link ids, in the order they appear in the commit message
 	 */
-	public void setBugIDLink(String bugIDLink) {
-		this.bugIDLink = bugIDLink;
+	public void setBugIDLinks(ArrayList<String> bugIDLinks) {
+		this.bugIDLinks = bugIDLinks;
 	}
 	
 	/**
-	 * @return the bug link id for this commit
+	 * @return the bug link ids for this commit
 	 */
-	public String getBugIDLink() {
-		return this.bugIDLink;
+	public ArrayList<String> getBugIDLinks() {
+		return this.bugIDLinks;
+	}
+	
+	/**
+	 * @return the row of this commit in its store
+	 */
+	public int getRow() {
+		return this.row;
 	}
 	
 	/**
 	 * @return the hash for this commit
 	 */
 	public String getHash() {
-		return this.hash;
+		return this.store.getHash(this.row);
 	}
 
 	/**
 	 * @return the time stamp for this commit
 	 */
 	public long getTimeStamp() {
-		return this.timeStamp;
+		return this.store.getTime(this.row);
 	}
 	
 	/**
 	 * @return the author for this commit
 	 */
 	public String getAuthor() {
-		return this.author;
+		return this.store.getAuthor(this.row);
 	}
 	
 	/**
 	 * @return the message for this commit
 	 */
 	public String getComment() {
-		return this.comment;
+		return this.store.getComment(this.row);
 	}
 		
 	/**
 	 * Assigns the affected files for this commit.
-	 * @return the list of affected files
+	 * @param files the list of affected files
+	 * @throws IllegalStateException if the commit is read from a read only store
 	 */
 	public void setFiles(ArrayList<AffectedFile> files) {
-		this.files = files;
+		if(!(this.store instanceof WritableCommitStore))
+			throw new IllegalStateException("The commit " + getHash() + " is read only");
+		((WritableCommitStore) this.store).setFiles(this.row, files);
 	}
 	
 	/**
 	 * @return the affected files for this commit
 	 */
 	public ArrayList<AffectedFile> getFiles() {
-		return this.files;
+		return this.store.getFiles(this.row);
+	}
+	
+	/**
+	 * @return the number of files affected by this commit, without creating the files
+	 */
+	public int getFileCount() {
+		return this.store.getFileCount(this.row);
 	}
 	
 	@Override
 	public String toString() {		
-		return hash + "\n" +
-			   timeStamp + "\n" +
-			   author + "\n" +
-			   comment + "\n" +
-			   files + "\n";
+		return getHash() + "\n" +
+			   getTimeStamp() + "\n" +
+			   getAuthor() + "\n" +
+			   getComment() + "\n" +
+			   getFiles() + "\n";
 	}
 }
\ No newline at end of file
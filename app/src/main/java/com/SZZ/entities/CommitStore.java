@@ -0,0 +1,84 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.entities;
+
+import java.util.ArrayList;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+/**
+ * A read only store of commits and their affected files addressed by row. Commits are handed out as 
+ * {@link Commit} views over a row rather than holding their own copies of the data. A store that 
+ * affected files are assigned to is a {@link WritableCommitStore}.
+ * @author Thomas Watkins
+ */
+public interface CommitStore {
+	
+	/**
+	 * @return the number of commits in the store
+	 */
+	int size();
+	
+	/**
+	 * @param objectId the commit id
+	 * @return the row of the commit, -1 if it is not in the store
+	 */
+	int find(AnyObjectId objectId);
+	
+	/**
+	 * @param row the row of a commit
+	 * @return a view of the commit
+	 */
+	Commit getCommit(int row);
+	
+	/**
+	 * @param row the row of a commit
+	 * @return the commit id
+	 */
+	ObjectId getObjectId(int row);
+	
+	/**
+	 * @param row the row of a commit
+	 * @return the commit hash
+	 */
+	String getHash(int row);
+	
+	/**
+	 * @param row the row of a commit
+	 * @return the commit time in seconds
+	 */
+	long getTime(int row);
+	
+	/**
+	 * @param row the row of a commit
+	 * @return the author of the commit
+	 */
+	String getAuthor(int row);
+	
+	/**
+	 * @param row the row of a commit
+	 * @return the message of the commit
+	 */
+	String getComment(int row);
+	
+	/**
+	 * @param row the row of a commit
+	 * @return the number of files affected by the commit, -1 if they have not been acquired
+	 */
+	int getFileCount(int row);
+	
+	/**
+	 * @param row the row of a commit
+	 * @return the files affected by the commit, null if they have not been acquired
+	 */
+	ArrayList<AffectedFile> getFiles(int row);
+}
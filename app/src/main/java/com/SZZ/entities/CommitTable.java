@@ -0,0 +1,353 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.entities;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.NB;
+/**
+ * A columnar table of commits and their affected files. Rather than an object per commit and per 
+ * affected file, every column is a primitive array indexed by row: commit ids as 20 raw bytes, 
+ * authors and paths as ids into string dictionaries, statuses as single bytes, and the affected 
+ * files of a commit as a range of one shared array. Commits are found by id through an open 
+ * addressing hash table over the id column.
+ * 
+ * Rows and files are added by one thread at a time, the thread walking the logs and the tasks 
+ * assigning files, while any thread reads. Reads take no lock: a column is only replaced by a grown 
+ * copy holding every row written before it, published through a volatile field. A row is read by 
+ * the threads it was handed to once it was written, as the scheduler and queues order them.
+ * @author Thomas Watkins
+ */
+public class CommitTable implements WritableCommitStore {
+	private static final int UNKNOWN = -1;
+	//Status letters are stored as a byte, each letter is given back as the same string
+	private static final String[] STATUSES = new String[128];
+	
+	private volatile int size;
+	private volatile byte[] ids;
+	private volatile int[] slots;
+	private volatile int[] times;
+	private volatile int[] authors;
+	private volatile int[] commentStarts;
+	private volatile int[] commentEnds;
+	private volatile byte[] comments;
+	private int commentSize;
+	private volatile FileColumns files;
+	private int fileSize;
+	private int liveFiles;
+	private StringDictionary authorDictionary;
+	private StringDictionary pathDictionary;
+	
+	static {
+		for (int i = 0; i < STATUSES.length; i++)
+			STATUSES[i] = String.valueOf((char) i);
+	}
+	
+	/**
+	 * Creates an empty commit table.
+	 */
+	public CommitTable() {
+		this.ids = new byte[1024 * Constants.OBJECT_ID_LENGTH];
+		this.slots = new int[2048];
+		this.times = new int[1024];
+		this.authors = new int[1024];
+		this.commentStarts = new int[1024];
+		this.commentEnds = new int[1024];
+		this.comments = new byte[16384];
+		this.files = new FileColumns(new int[1024], new int[1024], new int[4096], new byte[4096]);
+		this.authorDictionary = new StringDictionary();
+		this.pathDictionary = new StringDictionary();
+	}
+	
+	/**
+	 * Adds a commit, without its affected files. A commit already in the table keeps its row, a row 
+	 * added by {@link #addFiles} is given the details of the commit.
+	 * @param objectId the commit id
+	 * @param time the commit time in seconds
+	 * @param author the author of the commit
+	 * @param comment the message of the commit
+	 * @return the row of the commit
+	 */
+	public synchronized int add(AnyObjectId objectId, long time, String author, String comment) {
+		int row = find(objectId);
+		if (row == UNKNOWN)
+			row = addRow(objectId);
+		else if (this.authors[row] != UNKNOWN)
+			return row;
+		
+		this.times[row] = (int) time;
+		byte[] bytes = comment.getBytes(StandardCharsets.UTF_8);
+		byte[] comments = this.comments;
+		if (this.commentSize + bytes.length > comments.length)
+			comments = Arrays.copyOf(comments, Math.max(this.commentSize + bytes.length, comments.length * 2));
+		System.arraycopy(bytes, 0, comments, this.commentSize, bytes.length);
+		this.comments = comments;
+		this.commentStarts[row] = this.commentSize;
+		this.commentSize += bytes.length;
+		this.commentEnds[row] = this.commentSize;
+		this.authors[row] = this.authorDictionary.intern(author);
+		return row;
+	}
+	
+	/**
+	 * Adds the affected files of a commit whose details are not known yet, such as those saved by a 
+	 * previous run. The details are filled in once the commit is added.
+	 * @param objectId the commit id
+	 * @param files the files affected by the commit
+	 * @return the row of the commit
+	 */
+	public synchronized int addFiles(AnyObjectId objectId, ArrayList<AffectedFile> files) {
+		int row = find(objectId);
+		if (row == UNKNOWN)
+			row = addRow(objectId);
+		setFiles(row, files);
+		return row;
+	}
+	
+	/**
+	 * @param row the row of a commit
+	 * @return true if the commit has been added with its details, false for a row only holding the 
+	 * affected files given by {@link #addFiles}
+	 */
+	public boolean hasDetails(int row) {
+		return this.authors[row] != UNKNOWN;
+	}
+	
+	@Override
+	public int size() {
+		return this.size;
+	}
+	
+	@Override
+	public int find(AnyObjectId objectId) {
+		byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+		objectId.copyRawTo(raw, 0);
+		int[] slots = this.slots;
+		byte[] ids = this.ids;
+		int mask = slots.length - 1;
+		for (int slot = hash(raw, 0) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			int row = slots[slot] - 1;
+			int offset = row * Constants.OBJECT_ID_LENGTH;
+			if (offset < ids.length && Arrays.equals(ids, offset, offset + Constants.OBJECT_ID_LENGTH, raw, 0, Constants.OBJECT_ID_LENGTH))
+				return row;
+		}
+		return UNKNOWN;
+	}
+	
+	/**
+	 * @param hash the commit hash
+	 * @return the row of the commit, -1 if it is not in the table
+	 */
+	public int find(String hash) {
+		return find(ObjectId.fromString(hash));
+	}
+	
+	@Override
+	public Commit getCommit(int row) {
+		return new Commit(this, row);
+	}
+	
+	@Override
+	public ObjectId getObjectId(int row) {
+		return ObjectId.fromRaw(this.ids, row * Constants.OBJECT_ID_LENGTH);
+	}
+	
+	@Override
+	public String getHash(int row) {
+		return getObjectId(row).getName();
+	}
+	
+	@Override
+	public long getTime(int row) {
+		return this.times[row];
+	}
+	
+	@Override
+	public String getAuthor(int row) {
+		int author = this.authors[row];
+		return author == UNKNOWN ? "" : this.authorDictionary.get(author);
+	}
+	
+	@Override
+	public String getComment(int row) {
+		int start = this.commentStarts[row];
+		return new String(this.comments, start, this.commentEnds[row] - start, StandardCharsets.UTF_8);
+	}
+	
+	@Override
+	public int getFileCount(int row) {
+		return this.files.counts[row];
+	}
+	
+	@Override
+	public ArrayList<AffectedFile> getFiles(int row) {
+		FileColumns files = this.files;
+		int count = files.counts[row];
+		if (count == UNKNOWN)
+			return null;
+		int start = files.starts[row];
+		ArrayList<AffectedFile> affectedFiles = new ArrayList<>(count);
+		for (int i = start; i < start + count; i++)
+			affectedFiles.add(new AffectedFile(STATUSES[files.statuses[i]], this.pathDictionary.get(files.paths[i])));
+		return affectedFiles;
+	}
+	
+	/**
+	 * Sets the affected files of a commit. Files set again replace the previous ones, whose space is 
+	 * reclaimed when the file columns next grow.
+	 */
+	@Override
+	public synchronized void setFiles(int row, ArrayList<AffectedFile> affectedFiles) {
+		FileColumns files = this.files;
+		int previous = Math.max(files.counts[row], 0);
+		if (this.fileSize + affectedFiles.size() > files.paths.length)
+			files = compact(row, affectedFiles.size());
+		int start = this.fileSize;
+		for (AffectedFile file: affectedFiles) {
+			files.paths[this.fileSize] = this.pathDictionary.intern(file.getPath());
+			files.statuses[this.fileSize] = (byte) file.getStatus().charAt(0);
+			this.fileSize++;
+		}
+		files.starts[row] = start;
+		files.counts[row] = affectedFiles.size();
+		this.liveFiles += affectedFiles.size() - previous;
+		this.files = files;
+	}
+	
+	/**
+	 * @return the number of distinct paths affected by the commits in the table
+	 */
+	public int getPathCount() {
+		return this.pathDictionary.size();
+	}
+	
+	/**
+	 * Prints the size of the table.
+	 */
+	public synchronized void printStatistics() {
+		System.out.println("Commit Table: " + this.size + " commits, " + this.authorDictionary.size() + " authors, " 
+				+ this.liveFiles + " affected files, " + this.pathDictionary.size() + " paths");
+	}
+	
+	/**
+	 * A helper function to hash a raw commit id, the bytes of a SHA-1 are already uniformly distributed.
+	 */
+	private static int hash(byte[] raw, int offset) {
+		return NB.decodeInt32(raw, offset);
+	}
+	
+	/**
+	 * A helper function adding a row with only its id, without details or files, growing the columns 
+	 * and hash table as needed.
+	 */
+	private int addRow(AnyObjectId objectId) {
+		if (this.size == this.times.length)
+			grow();
+		int row = this.size;
+		objectId.copyRawTo(this.ids, row * Constants.OBJECT_ID_LENGTH);
+		this.authors[row] = UNKNOWN;
+		this.files.counts[row] = UNKNOWN;
+		if ((row + 1) * 2 > this.slots.length) {
+			rehash(row + 1);
+		} else {
+			insertSlot(this.slots, row);
+		}
+		this.size = row + 1;
+		return row;
+	}
+	
+	/**
+	 * A helper function placing a row in the first free slot of a hash table.
+	 */
+	private void insertSlot(int[] slots, int row) {
+		int mask = slots.length - 1;
+		int slot = hash(this.ids, row * Constants.OBJECT_ID_LENGTH) & mask;
+		while (slots[slot] != 0)
+			slot = (slot + 1) & mask;
+		slots[slot] = row + 1;
+	}
+	
+	/**
+	 * A helper function doubling the hash table, it is kept at most half full. The new table is 
+	 * filled before it is published.
+	 */
+	private void rehash(int rows) {
+		int[] slots = new int[this.slots.length * 2];
+		for (int row = 0; row < rows; row++)
+			insertSlot(slots, row);
+		this.slots = slots;
+	}
+	
+	/**
+	 * A helper function doubling the per commit columns.
+	 */
+	private void grow() {
+		int capacity = this.times.length * 2;
+		this.ids = Arrays.copyOf(this.ids, capacity * Constants.OBJECT_ID_LENGTH);
+		this.times = Arrays.copyOf(this.times, capacity);
+		this.authors = Arrays.copyOf(this.authors, capacity);
+		this.commentStarts = Arrays.copyOf(this.commentStarts, capacity);
+		this.commentEnds = Arrays.copyOf(this.commentEnds, capacity);
+		FileColumns files = this.files;
+		this.files = new FileColumns(Arrays.copyOf(files.starts, capacity), Arrays.copyOf(files.counts, capacity), 
+				files.paths, files.statuses);
+	}
+	
+	/**
+	 * A helper function copying the files of every row but the one being set into new file columns, 
+	 * dropping files that were replaced, with room for the files being added.
+	 * @param replaced the row whose files are being set
+	 * @param adding the number of files being added
+	 * @return the new file columns, published once the files are set
+	 */
+	private FileColumns compact(int replaced, int adding) {
+		FileColumns files = this.files;
+		int kept = this.liveFiles - Math.max(files.counts[replaced], 0);
+		int capacity = Math.max(files.paths.length, (kept + adding) * 2);
+		FileColumns compacted = new FileColumns(new int[files.starts.length], Arrays.copyOf(files.counts, files.counts.length), 
+				new int[capacity], new byte[capacity]);
+		int fileSize = 0;
+		for (int row = 0; row < this.size; row++) {
+			int count = files.counts[row];
+			if (count == UNKNOWN || row == replaced)
+				continue;
+			System.arraycopy(files.paths, files.starts[row], compacted.paths, fileSize, count);
+			System.arraycopy(files.statuses, files.starts[row], compacted.statuses, fileSize, count);
+			compacted.starts[row] = fileSize;
+			fileSize += count;
+		}
+		this.fileSize = fileSize;
+		return compacted;
+	}
+	
+	/**
+	 * The affected file columns, replaced together as compacting moves the files of every row.
+	 */
+	private static class FileColumns {
+		private final int[] starts;
+		private final int[] counts;
+		private final int[] paths;
+		private final byte[] statuses;
+		
+		private FileColumns(int[] starts, int[] counts, int[] paths, byte[] statuses) {
+			this.starts = starts;
+			this.counts = counts;
+			this.paths = paths;
+			this.statuses = statuses;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.entities;
+
+import java.util.Arrays;
+/**
+ * Decides whether two strings share a common substring of at least a given length. Every window of 
+ * that length in the shorter string is hashed with a rolling hash, then the windows of the longer 
+ * string are looked up as the hash rolls over it. A hash hit is only a match once the characters are 
+ * compared, so the answer is exact, in time linear in the length of both strings.
+ * @author Thomas Watkins
+ */
+public class CommonSubstring {
+	private static final long BASE = 0x9E3779B97F4A7C15L;
+	
+	private CommonSubstring() {
+	}
+	
+	/**
+	 * @param s1 the first string
+	 * @param s2 the second string
+	 * @param length the length of the common substring, at least 1
+	 * @return true if the longest common substring of both strings is at least length characters long
+	 */
+	public static boolean contains(String s1, String s2, int length) {
+		String shorter = s1.length() <= s2.length() ? s1 : s2;
+		String longer = shorter == s1 ? s2 : s1;
+		if (shorter.length() < length)
+			return false;
+		
+		long power = 1;
+		for (int i = 1; i < length; i++)
+			power *= BASE;
+		
+		//Open addressing table of window start positions, at most half full
+		int windows = shorter.length() - length + 1;
+		int capacity = Integer.highestOneBit(Math.max(windows, 1) * 2) * 2;
+		int mask = capacity - 1;
+		long[] hashes = new long[capacity];
+		int[] starts = new int[capacity];
+		Arrays.fill(starts, -1);
+		
+		long hash = hash(shorter, 0, length);
+		for (int start = 0; ; start++) {
+			int slot = slot(hash, mask);
+			boolean duplicate = false;
+			while (starts[slot] >= 0) {
+				//Identical windows are stored once
+				if (hashes[slot] == hash && shorter.regionMatches(starts[slot], shorter, start, length)) {
+					duplicate = true;
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			if (!duplicate) {
+				hashes[slot] = hash;
+				starts[slot] = start;
+			}
+			if (start + length == shorter.length())
+				break;
+			hash = (hash - shorter.charAt(start) * power) * BASE + shorter.charAt(start + length);
+		}
+		
+		hash = hash(longer, 0, length);
+		for (int start = 0; ; start++) {
+			for (int slot = slot(hash, mask); starts[slot] >= 0; slot = (slot + 1) & mask) {
+				if (hashes[slot] == hash && shorter.regionMatches(starts[slot], longer, start, length))
+					return true;
+			}
+			if (start + length == longer.length())
+				return false;
+			hash = (hash - longer.charAt(start) * power) * BASE + longer.charAt(start + length);
+		}
+	}
+	
+	/**
+	 * @param string the string
+	 * @param start the start of the window
+	 * @param length the length of the window
+	 * @return the hash of the window
+	 */
+	private static long hash(String string, int start, int length) {
+		long hash = 0;
+		for (int i = start; i < start + length; i++)
+			hash = hash * BASE + string.charAt(i);
+		return hash;
+	}
+	
+	/**
+	 * @param hash the hash of a window
+	 * @param mask the table size minus one
+	 * @return the first slot to probe for the window
+	 */
+	private static int slot(long hash, int mask) {
+		return (int) ((hash ^ (hash >>> 29)) * 0xBF58476D1CE4E5B9L >>> 40) & mask;
+	}
+}
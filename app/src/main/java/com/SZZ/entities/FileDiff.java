@@ -0,0 +1,59 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.entities;
+/**
+ * Represents the diff of one file of a commit against the previous commit.
+ * @author Thomas Watkins
+ */
+public class FileDiff {
+	private String path;
+	private LineRanges linesRemoved;
+	private long size;
+	
+	/**
+	 * Creates a file diff.
+	 * @param path the path of the file
+	 * @param linesRemoved the line numbers removed from the previous version of the file
+	 * @param size the size in bytes of the previous version of the file
+	 */
+	public FileDiff(String path, LineRanges linesRemoved, long size) {
+		this.path = path;
+		this.linesRemoved = linesRemoved;
+		this.size = size;
+	}
+	
+	/**
+	 * @return the path of the file
+	 */
+	public String getPath() {
+		return this.path;
+	}
+	
+	/**
+	 * @return the line numbers removed from the previous version of the file
+	 */
+	public LineRanges getLinesRemoved() {
+		return this.linesRemoved;
+	}
+	
+	/**
+	 * @return the size in bytes of the previous version of the file, which is blamed
+	 */
+	public long getSize() {
+		return this.size;
+	}
+	
+	@Override
+	public String toString() {
+		return this.path + " " + this.linesRemoved;
+	}
+}
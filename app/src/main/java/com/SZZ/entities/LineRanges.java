@@ -0,0 +1,147 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.entities;
+
+import java.util.Arrays;
+/**
+ * Line numbers held as ranges in one int array rather than a boxed integer per line. Consecutive 
+ * lines added in order are merged into one range, so a block of removed lines costs two ints. 
+ * A parser can reuse the same instance for every file by clearing it and copying what it keeps.
+ * @author Thomas Watkins
+ */
+public class LineRanges {
+	//Pairs of the first line and the line after the last line of each range
+	private int[] ranges;
+	private int size;
+	
+	/**
+	 * Creates an empty set of line ranges.
+	 */
+	public LineRanges() {
+		this.ranges = new int[16];
+	}
+	
+	private LineRanges(int[] ranges, int size) {
+		this.ranges = ranges;
+		this.size = size;
+	}
+	
+	/**
+	 * Adds a line after every line added so far.
+	 * @param line the line number
+	 */
+	public void add(int line) {
+		addRange(line, line + 1);
+	}
+	
+	/**
+	 * Adds a range of lines after every line added so far.
+	 * @param start the first line
+	 * @param end the line after the last line
+	 */
+	public void addRange(int start, int end) {
+		if (start >= end)
+			return;
+		if (this.size > 0 && this.ranges[this.size * 2 - 1] == start) {
+			this.ranges[this.size * 2 - 1] = end;
+			return;
+		}
+		if (this.size * 2 == this.ranges.length)
+			this.ranges = Arrays.copyOf(this.ranges, this.ranges.length * 2);
+		this.ranges[this.size * 2] = start;
+		this.ranges[this.size * 2 + 1] = end;
+		this.size++;
+	}
+	
+	/**
+	 * Removes every line, keeping the buffer.
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+	
+	/**
+	 * @return the number of ranges
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * @return true if there are no lines
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	/**
+	 * @param range the index of a range
+	 * @return the first line of the range
+	 */
+	public int getStart(int range) {
+		return this.ranges[range * 2];
+	}
+	
+	/**
+	 * @param range the index of a range
+	 * @return the line after the last line of the range
+	 */
+	public int getEnd(int range) {
+		return this.ranges[range * 2 + 1];
+	}
+	
+	/**
+	 * @return the number of lines in every range
+	 */
+	public int getLineCount() {
+		int count = 0;
+		for (int range = 0; range < this.size; range++)
+			count += getEnd(range) - getStart(range);
+		return count;
+	}
+	
+	/**
+	 * @return a copy holding only these ranges, for keeping the lines of a reused instance
+	 */
+	public LineRanges copy() {
+		return new LineRanges(Arrays.copyOf(this.ranges, this.size * 2), this.size);
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof LineRanges))
+			return false;
+		LineRanges lineRanges = (LineRanges) other;
+		return Arrays.equals(this.ranges, 0, this.size * 2, lineRanges.ranges, 0, lineRanges.size * 2);
+	}
+	
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for (int i = 0; i < this.size * 2; i++)
+			hash = hash * 31 + this.ranges[i];
+		return hash;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (int range = 0; range < this.size; range++) {
+			if (range > 0)
+				builder.append(", ");
+			builder.append(getStart(range));
+			if (getEnd(range) - getStart(range) > 1)
+				builder.append('-').append(getEnd(range) - 1);
+		}
+		return builder.append(']').toString();
+	}
+}
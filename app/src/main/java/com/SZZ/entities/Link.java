@@ -12,8 +12,8 @@
 package com.SZZ.entities;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -24,11 +24,19 @@ import com.SZZ.gitMiner.GitUtil;
  * @author Thomas Watkins
  */
 public class Link {
+	/** Maximum time in seconds between a bug introducing commit and its fix, roughly two years */
+	public static final long MAX_SUSPECT_AGE = 63000000;
+	private static final Pattern COMMENT = Pattern.compile("^\\/\\/.*|^\\*.*|^\\/\\*.*|^\\s*\\/\\/.*|^\\s*\\*.*|^\\s*\\/\\*.*");
+	
 	private Bug bug;
 	private Commit commit;
 	private int syntacticConfidence;
 	private int semanticConfidence;	
 	private HashMap<String, Suspect> bugIntroducingCommits;
+	private long maxSuspectAge;
+	private ArrayList<FileDiff> filesToBlame;
+	private ConcurrentHashMap<String, ArrayList<BlameLine>> blamedLines;
+	private volatile boolean failed;
 	
 	/**
 	 * Creates a link between a Bug and a Commit.
@@ -41,6 +49,15 @@ public class Link {
 		this.syntacticConfidence = calculateSyntacticConfidence();
 		this.semanticConfidence = calculateSemanticConfidence();
 		this.bugIntroducingCommits = new HashMap<>();
+		this.maxSuspectAge = MAX_SUSPECT_AGE;
+	}
+	
+	/**
+	 * Sets the maximum time between a bug introducing commit and this fix.
+	 * @param maxSuspectAge the maximum time in seconds
+	 */
+	public void setMaxSuspectAge(long maxSuspectAge) {
+		this.maxSuspectAge = maxSuspectAge;
 	}
 	
 	/** 
@@ -59,42 +76,117 @@ public class Link {
 	 * @param gitUtil the github utility 
 	 */
 	public void calculateBugIntroducingSuspects(GitUtil gitUtil) {
-		for(AffectedFile file: this.commit.getFiles()) {				
-			if(file.getPath().contains(".java")) {
-				//Get diff between this commit and previous commit
-				String diff = gitUtil.getDiff(this.commit.getHash(), file.getPath());
-				if(diff.equals(""))	break;
-				
-				String[] diffArr = diff.split("\n");
-				ArrayList<String> diffLines = new ArrayList<>();
-				Collections.addAll(diffLines, diffArr);
-				
-				//Get lines removed in this commit from diff
-				ArrayList<Integer> linesRemoved = gitUtil.getLinesRemoved(diffLines);
-				ArrayList<BlameLine> blamedLines = new ArrayList<>();			
-								
-				//Get blame lines for this commit
-				if(linesRemoved.size() > 0)					
-					blamedLines = gitUtil.blame(this.commit.getHash(), file.getPath(), linesRemoved);
-				else
-					break;
+		for(FileDiff diff: calculateFilesToBlame(gitUtil))
+			blame(gitUtil, diff);
+		addSuspects();
+	}
+	
+	/**
+	 * First step of calculating the suspects. Gets the lines removed from every java file in one diff 
+	 * between this commit and previous commit, and returns the files that are to be blamed. If the 
+	 * commit cannot be diffed there are no files to blame and the link has failed.
+	 * @param gitUtil the github utility
+	 * @return the diffs of the files to be blamed
+	 */
+	public ArrayList<FileDiff> calculateFilesToBlame(GitUtil gitUtil) {
+		this.filesToBlame = new ArrayList<>();
+		this.blamedLines = new ConcurrentHashMap<>();
+		ArrayList<String> javaFiles = new ArrayList<>();
+		for(AffectedFile file: this.commit.getFiles()) {
+			if(file.getPath().contains(".java"))
+				javaFiles.add(file.getPath());
+		}
+		HashMap<String, FileDiff> diffs;
+		try {
+			diffs = gitUtil.getDiffs(this.commit.getHash(), javaFiles);
+		} catch (Exception e) {
+			e.printStackTrace();
+			this.failed = true;
+			return this.filesToBlame;
+		}
+		
+		for(String path: javaFiles) {
+			//Stop at the first file without lines removed in this commit
+			FileDiff diff = diffs.get(path);
+			if(diff == null || diff.getLinesRemoved().isEmpty()) break;
+			this.filesToBlame.add(diff);
+		}
+		return this.filesToBlame;
+	}
+	
+	/**
+	 * @return the diffs of the files to be blamed, calculated by calculateFilesToBlame, or null if 
+	 * calculateFilesToBlame did not complete
+	 */
+	public ArrayList<FileDiff> getFilesToBlame() {
+		return this.filesToBlame;
+	}
+	
+	/**
+	 * Second step of calculating the suspects. Blames one of the files to be blamed, may be called 
+	 * concurrently for different files. If the file cannot be blamed the link has failed.
+	 * @param gitUtil the github utility
+	 * @param diff the diff of the file to be blamed
+	 */
+	public void blame(GitUtil gitUtil, FileDiff diff) {
+		try {
+			this.blamedLines.put(diff.getPath(), gitUtil.blame(this.commit.getHash(), diff.getPath(), diff.getLinesRemoved()));
+		} catch (Exception e) {
+			e.printStackTrace();
+			this.failed = true;
+		}
+	}
+	
+	/**
+	 * @return true if the diff or a blame of this link failed, so its suspects may be incomplete
+	 */
+	public boolean hasFailed() {
+		return this.failed;
+	}
+	
+	/**
+	 * Marks the link as failed, for a step that could not be run at all.
+	 */
+	public void setFailed() {
+		this.failed = true;
+	}
+	
+	/**
+	 * Last step of calculating the suspects. Filters the blamed lines of each file in commit order then 
+	 * potentially adds a suspect.
+	 */
+	public void addSuspects() {
+		if(this.filesToBlame == null) return;
+		for(FileDiff diff: this.filesToBlame) {
+			ArrayList<BlameLine> lines = this.blamedLines.get(diff.getPath());
+			if(lines == null) continue;
+			
+			for(BlameLine line: lines) {					
+				if(this.bugIntroducingCommits.get(line.getHash()) != null) break;			
+				if(line.getDate() > this.bug.getCreatedDate()) break;
+				if(this.getCommit().getTimeStamp() - line.getDate() > this.maxSuspectAge) break;
+				Matcher matcher = COMMENT.matcher(line.getContent());
+			    if(matcher.find()) break;
+			    if(line.getContent().trim().isEmpty()) break;				
 				
-				//Filter each line then potentially add a suspect
-				for(BlameLine line: blamedLines) {					
-					if(this.bugIntroducingCommits.get(line.getHash()) != null) break;			
-					if(line.getDate() > this.bug.getCreatedDate()) break;
-					if(this.getCommit().getTimeStamp() - line.getDate() > 63000000) break;
-					String regex = "^\\/\\/.*|^\\*.*|^\\/\\*.*|^\\s*\\/\\/.*|^\\s*\\*.*|^\\s*\\/\\*.*";					
-					Pattern pattern = Pattern.compile(regex);
-					Matcher matcher = pattern.matcher(line.getContent());
-				    if(matcher.find()) break;
-				    if(line.getContent().trim().isEmpty()) break;				
-					
-					//Add a new suspect and add to bug fixing commit list of BIC
-					this.bugIntroducingCommits.put(line.getHash(), new Suspect(line.getHash(),line.getAuthor(),line.getDate(),file.getPath()));
-				}				
+				//Add a new suspect and add to bug fixing commit list of BIC
+				this.bugIntroducingCommits.put(line.getHash(), new Suspect(line.getHash(),line.getAuthor(),line.getDate(),diff.getPath()));
 			}
 		}
+		this.filesToBlame = null;
+		this.blamedLines = null;
+	}
+	
+	/**
+	 * @return the number of java files affected by this commit, an estimate of the cost of calculating its suspects
+	 */
+	public int getJavaFileCount() {
+		int count = 0;
+		for(AffectedFile file: this.commit.getFiles()) {
+			if(file.getPath().contains(".java"))
+				count++;
+		}
+		return count;
 	}
 	
 	/**
@@ -156,7 +248,7 @@ public class Link {
 	
 	/**
 	 * Calcualte if description of bug report is contained in the log message of the commit. 
-	 * Utilises longest common substring algorithm. 
+	 * Utilises longest common substring, found by hashing every 16 character window of the shorter string. 
 	 * @param s1 the bug description
 	 * @param s2 the commit message
 	 * @param l1 the bug description length
@@ -164,21 +256,7 @@ public class Link {
 	 * @return true if longest common substring > 15, false otherwise
 	 */
 	private boolean bugDescContainedInCommit(String s1, String s2, int l1, int l2) {		
-		int dp[][] = new int[2][l2 + 1];
-		int res = 0;
-		
-		//Calculate length of longest common sub string
-		for (int i = 1; i <= l1; i++) {
-			for (int j = 1; j <= l2; j++) {
-				if (s1.charAt(i - 1) == s2.charAt(j - 1)) {
-					dp[i % 2][j] = dp[(i - 1) % 2][j - 1] + 1;
-					if (dp[i % 2][j] > res)
-						res = dp[i % 2][j];
-				} else
-					dp[i % 2][j] = 0;
-			}
-		}
-		return res > 15;
+		return CommonSubstring.contains(s1.substring(0, l1), s2.substring(0, l2), 16);
 	}	
 	
 	/**
@@ -186,9 +264,10 @@ public class Link {
 	 * @return true if atleast one file affected by a commit is attached to a bug, false otherwise
 	 */
 	private boolean checkFilesAttached() {
+		ArrayList<AffectedFile> files = this.commit.getFiles();
 		for(int i = 0; i < this.bug.getAttachmentsList().size(); i++) {
-			for(int j = 0; j < this.commit.getFiles().size(); j++) 
-				if(this.bug.getAttachmentsList().get(i).equals(this.commit.getFiles().get(j).getPath())) 
+			for(int j = 0; j < files.size(); j++) 
+				if(this.bug.getAttachmentsList().get(i).equals(files.get(j).getPath())) 
 					return true;			
 		}
 		return false;
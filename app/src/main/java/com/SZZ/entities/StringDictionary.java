@@ -0,0 +1,70 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.entities;
+
+import java.util.Arrays;
+import java.util.HashMap;
+/**
+ * Gives every distinct string, such as a path or author, a dense int id so each is stored once.
+ * 
+ * Strings are interned by one thread at a time while any thread may look them up. Lookups take no 
+ * lock, a grown array of strings is only published once it holds every string added before it.
+ * @author Thomas Watkins
+ */
+public class StringDictionary {
+	private volatile String[] strings;
+	private volatile int size;
+	private HashMap<String, Integer> ids;
+	
+	/**
+	 * Creates an empty dictionary.
+	 */
+	public StringDictionary() {
+		this.strings = new String[64];
+		this.ids = new HashMap<>();
+	}
+	
+	/**
+	 * Interns a string, callers must not intern from several threads at once.
+	 * @param string the string
+	 * @return the id of the string, added to the dictionary if it is new
+	 */
+	public int intern(String string) {
+		Integer id = this.ids.get(string);
+		if (id == null) {
+			id = this.size;
+			String[] strings = this.strings;
+			if (id == strings.length)
+				strings = Arrays.copyOf(strings, id * 2);
+			strings[id] = string;
+			this.strings = strings;
+			this.ids.put(string, id);
+			this.size = id + 1;
+		}
+		return id;
+	}
+	
+	/**
+	 * @param id the id of a string
+	 * @return the string
+	 */
+	public String get(int id) {
+		return this.strings[id];
+	}
+	
+	/**
+	 * @return the number of distinct strings
+	 */
+	public int size() {
+		return this.size;
+	}
+}
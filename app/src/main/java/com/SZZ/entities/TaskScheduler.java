@@ -0,0 +1,140 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+/**
+ * A work stealing scheduler shared by the affected file and bug introducing commit phases. Work is
+ * submitted as many small tasks so an expensive task only occupies one thread while the others keep
+ * taking work, rather than stalling a fixed slice of the list.
+ * @author Thomas Watkins
+ */
+public class TaskScheduler {
+	private ForkJoinPool pool;
+	
+	/**
+	 * Creates a task scheduler.
+	 * @param parallelism the number of threads running tasks
+	 */
+	public TaskScheduler(int parallelism) {
+		this.pool = new ForkJoinPool(parallelism);
+	}
+	
+	/**
+	 * @return the number of threads running tasks
+	 */
+	public int getParallelism() {
+		return this.pool.getParallelism();
+	}
+	
+	/**
+	 * Runs an action on every item as a separate task and waits for all of them to finish. If a cost
+	 * is given the most expensive items are started first, so the longest tasks do not start last and 
+	 * hold up the phase. A failing task is reported and does not stop the others.
+	 * @param items the items to process
+	 * @param cost the estimated cost of an item, null to start items in list order
+	 * @param action the action run on each item
+	 */
+	public <T> void forEach(List<T> items, ToLongFunction<T> cost, Consumer<T> action) {
+		List<T> ordered = items;
+		if(cost != null) {
+			ordered = new ArrayList<>(items);
+			ordered.sort(Comparator.comparingLong(cost).reversed());
+		}
+		
+		//Tasks submitted from outside the pool are taken in submission order
+		ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>(ordered.size());
+		for(T item: ordered) {
+			tasks.add(this.pool.submit(() -> {
+				try {
+					action.accept(item);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}));
+		}
+		for(ForkJoinTask<?> task: tasks)
+			task.join();
+	}
+	
+	/**
+	 * Runs an action on every item as a separate task without waiting for them, then runs a completion 
+	 * once the last of them has finished, failed or not. Called from a task of this scheduler the items 
+	 * are forked to its thread, so a task never blocks a thread of the pool waiting on other tasks. The 
+	 * most expensive items are still started first either way.
+	 * @param items the items to process
+	 * @param cost the estimated cost of an item, null to start items in list order
+	 * @param action the action run on each item
+	 * @param completion run once every item has been processed, straight away if there are none
+	 */
+	public <T> void forEach(List<T> items, ToLongFunction<T> cost, Consumer<T> action, Runnable completion) {
+		if(items.isEmpty()) {
+			completion.run();
+			return;
+		}
+		List<T> ordered = items;
+		boolean worker = ForkJoinTask.getPool() == this.pool;
+		if(cost != null || worker) {
+			ordered = new ArrayList<>(items);
+			if(cost != null)
+				ordered.sort(Comparator.comparingLong(cost).reversed());
+			//A thread of the pool takes the tasks it queued itself last first, so they are queued in reverse
+			if(worker)
+				Collections.reverse(ordered);
+		}
+		
+		AtomicInteger remaining = new AtomicInteger(ordered.size());
+		for(T item: ordered) {
+			this.pool.execute(() -> {
+				try {
+					action.accept(item);
+				} catch (Exception e) {
+					e.printStackTrace();
+				} finally {
+					if(remaining.decrementAndGet() == 0)
+						completion.run();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Submits a single task without waiting for it, used by stages that feed the scheduler as work 
+	 * arrives. A failing task is reported.
+	 * @param action the task
+	 * @return the submitted task
+	 */
+	public ForkJoinTask<?> submit(Runnable action) {
+		return this.pool.submit(() -> {
+			try {
+				action.run();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		});
+	}
+	
+	/**
+	 * Stops the threads of this scheduler once their tasks are finished.
+	 */
+	public void close() {
+		this.pool.shutdown();
+	}
+}
@@ -0,0 +1,28 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.entities;
+
+import java.util.ArrayList;
+/**
+ * A store of commits whose affected files are assigned once they have been acquired, such as the 
+ * table commits are added to while the logs are walked.
+ * @author Thomas Watkins
+ */
+public interface WritableCommitStore extends CommitStore {
+	
+	/**
+	 * Assigns the files affected by a commit.
+	 * @param row the row of a commit
+	 * @param files the affected files
+	 */
+	void setFiles(int row, ArrayList<AffectedFile> files);
+}
@@ -0,0 +1,108 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+/**
+ * A bounded cache of blame results shared by all BIC threads, keyed by the commit that was blamed 
+ * (the parent of a bug fixing commit) and the file path. Several fix commits of one issue often touch 
+ * the same file at the same parent. Only a {@link BlamedFile} projection of each result is kept, weighed 
+ * by its estimated bytes, and the least recently used are evicted. A thread requesting a blame that is 
+ * already being computed waits for that result.
+ * @author Thomas Watkins
+ */
+public class BlameCache {
+	private Cache<Key, BlamedFile> cache;
+	private long maximumBytes;
+	
+	/**
+	 * Creates a blame cache.
+	 * @param maximumBytes the maximum number of bytes of blamed files held by the cache
+	 */
+	public BlameCache(long maximumBytes) {
+		this.maximumBytes = maximumBytes;
+		this.cache = CacheBuilder.newBuilder()
+				.maximumWeight(maximumBytes)
+				.weigher((Key key, BlamedFile file) -> (int) Math.min(Integer.MAX_VALUE, file.getWeight()))
+				.recordStats()
+				.build();
+	}
+	
+	/**
+	 * Returns the blame of a file at a commit, computing it with the loader if it is not cached.
+	 * @param commit the commit blamed
+	 * @param path the file blamed
+	 * @param loader computes the blamed file if it is not cached
+	 * @return the blamed file
+	 * @throws ExecutionException if the loader failed
+	 */
+	BlamedFile get(AnyObjectId commit, String path, Callable<BlamedFile> loader) throws ExecutionException {
+		return this.cache.get(new Key(commit.copy(), path), loader);
+	}
+	
+	/**
+	 * @return the number of blames served from the cache
+	 */
+	public long getHitCount() {
+		return this.cache.stats().hitCount();
+	}
+	
+	/**
+	 * @return the number of blames that had to be computed
+	 */
+	public long getMissCount() {
+		return this.cache.stats().missCount();
+	}
+	
+	/**
+	 * Prints the hit and miss counts of the cache for this run.
+	 */
+	public void printStatistics() {
+		CacheStats stats = this.cache.stats();
+		System.out.println(String.format("Blame Cache Hits: %d Misses: %d Hit Ratio: %.3f Evictions: %d Max MB: %d",
+				stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(), this.maximumBytes / (1024 * 1024)));
+	}
+	
+	/**
+	 * Cache key of a commit and a file path.
+	 */
+	private static final class Key {
+		private final ObjectId commit;
+		private final String path;
+		
+		private Key(ObjectId commit, String path) {
+			this.commit = commit;
+			this.path = path;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			return this.commit.equals((AnyObjectId) other.commit) && this.path.equals(other.path);
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * this.commit.hashCode() + this.path.hashCode();
+		}
+	}
+}
@@ -0,0 +1,150 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+/**
+ * The blame of a file reduced to what the bug introducing commits are found from: the contents of the 
+ * file and the hash, author and time of the commit each line came from. A blame result of JGit also 
+ * holds a parsed commit and identity per line and the contents of every file it passed through, so 
+ * only this projection is kept in the blame cache.
+ * @author Thomas Watkins
+ */
+final class BlamedFile {
+	//A file missing at the blamed commit
+	static final BlamedFile EMPTY = new BlamedFile(RawText.EMPTY_TEXT, new int[0], new String[0], new String[0], new int[0]);
+	
+	private final RawText contents;
+	//The index of the source commit of each line, -1 if the line has none
+	private final int[] sources;
+	private final String[] hashes;
+	private final String[] authors;
+	private final int[] times;
+	
+	/**
+	 * Creates a blamed file.
+	 */
+	private BlamedFile(RawText contents, int[] sources, String[] hashes, String[] authors, int[] times) {
+		this.contents = contents;
+		this.sources = sources;
+		this.hashes = hashes;
+		this.authors = authors;
+		this.times = times;
+	}
+	
+	/**
+	 * Reduces a blame result to a blamed file.
+	 * @param result the blame result of JGit, null if the file does not exist at the blamed commit
+	 * @return the blamed file
+	 */
+	static BlamedFile of(BlameResult result) {
+		if (result == null)
+			return EMPTY;
+		RawText contents = result.getResultContents();
+		int[] sources = new int[contents.size()];
+		HashMap<RevCommit, Integer> commits = new HashMap<>();
+		String[] hashes = new String[16];
+		String[] authors = new String[16];
+		int[] times = new int[16];
+		
+		for (int line = 0; line < sources.length; line++) {
+			RevCommit commit = result.getSourceCommit(line);
+			if (commit == null) {
+				sources[line] = -1;
+				continue;
+			}
+			Integer source = commits.get(commit);
+			if (source == null) {
+				source = commits.size();
+				if (source == hashes.length) {
+					hashes = Arrays.copyOf(hashes, source * 2);
+					authors = Arrays.copyOf(authors, source * 2);
+					times = Arrays.copyOf(times, source * 2);
+				}
+				PersonIdent author = result.getSourceAuthor(line);
+				hashes[source] = commit.getName();
+				authors[source] = author == null ? "" : author.getName();
+				times[source] = commit.getCommitTime();
+				commits.put(commit, source);
+			}
+			sources[line] = source;
+		}
+		int count = commits.size();
+		return new BlamedFile(contents, sources, Arrays.copyOf(hashes, count), 
+				Arrays.copyOf(authors, count), Arrays.copyOf(times, count));
+	}
+	
+	/**
+	 * @return the number of lines of the file
+	 */
+	int size() {
+		return this.sources.length;
+	}
+	
+	/**
+	 * @param line the line, from 0
+	 * @return true if the line came from a commit
+	 */
+	boolean hasSource(int line) {
+		return this.sources[line] >= 0;
+	}
+	
+	/**
+	 * @param line the line, from 0
+	 * @return the hash of the commit the line came from
+	 */
+	String getHash(int line) {
+		return this.hashes[this.sources[line]];
+	}
+	
+	/**
+	 * @param line the line, from 0
+	 * @return the author of the commit the line came from
+	 */
+	String getAuthor(int line) {
+		return this.authors[this.sources[line]];
+	}
+	
+	/**
+	 * @param line the line, from 0
+	 * @return the commit time in seconds of the commit the line came from
+	 */
+	int getTime(int line) {
+		return this.times[this.sources[line]];
+	}
+	
+	/**
+	 * @param line the line, from 0
+	 * @return the contents of the line
+	 */
+	String getLine(int line) {
+		return this.contents.getString(line);
+	}
+	
+	/**
+	 * Estimates the bytes of heap held by this file: its contents with their line offsets and source 
+	 * indexes, and every source commit's hash and author as strings.
+	 * @return the estimated bytes held
+	 */
+	long getWeight() {
+		long weight = 64 + this.contents.getRawContent().length + 8L * this.sources.length;
+		for (int source = 0; source < this.hashes.length; source++)
+			weight += 2 * 48 + 40 + this.authors[source].length() + 4;
+		return weight;
+	}
+}
@@ -0,0 +1,405 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.lib.ObjectId;
+
+import com.SZZ.entities.AffectedFile;
+import com.SZZ.entities.BlameLine;
+import com.SZZ.entities.FileDiff;
+import com.SZZ.entities.LineRanges;
+/**
+ * A git backend using the git command line. Every thread keeps three long lived git processes:
+ * "diff-tree --stdin" for affected files, "cat-file --batch-check" to resolve parents and sizes and 
+ * "cat-file --batch" to read file contents. Diffs are one "git diff" per commit and blames one 
+ * "git blame --incremental" per file, read as they stream, as git has no batch mode for either. 
+ * Diffs are read with a {@link DiffParser}.
+ * @author Thomas Watkins
+ */
+public class CliBackend implements GitBackend {
+	//Not an object id, so diff-tree --stdin echoes it back once it has answered the request before it
+	private static final String END = "--end--";
+	
+	private File directory;
+	private DiffAlgorithm.SupportedAlgorithm diffAlgorithm;
+	private CommitGraph commitGraph;
+	private ThreadLocal<Coprocesses> coprocesses;
+	private ConcurrentLinkedQueue<GitCoprocess> openCoprocesses;
+	private AtomicLong requests;
+	private AtomicLong processes;
+	
+	/**
+	 * Creates a git command line backend.
+	 * @param directory the repository directory
+	 * @param diffAlgorithm the algorithm used when diffing a commit against its parent
+	 * @param commitGraph the graph of the walked commits, used to find parents
+	 */
+	public CliBackend(File directory, DiffAlgorithm.SupportedAlgorithm diffAlgorithm, CommitGraph commitGraph) {
+		this.directory = directory;
+		this.diffAlgorithm = diffAlgorithm;
+		this.commitGraph = commitGraph;
+		this.openCoprocesses = new ConcurrentLinkedQueue<>();
+		this.requests = new AtomicLong();
+		this.processes = new AtomicLong();
+		this.coprocesses = ThreadLocal.withInitial(Coprocesses::new);
+	}
+	
+	@Override
+	public ArrayList<AffectedFile> getFiles(String hash) throws IOException {
+		ArrayList<AffectedFile> affectedFiles = new ArrayList<>();
+		Coprocesses coprocesses = this.coprocesses.get();
+		GitCoprocess diffTree = coprocesses.getDiffTree();
+		boolean found;
+		try {
+			diffTree.write(hash);
+			diffTree.write(END);
+			diffTree.flush();
+			this.requests.incrementAndGet();
+			
+			//Every commit is answered with its id first, nothing is printed for a commit that cannot be read
+			String line = diffTree.readLine();
+			found = line.equals(hash);
+			if (found)
+				line = diffTree.readLine();
+			while (!line.equals(END)) {
+				int tab = line.indexOf('\t');
+				if (found && tab > 0)
+					affectedFiles.add(new AffectedFile(line.substring(0, tab), unquote(line.substring(tab + 1))));
+				line = diffTree.readLine();
+			}
+		} catch (IOException | RuntimeException e) {
+			coprocesses.discard(diffTree);
+			throw new IOException("git diff-tree failed on " + hash, e);
+		}
+		if (!found)
+			throw new IOException("git diff-tree could not read " + hash);
+		return affectedFiles;
+	}
+	
+	@Override
+	public HashMap<String, FileDiff> getDiffs(String hash, Collection<String> paths) throws IOException {
+		HashMap<String, FileDiff> diffs = new HashMap<>();
+		String parent = getParent(hash);
+		if (paths.isEmpty() || parent == null)
+			return diffs;
+		
+		//The prefixes are forced, the parser strips them whatever diff.noprefix or diff.mnemonicPrefix say
+		ArrayList<String> command = new ArrayList<>();
+		for (String argument : new String[] { "git", "-c", "core.quotepath=false", "diff", "--no-color", "--no-ext-diff", 
+				"--no-renames", "--src-prefix=a/", "--dst-prefix=b/", "-U0", 
+				"--diff-algorithm=" + this.diffAlgorithm.name().toLowerCase(), parent, hash, "--" })
+			command.add(argument);
+		command.addAll(paths);
+		
+		HashMap<String, String> oldPaths = new HashMap<>();
+		HashMap<String, LineRanges> removed = new HashMap<>();
+		Process process = start(command);
+		try (InputStream in = process.getInputStream()) {
+			this.coprocesses.get().getDiffParser().parse(in, (oldPath, newPath, linesRemoved, binary) -> {
+				String path = newPath != null ? newPath : oldPath;
+				oldPaths.put(path, oldPath);
+				removed.put(path, linesRemoved.copy());
+			});
+		}
+		waitFor(process, command);
+		
+		for (String path : removed.keySet()) {
+			String oldPath = oldPaths.get(path);
+			long size = oldPath == null ? 0 : size(parent + ":" + oldPath);
+			diffs.put(path, new FileDiff(path, removed.get(path), size));
+		}
+		return diffs;
+	}
+	
+	@Override
+	public ArrayList<BlameLine> blame(String hash, String file, LineRanges linesRemoved) throws IOException {
+		ArrayList<BlameLine> blamedLines = new ArrayList<>();
+		String parent = getParent(hash);
+		if (parent == null || linesRemoved.isEmpty())
+			return blamedLines;
+		
+		ArrayList<String> command = new ArrayList<>();
+		for (String argument : new String[] { "git", "blame", "--incremental", "-w" })
+			command.add(argument);
+		//Blame only the removed lines
+		for (int range = 0; range < linesRemoved.size(); range++) {
+			command.add("-L");
+			command.add(linesRemoved.getStart(range) + "," + (linesRemoved.getEnd(range) - 1));
+		}
+		command.add(parent);
+		command.add("--");
+		command.add(file);
+		
+		//A file missing at the blamed commit has no suspects, git blame would fail on it
+		String[] content = readLines(parent + ":" + file);
+		if (content.length == 0)
+			return blamedLines;
+		HashMap<Integer, BlameLine> lines = new HashMap<>();
+		HashMap<String, String> authors = new HashMap<>();
+		HashMap<String, Long> times = new HashMap<>();
+		
+		Process process = start(command);
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				//Each group is "SHA ORIG FINAL COUNT", details of a commit the first time it appears, then "filename"
+				String[] group = line.split(" ");
+				String sha = group[0];
+				int finalLine = Integer.parseInt(group[2]);
+				int count = Integer.parseInt(group[3]);
+				while (!(line = reader.readLine()).startsWith("filename ")) {
+					if (line.startsWith("author "))
+						authors.put(sha, line.substring("author ".length()));
+					else if (line.startsWith("committer-time "))
+						times.put(sha, Long.parseLong(line.substring("committer-time ".length())));
+				}
+				for (int i = finalLine; i < finalLine + count; i++)
+					lines.put(i, new BlameLine(sha, times.get(sha), i, i <= content.length ? content[i - 1] : "", authors.get(sha)));
+			}
+		} catch (RuntimeException e) {
+			process.destroy();
+			throw new IOException("Could not read the blame of " + file + " at " + parent, e);
+		}
+		waitFor(process, command);
+		
+		//Same order as the lines removed
+		for (int range = 0; range < linesRemoved.size(); range++) {
+			for (int removed = linesRemoved.getStart(range); removed < linesRemoved.getEnd(range); removed++) {
+				if (lines.get(removed) != null)
+					blamedLines.add(lines.get(removed));
+			}
+		}
+		return blamedLines;
+	}
+	
+	/**
+	 * A helper function to find the first parent of a commit, from the commit graph if the commit has 
+	 * been walked and with cat-file otherwise.
+	 * @param hash the commit hash
+	 * @return the first parent, or null for a root commit
+	 * @throws IOException if cat-file failed
+	 */
+	private String getParent(String hash) throws IOException {
+		if (this.commitGraph.getId(hash) < 0)
+			return resolve(hash + "^");
+		ObjectId parent = this.commitGraph.getFirstParent(hash);
+		return parent == null ? null : parent.getName();
+	}
+	
+	/**
+	 * A helper function to resolve a revision with cat-file --batch-check.
+	 * @param revision the revision, such as "hash^"
+	 * @return the object id, or null if it does not exist
+	 * @throws IOException if cat-file failed
+	 */
+	private String resolve(String revision) throws IOException {
+		String[] answer = checkObject(revision);
+		return answer == null ? null : answer[0];
+	}
+	
+	/**
+	 * A helper function to find the size of an object with cat-file --batch-check.
+	 * @param object the object, such as "hash:path"
+	 * @return the size of the object, or 0 if it does not exist
+	 * @throws IOException if cat-file failed
+	 */
+	private long size(String object) throws IOException {
+		String[] answer = checkObject(object);
+		return answer == null ? 0 : Long.parseLong(answer[2]);
+	}
+	
+	/**
+	 * A helper function asking cat-file --batch-check about an object.
+	 * @param object the object name
+	 * @return the id, type and size of the object, or null if it does not exist
+	 * @throws IOException if cat-file failed, it is stopped and the next request starts a new one
+	 */
+	private String[] checkObject(String object) throws IOException {
+		Coprocesses coprocesses = this.coprocesses.get();
+		GitCoprocess batchCheck = coprocesses.getBatchCheck();
+		try {
+			batchCheck.write(object);
+			batchCheck.flush();
+			this.requests.incrementAndGet();
+			String[] answer = batchCheck.readLine().split(" ");
+			return answer.length == 3 ? answer : null;
+		} catch (IOException | RuntimeException e) {
+			coprocesses.discard(batchCheck);
+			throw new IOException("git cat-file --batch-check failed on " + object, e);
+		}
+	}
+	
+	/**
+	 * A helper function reading the lines of a file with cat-file --batch.
+	 * @param object the file, as "hash:path"
+	 * @return the lines of the file
+	 * @throws IOException if cat-file failed, it is stopped and the next request starts a new one
+	 */
+	private String[] readLines(String object) throws IOException {
+		Coprocesses coprocesses = this.coprocesses.get();
+		GitCoprocess batch = coprocesses.getBatch();
+		try {
+			batch.write(object);
+			batch.flush();
+			this.requests.incrementAndGet();
+			String[] answer = batch.readLine().split(" ");
+			if (answer.length != 3)
+				return new String[0];
+			
+			byte[] content = batch.readBytes(Integer.parseInt(answer[2]));
+			batch.readBytes(1);
+			return new String(content, StandardCharsets.UTF_8).split("\n", -1);
+		} catch (IOException | RuntimeException e) {
+			coprocesses.discard(batch);
+			throw new IOException("git cat-file --batch failed on " + object, e);
+		}
+	}
+	
+	/**
+	 * A helper function removing the C style quoting git applies to unusual paths.
+	 * @param path the path as printed by git
+	 * @return the path
+	 */
+	private String unquote(String path) {
+		if (!path.startsWith("\"") || !path.endsWith("\""))
+			return path;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for (int i = 1; i < path.length() - 1; i++) {
+			char c = path.charAt(i);
+			if (c != '\\') {
+				byte[] utf8 = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+				bytes.write(utf8, 0, utf8.length);
+				continue;
+			}
+			char e = path.charAt(++i);
+			switch (e) {
+			case 'n': bytes.write('\n'); break;
+			case 't': bytes.write('\t'); break;
+			case '"': bytes.write('"'); break;
+			case '\\': bytes.write('\\'); break;
+			default:
+				//Octal escaped byte
+				bytes.write(Integer.parseInt(path.substring(i, i + 3), 8));
+				i += 2;
+			}
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * A helper function starting a one off git process in the repository.
+	 */
+	private Process start(ArrayList<String> command) throws IOException {
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.directory(this.directory);
+		processBuilder.environment().put("GIT_LITERAL_PATHSPECS", "1");
+		processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+		this.processes.incrementAndGet();
+		return processBuilder.start();
+	}
+	
+	/**
+	 * A helper function waiting for a one off git process, failing if git did.
+	 * @param process the git process
+	 * @param command the command it runs
+	 * @throws IOException if git exited with an error or the wait was interrupted
+	 */
+	private void waitFor(Process process, ArrayList<String> command) throws IOException {
+		try {
+			int exitValue = process.waitFor();
+			if (exitValue != 0)
+				throw new IOException(String.join(" ", command.subList(0, Math.min(command.size(), 5))) + " ... exited with " + exitValue);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for git", e);
+		}
+	}
+	
+	@Override
+	public void printStatistics() {
+		System.out.println("Git Coprocesses: " + this.openCoprocesses.size() + " Requests: " + this.requests.get() 
+				+ " Diff and Blame Processes: " + this.processes.get());
+	}
+	
+	@Override
+	public void close() {
+		GitCoprocess coprocess;
+		while ((coprocess = this.openCoprocesses.poll()) != null)
+			coprocess.close();
+	}
+	
+	/**
+	 * The coprocesses of one thread, started when first needed. A coprocess that failed may be part 
+	 * way through an answer, so it is discarded and the next request starts a new one.
+	 */
+	private class Coprocesses {
+		private GitCoprocess diffTree;
+		private GitCoprocess batchCheck;
+		private GitCoprocess batch;
+		private DiffParser diffParser;
+		
+		private DiffParser getDiffParser() {
+			if (this.diffParser == null)
+				this.diffParser = new DiffParser();
+			return this.diffParser;
+		}
+		
+		private GitCoprocess getDiffTree() throws IOException {
+			if (this.diffTree == null)
+				this.diffTree = open("git", "-c", "core.quotepath=false", "diff-tree", "--stdin", "--always", "--name-status", "-r");
+			return this.diffTree;
+		}
+		
+		private GitCoprocess getBatchCheck() throws IOException {
+			if (this.batchCheck == null)
+				this.batchCheck = open("git", "cat-file", "--batch-check");
+			return this.batchCheck;
+		}
+		
+		private GitCoprocess getBatch() throws IOException {
+			if (this.batch == null)
+				this.batch = open("git", "cat-file", "--batch");
+			return this.batch;
+		}
+		
+		private GitCoprocess open(String... command) throws IOException {
+			GitCoprocess coprocess = new GitCoprocess(directory, command);
+			openCoprocesses.add(coprocess);
+			return coprocess;
+		}
+		
+		private void discard(GitCoprocess coprocess) {
+			openCoprocesses.remove(coprocess);
+			coprocess.destroy();
+			if (this.diffTree == coprocess)
+				this.diffTree = null;
+			if (this.batchCheck == coprocess)
+				this.batchCheck = null;
+			if (this.batch == coprocess)
+				this.batch = null;
+		}
+	}
+}
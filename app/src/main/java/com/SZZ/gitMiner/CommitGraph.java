@@ -0,0 +1,397 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.revwalk.RevCommit;
+/**
+ * A compact index of the commit graph, built as the git logs are walked. Every commit is given a 
+ * dense int id and its parents, commit time and generation number are kept in primitive arrays, so 
+ * parent, root and ancestry queries do not go back to git. A parent is given its id when its child 
+ * is walked, so the parents of a walked commit can be looked up straight away. Repositories with 
+ * several root commits (such as merged histories) are handled, every commit without parents is a root.
+ * 
+ * Only the thread walking the logs adds commits. Queries are answered from an immutable snapshot, 
+ * published as the graph grows by an eighth and by {@link #publish()} once the walk is done, so 
+ * readers take no lock. A commit added since the last snapshot is seen as not walked yet.
+ * @author Thomas Watkins
+ */
+public class CommitGraph {
+	private static final int NONE = -1;
+	private static final int MIN_PUBLISH = 4096;
+	
+	private ObjectIdOwnerMap<Node> ids;
+	private Node[] objectIds;
+	private boolean[] walked;
+	private int[] firstParents;
+	//Parents after the first of merge commits, a commit's range is [otherParentStarts[id], otherParentEnds[id])
+	private int[] otherParentStarts;
+	private int[] otherParentEnds;
+	private int[] otherParents;
+	private int otherParentCount;
+	private int[] commitTimes;
+	private int size;
+	private int nextPublish;
+	private volatile Snapshot snapshot;
+	
+	/**
+	 * Creates an empty commit graph.
+	 */
+	public CommitGraph() {
+		this.ids = new ObjectIdOwnerMap<>();
+		this.objectIds = new Node[1024];
+		this.walked = new boolean[1024];
+		this.firstParents = new int[1024];
+		this.otherParentStarts = new int[1024];
+		this.otherParentEnds = new int[1024];
+		this.commitTimes = new int[1024];
+		this.otherParents = new int[64];
+		this.nextPublish = MIN_PUBLISH;
+		this.snapshot = new Snapshot(this, null);
+	}
+	
+	/**
+	 * Adds a walked commit and gives its parents ids. Only called by the thread walking the logs.
+	 * @param commit the commit, with its headers parsed
+	 * @return the id of the commit
+	 */
+	public int add(RevCommit commit) {
+		int id = getOrCreateId(commit);
+		//Parents are given ids before writing, giving an id may replace the arrays
+		int firstParent = commit.getParentCount() > 0 ? getOrCreateId(commit.getParent(0)) : NONE;
+		int otherParentStart = this.otherParentCount;
+		for (int i = 1; i < commit.getParentCount(); i++) {
+			int parent = getOrCreateId(commit.getParent(i));
+			if (this.otherParentCount == this.otherParents.length)
+				this.otherParents = Arrays.copyOf(this.otherParents, this.otherParents.length * 2);
+			this.otherParents[this.otherParentCount++] = parent;
+		}
+		this.walked[id] = true;
+		this.commitTimes[id] = commit.getCommitTime();
+		this.firstParents[id] = firstParent;
+		this.otherParentStarts[id] = otherParentStart;
+		this.otherParentEnds[id] = this.otherParentCount;
+		if (this.size >= this.nextPublish)
+			publish();
+		return id;
+	}
+	
+	/**
+	 * Publishes every commit added so far to the readers. Called by the thread walking the logs once 
+	 * it is done.
+	 */
+	public void publish() {
+		this.snapshot = new Snapshot(this, this.snapshot);
+		this.nextPublish = this.size + Math.max(MIN_PUBLISH, this.size / 8);
+	}
+	
+	/**
+	 * @param objectId the commit id
+	 * @return the id of the commit in the graph, -1 if it has not been walked
+	 */
+	public int getId(AnyObjectId objectId) {
+		return this.snapshot.getId(objectId);
+	}
+	
+	/**
+	 * @param hash the commit hash
+	 * @return the id of the commit in the graph, -1 if it has not been walked
+	 */
+	public int getId(String hash) {
+		return getId(ObjectId.fromString(hash));
+	}
+	
+	/**
+	 * @param id the id of the commit in the graph
+	 * @return the object id of the commit
+	 */
+	public ObjectId getObjectId(int id) {
+		return this.snapshot.objectIds[id];
+	}
+	
+	/**
+	 * @return the number of commits walked or referenced as a parent
+	 */
+	public int size() {
+		return this.snapshot.size;
+	}
+	
+	/**
+	 * @param id the id of a walked commit
+	 * @return the number of parents of the commit
+	 */
+	public int getParentCount(int id) {
+		return this.snapshot.getParentCount(id);
+	}
+	
+	/**
+	 * @param id the id of a walked commit
+	 * @param n the index of the parent, 0 for the first parent
+	 * @return the id of the parent
+	 */
+	public int getParent(int id, int n) {
+		return this.snapshot.getParent(id, n);
+	}
+	
+	/**
+	 * Finds the first parent of a commit, the commit a fix is diffed and blamed against.
+	 * @param hash the commit hash
+	 * @return the object id of the first parent, null for a root commit or a commit that has not been walked
+	 */
+	public ObjectId getFirstParent(String hash) {
+		Snapshot snapshot = this.snapshot;
+		int id = snapshot.getId(ObjectId.fromString(hash));
+		if (id == NONE || snapshot.firstParents[id] == NONE)
+			return null;
+		return snapshot.objectIds[snapshot.firstParents[id]];
+	}
+	
+	/**
+	 * @param id the id of a commit
+	 * @return true if the commit has been walked and has no parents
+	 */
+	public boolean isRoot(int id) {
+		return this.snapshot.isRoot(id);
+	}
+	
+	/**
+	 * @return the ids of every root commit walked
+	 */
+	public int[] getRoots() {
+		return this.snapshot.getRoots();
+	}
+	
+	/**
+	 * @param id the id of a walked commit
+	 * @return the commit time in seconds
+	 */
+	public int getCommitTime(int id) {
+		return this.snapshot.commitTimes[id];
+	}
+	
+	/**
+	 * The generation number of a commit, 1 for a root and one more than its highest parent otherwise. 
+	 * A commit can only be an ancestor of commits with a higher generation.
+	 * @param id the id of a walked commit
+	 * @return the generation number
+	 */
+	public int getGeneration(int id) {
+		return this.snapshot.generations[id];
+	}
+	
+	/**
+	 * Determines if a commit is reachable from another through their parents. Commits with a 
+	 * generation number not above the ancestor's are not searched.
+	 * @param ancestor the id of the possible ancestor
+	 * @param descendant the id of the possible descendant
+	 * @return true if the ancestor is the descendant or one of its ancestors
+	 */
+	public boolean isAncestor(int ancestor, int descendant) {
+		return this.snapshot.isAncestor(ancestor, descendant);
+	}
+	
+	/**
+	 * Prints the size of the graph.
+	 */
+	public void printStatistics() {
+		Snapshot snapshot = this.snapshot;
+		int maximum = 0;
+		for (int id = 0; id < snapshot.size; id++)
+			maximum = Math.max(maximum, snapshot.generations[id]);
+		System.out.println("Commit Graph: " + snapshot.size + " commits, " + snapshot.getRoots().length + " roots, " + maximum + " generations");
+	}
+	
+	/**
+	 * A helper function to find the id of a commit, giving it the next id if it has none.
+	 */
+	private int getOrCreateId(AnyObjectId objectId) {
+		Node node = this.ids.get(objectId);
+		if (node != null)
+			return node.id;
+		if (this.size == this.objectIds.length) {
+			int capacity = this.size * 2;
+			this.objectIds = Arrays.copyOf(this.objectIds, capacity);
+			this.walked = Arrays.copyOf(this.walked, capacity);
+			this.firstParents = Arrays.copyOf(this.firstParents, capacity);
+			this.otherParentStarts = Arrays.copyOf(this.otherParentStarts, capacity);
+			this.otherParentEnds = Arrays.copyOf(this.otherParentEnds, capacity);
+			this.commitTimes = Arrays.copyOf(this.commitTimes, capacity);
+		}
+		node = new Node(objectId, this.size);
+		this.objectIds[this.size] = node;
+		this.firstParents[this.size] = NONE;
+		this.ids.add(node);
+		return this.size++;
+	}
+	
+	/**
+	 * A commit of the graph, the entry of the id map is the object id itself.
+	 */
+	private static class Node extends ObjectIdOwnerMap.Entry {
+		private final int id;
+		
+		private Node(AnyObjectId objectId, int id) {
+			super(objectId);
+			this.id = id;
+		}
+	}
+	
+	/**
+	 * The graph as it was when published, never changed afterwards. Commits are found by a binary 
+	 * search of their ids in sorted order.
+	 */
+	private static class Snapshot {
+		private final int size;
+		private final Node[] sorted;
+		private final Node[] objectIds;
+		private final boolean[] walked;
+		private final int[] firstParents;
+		private final int[] otherParentStarts;
+		private final int[] otherParentEnds;
+		private final int[] otherParents;
+		private final int[] commitTimes;
+		private final int[] generations;
+		
+		/**
+		 * Copies the graph, merging the commits added since the previous snapshot into its sorted ids.
+		 */
+		private Snapshot(CommitGraph graph, Snapshot previous) {
+			this.size = graph.size;
+			this.objectIds = Arrays.copyOf(graph.objectIds, this.size);
+			this.walked = Arrays.copyOf(graph.walked, this.size);
+			this.firstParents = Arrays.copyOf(graph.firstParents, this.size);
+			this.otherParentStarts = Arrays.copyOf(graph.otherParentStarts, this.size);
+			this.otherParentEnds = Arrays.copyOf(graph.otherParentEnds, this.size);
+			this.otherParents = Arrays.copyOf(graph.otherParents, graph.otherParentCount);
+			this.commitTimes = Arrays.copyOf(graph.commitTimes, this.size);
+			
+			Node[] old = previous == null ? new Node[0] : previous.sorted;
+			Node[] added = Arrays.copyOfRange(graph.objectIds, old.length, this.size);
+			Arrays.sort(added);
+			this.sorted = new Node[this.size];
+			int i = 0, j = 0, k = 0;
+			while (i < old.length && j < added.length)
+				this.sorted[k++] = old[i].compareTo(added[j]) < 0 ? old[i++] : added[j++];
+			while (i < old.length)
+				this.sorted[k++] = old[i++];
+			while (j < added.length)
+				this.sorted[k++] = added[j++];
+			this.generations = computeGenerations();
+		}
+		
+		private int getId(AnyObjectId objectId) {
+			int index = Arrays.binarySearch(this.sorted, objectId);
+			if (index < 0)
+				return NONE;
+			int id = this.sorted[index].id;
+			return this.walked[id] ? id : NONE;
+		}
+		
+		private int getParentCount(int id) {
+			if (this.firstParents[id] == NONE)
+				return 0;
+			return 1 + this.otherParentEnds[id] - this.otherParentStarts[id];
+		}
+		
+		private int getParent(int id, int n) {
+			return n == 0 ? this.firstParents[id] : this.otherParents[this.otherParentStarts[id] + n - 1];
+		}
+		
+		private boolean isRoot(int id) {
+			return this.walked[id] && this.firstParents[id] == NONE;
+		}
+		
+		private int[] getRoots() {
+			int[] roots = new int[this.size];
+			int count = 0;
+			for (int id = 0; id < this.size; id++) {
+				if (isRoot(id))
+					roots[count++] = id;
+			}
+			return Arrays.copyOf(roots, count);
+		}
+		
+		private boolean isAncestor(int ancestor, int descendant) {
+			if (ancestor == descendant)
+				return true;
+			int minimum = this.generations[ancestor];
+			if (this.generations[descendant] <= minimum)
+				return false;
+			
+			BitSet visited = new BitSet();
+			int[] stack = new int[16];
+			int top = 0;
+			stack[top++] = descendant;
+			visited.set(descendant);
+			while (top > 0) {
+				int id = stack[--top];
+				for (int n = 0; n < getParentCount(id); n++) {
+					int parent = getParent(id, n);
+					if (parent == ancestor)
+						return true;
+					if (visited.get(parent) || this.generations[parent] <= minimum)
+						continue;
+					visited.set(parent);
+					if (top == stack.length)
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					stack[top++] = parent;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * A helper function computing every generation number, parents first without recursion. 
+		 * Parents that have not been walked count as roots.
+		 */
+		private int[] computeGenerations() {
+			int[] generations = new int[this.size];
+			int[] stack = new int[16];
+			for (int start = 0; start < this.size; start++) {
+				if (generations[start] != 0)
+					continue;
+				int top = 0;
+				stack[top++] = start;
+				while (top > 0) {
+					int id = stack[top - 1];
+					if (generations[id] != 0) {
+						top--;
+						continue;
+					}
+					int generation = 1;
+					boolean ready = true;
+					for (int n = 0; n < getParentCount(id); n++) {
+						int parent = getParent(id, n);
+						if (generations[parent] == 0) {
+							ready = false;
+							if (top == stack.length)
+								stack = Arrays.copyOf(stack, stack.length * 2);
+							stack[top++] = parent;
+						} else {
+							generation = Math.max(generation, generations[parent] + 1);
+						}
+					}
+					if (ready) {
+						generations[id] = generation;
+						top--;
+					}
+				}
+			}
+			return generations;
+		}
+	}
+}
@@ -0,0 +1,369 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.SZZ.entities.LineRanges;
+/**
+ * A streaming parser of git's unified diff output that reports the lines removed from every file. 
+ * The output is read in chunks into a reused buffer and every line is examined in place, hunk 
+ * headers are parsed without creating strings and the removed lines are collected in a reused 
+ * {@link LineRanges}, so parsing allocates only the paths of each file and nothing per line.
+ * 
+ * Handles several files and hunks, any amount of context, renames and copies, binary files, 
+ * mode changes, quoted paths and "\ No newline at end of file" markers. A parser is not thread 
+ * safe, each thread should use its own.
+ * @author Thomas Watkins
+ */
+public class DiffParser {
+	private static final byte[] DIFF_GIT = bytes("diff --git ");
+	private static final byte[] OLD_FILE = bytes("--- ");
+	private static final byte[] NEW_FILE = bytes("+++ ");
+	private static final byte[] RENAME_FROM = bytes("rename from ");
+	private static final byte[] RENAME_TO = bytes("rename to ");
+	private static final byte[] COPY_FROM = bytes("copy from ");
+	private static final byte[] COPY_TO = bytes("copy to ");
+	private static final byte[] BINARY_FILES = bytes("Binary files ");
+	private static final byte[] BINARY_PATCH = bytes("GIT binary patch");
+	private static final byte[] HUNK = bytes("@@ -");
+	private static final byte[] NEW_FILE_MODE = bytes("new file mode");
+	private static final byte[] DELETED_FILE_MODE = bytes("deleted file mode");
+	private static final byte[] DEV_NULL = bytes("/dev/null");
+	//Only the start of a line is examined, longer lines are cut
+	private static final int MAX_LINE = 16384;
+	
+	/**
+	 * Receives the removed lines of every file of a diff.
+	 */
+	public interface Handler {
+		
+		/**
+		 * Called once the diff of a file has been read.
+		 * @param oldPath the path in the previous commit, null for an added file
+		 * @param newPath the path in the commit, null for a deleted file
+		 * @param linesRemoved the lines removed from the previous version, reused after this call returns
+		 * @param binary true for a binary file, which has no lines
+		 */
+		void file(String oldPath, String newPath, LineRanges linesRemoved, boolean binary);
+	}
+	
+	private byte[] buffer;
+	private int position;
+	private int limit;
+	private byte[] line;
+	private int lineLength;
+	private LineRanges linesRemoved;
+	
+	//The file being read
+	private boolean inFile;
+	private String oldPath;
+	private String newPath;
+	private boolean binary;
+	
+	//The hunk being read
+	private int oldLine;
+	private int oldRemaining;
+	private int newRemaining;
+	private int cursor;
+	
+	/**
+	 * Creates a diff parser.
+	 */
+	public DiffParser() {
+		this.buffer = new byte[65536];
+		this.line = new byte[1024];
+		this.linesRemoved = new LineRanges();
+	}
+	
+	/**
+	 * Parses a diff, calling the handler for every file in the order they appear.
+	 * @param in the diff, such as the output of "git diff"
+	 * @param handler the handler of each file
+	 * @throws IOException if the diff cannot be read
+	 */
+	public void parse(InputStream in, Handler handler) throws IOException {
+		this.position = 0;
+		this.limit = 0;
+		this.inFile = false;
+		this.oldRemaining = 0;
+		this.newRemaining = 0;
+		
+		while (readLine(in)) {
+			if (this.oldRemaining > 0 || this.newRemaining > 0) {
+				parseHunkLine();
+				continue;
+			}
+			if (startsWith(DIFF_GIT)) {
+				finishFile(handler);
+				startFile();
+				parseDiffGitLine();
+			} else if (!this.inFile) {
+				continue;
+			} else if (startsWith(HUNK)) {
+				parseHunkHeader();
+			} else if (startsWith(OLD_FILE)) {
+				this.oldPath = parsePath(OLD_FILE.length, true);
+			} else if (startsWith(NEW_FILE)) {
+				this.newPath = parsePath(NEW_FILE.length, true);
+			} else if (startsWith(RENAME_FROM)) {
+				this.oldPath = parsePath(RENAME_FROM.length, false);
+			} else if (startsWith(RENAME_TO)) {
+				this.newPath = parsePath(RENAME_TO.length, false);
+			} else if (startsWith(COPY_FROM)) {
+				this.oldPath = parsePath(COPY_FROM.length, false);
+			} else if (startsWith(COPY_TO)) {
+				this.newPath = parsePath(COPY_TO.length, false);
+			} else if (startsWith(BINARY_FILES) || startsWith(BINARY_PATCH)) {
+				this.binary = true;
+			} else if (startsWith(NEW_FILE_MODE)) {
+				this.oldPath = null;
+			} else if (startsWith(DELETED_FILE_MODE)) {
+				this.newPath = null;
+			}
+		}
+		finishFile(handler);
+	}
+	
+	/**
+	 * A helper function counting a line of a hunk, recording the old line number of removed lines.
+	 */
+	private void parseHunkLine() {
+		byte first = this.lineLength > 0 ? this.line[0] : (byte) ' ';
+		switch (first) {
+		case '-':
+			this.linesRemoved.add(this.oldLine++);
+			this.oldRemaining--;
+			break;
+		case '+':
+			this.newRemaining--;
+			break;
+		case '\\':
+			//No newline at end of file, not a line of either version
+			break;
+		default:
+			//Context line (an empty line is context with its leading space trimmed)
+			this.oldLine++;
+			this.oldRemaining--;
+			this.newRemaining--;
+			break;
+		}
+	}
+	
+	/**
+	 * A helper function parsing "@@ -start[,count] +start[,count] @@", a missing count is 1.
+	 */
+	private void parseHunkHeader() {
+		this.cursor = HUNK.length;
+		this.oldLine = parseNumber();
+		this.oldRemaining = 1;
+		if (this.cursor < this.lineLength && this.line[this.cursor] == ',') {
+			this.cursor++;
+			this.oldRemaining = parseNumber();
+		}
+		while (this.cursor < this.lineLength && this.line[this.cursor] != '+')
+			this.cursor++;
+		this.cursor++;
+		parseNumber();
+		this.newRemaining = 1;
+		if (this.cursor < this.lineLength && this.line[this.cursor] == ',') {
+			this.cursor++;
+			this.newRemaining = parseNumber();
+		}
+	}
+	
+	/**
+	 * A helper function parsing a decimal number of the current line at the cursor.
+	 */
+	private int parseNumber() {
+		int number = 0;
+		while (this.cursor < this.lineLength && this.line[this.cursor] >= '0' && this.line[this.cursor] <= '9')
+			number = number * 10 + (this.line[this.cursor++] - '0');
+		return number;
+	}
+	
+	/**
+	 * A helper function taking the paths from "diff --git a/PATH b/PATH". They are replaced by the 
+	 * ---, +++ or rename lines when present, which are not ambiguous when paths contain spaces.
+	 */
+	private void parseDiffGitLine() {
+		int start = DIFF_GIT.length;
+		if (this.line[start] == '"') {
+			int end = closingQuote(start);
+			this.oldPath = stripPrefix(unquote(start, end + 1));
+			this.newPath = stripPrefix(this.line[end + 2] == '"' ? unquote(end + 2, this.lineLength) : decode(end + 2, this.lineLength));
+			return;
+		}
+		//Without quoting, "a/X b/X" splits in the middle when both paths are the same
+		int length = this.lineLength - start;
+		int middle = start + (length - 1) / 2;
+		if (length % 2 == 1 && this.line[middle] == ' ') {
+			this.oldPath = stripPrefix(decode(start, middle));
+			this.newPath = stripPrefix(decode(middle + 1, this.lineLength));
+		}
+	}
+	
+	/**
+	 * A helper function parsing the path of a ---, +++, rename or copy line.
+	 * @param start the position after the keyword
+	 * @param prefixed true if the path has an a/ or b/ prefix
+	 * @return the path, null for /dev/null
+	 */
+	private String parsePath(int start, boolean prefixed) {
+		int end = this.lineLength;
+		//git ends paths containing a space with a tab
+		if (end > start && this.line[end - 1] == '\t')
+			end--;
+		if (end - start == DEV_NULL.length && startsWith(DEV_NULL, start))
+			return null;
+		String path = this.line[start] == '"' ? unquote(start, end) : decode(start, end);
+		return prefixed ? stripPrefix(path) : path;
+	}
+	
+	/**
+	 * A helper function removing the a/ or b/ prefix git puts on diff paths.
+	 */
+	private static String stripPrefix(String path) {
+		int slash = path.indexOf('/');
+		return slash >= 0 ? path.substring(slash + 1) : path;
+	}
+	
+	/**
+	 * A helper function finding the quote closing a quoted path.
+	 */
+	private int closingQuote(int start) {
+		for (int i = start + 1; i < this.lineLength; i++) {
+			if (this.line[i] == '\\')
+				i++;
+			else if (this.line[i] == '"')
+				return i;
+		}
+		return this.lineLength - 1;
+	}
+	
+	/**
+	 * A helper function removing the C style quoting git applies to unusual paths.
+	 */
+	private String unquote(int start, int end) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(end - start);
+		for (int i = start + 1; i < end - 1; i++) {
+			byte b = this.line[i];
+			if (b != '\\') {
+				bytes.write(b);
+				continue;
+			}
+			byte escaped = this.line[++i];
+			switch (escaped) {
+			case 'n': bytes.write('\n'); break;
+			case 't': bytes.write('\t'); break;
+			case 'a': bytes.write(7); break;
+			case 'b': bytes.write('\b'); break;
+			case 'f': bytes.write('\f'); break;
+			case 'r': bytes.write('\r'); break;
+			case 'v': bytes.write(11); break;
+			case '"': bytes.write('"'); break;
+			case '\\': bytes.write('\\'); break;
+			default:
+				//Octal escaped byte
+				bytes.write((escaped - '0') * 64 + (this.line[i + 1] - '0') * 8 + (this.line[i + 2] - '0'));
+				i += 2;
+			}
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * A helper function starting a new file.
+	 */
+	private void startFile() {
+		this.inFile = true;
+		this.oldPath = null;
+		this.newPath = null;
+		this.binary = false;
+		this.linesRemoved.clear();
+	}
+	
+	/**
+	 * A helper function reporting the file being read, if any.
+	 */
+	private void finishFile(Handler handler) {
+		if (this.inFile)
+			handler.file(this.oldPath, this.newPath, this.linesRemoved, this.binary);
+		this.inFile = false;
+	}
+	
+	/**
+	 * A helper function reading the next line, without its line feed, into the line buffer.
+	 * @return false at the end of the diff
+	 */
+	private boolean readLine(InputStream in) throws IOException {
+		this.lineLength = 0;
+		while (true) {
+			if (this.position == this.limit) {
+				this.limit = in.read(this.buffer);
+				this.position = 0;
+				if (this.limit <= 0) {
+					this.limit = 0;
+					return this.lineLength > 0;
+				}
+			}
+			int start = this.position;
+			while (this.position < this.limit && this.buffer[this.position] != '\n')
+				this.position++;
+			append(start, this.position);
+			if (this.position < this.limit) {
+				this.position++;
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * A helper function appending part of the read buffer to the line buffer. Only the start of very 
+	 * long lines is kept, it is all that is examined.
+	 */
+	private void append(int start, int end) {
+		int length = Math.min(end - start, MAX_LINE - this.lineLength);
+		if (length <= 0)
+			return;
+		if (this.lineLength + length > this.line.length)
+			this.line = Arrays.copyOf(this.line, Math.max(this.lineLength + length, this.line.length * 2));
+		System.arraycopy(this.buffer, start, this.line, this.lineLength, length);
+		this.lineLength += length;
+	}
+	
+	private boolean startsWith(byte[] prefix) {
+		return startsWith(prefix, 0);
+	}
+	
+	private boolean startsWith(byte[] prefix, int offset) {
+		if (this.lineLength - offset < prefix.length)
+			return false;
+		for (int i = 0; i < prefix.length; i++) {
+			if (this.line[offset + i] != prefix[i])
+				return false;
+		}
+		return true;
+	}
+	
+	private String decode(int start, int end) {
+		return new String(this.line, start, Math.max(0, end - start), StandardCharsets.UTF_8);
+	}
+	
+	private static byte[] bytes(String string) {
+		return string.getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,68 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+
+import com.SZZ.entities.AffectedFile;
+import com.SZZ.entities.BlameLine;
+import com.SZZ.entities.FileDiff;
+import com.SZZ.entities.LineRanges;
+/**
+ * The git operations run for every commit and bug fixing file. Implemented in-process with JGit 
+ * and with long lived git command line processes, so both can be compared on the same repository.
+ * Implementations must be safe to use from many threads at once.
+ * @author Thomas Watkins
+ */
+public interface GitBackend {
+	
+	/**
+	 * Obtains the files affected by a commit, as "git diff-tree --name-status -r" would. 
+	 * Merge and root commits have no affected files.
+	 * @param hash the commit hash
+	 * @return the files affected
+	 * @throws IOException if the commit cannot be read
+	 */
+	ArrayList<AffectedFile> getFiles(String hash) throws IOException;
+	
+	/**
+	 * Diffs the given files of a commit against its previous commit.
+	 * @param hash the commit hash
+	 * @param paths the files to be diffed
+	 * @return a hashmap of file path to the diff of that file, files without a diff are not present
+	 * @throws IOException if the commit cannot be diffed
+	 */
+	HashMap<String, FileDiff> getDiffs(String hash, Collection<String> paths) throws IOException;
+	
+	/**
+	 * Blames the given lines of a file in the previous commit of the commit given, ignoring whitespace.
+	 * @param hash the commit hash
+	 * @param file the file to be blamed
+	 * @param linesRemoved the lines to be assessed
+	 * @return the blamed lines, none if the file does not exist in the previous commit
+	 * @throws IOException if the file cannot be blamed
+	 */
+	ArrayList<BlameLine> blame(String hash, String file, LineRanges linesRemoved) throws IOException;
+	
+	/**
+	 * Prints the statistics of this backend for this run.
+	 */
+	void printStatistics();
+	
+	/**
+	 * Releases every reader or process held by this backend.
+	 */
+	void close();
+}
@@ -0,0 +1,124 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+/**
+ * A long lived git process that reads requests on its standard input and answers on its standard 
+ * output, such as "git cat-file --batch". Starting git and discovering the repository is paid once 
+ * rather than for every request. A coprocess is not thread safe, each thread should use its own.
+ * @author Thomas Watkins
+ */
+public class GitCoprocess {
+	private Process process;
+	private OutputStream input;
+	private InputStream output;
+	
+	/**
+	 * Starts a git coprocess.
+	 * @param directory the repository directory
+	 * @param command the git command
+	 * @throws IOException if the process cannot be started
+	 */
+	public GitCoprocess(File directory, String... command) throws IOException {
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.directory(directory);
+		processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		this.process = processBuilder.start();
+		this.input = new BufferedOutputStream(this.process.getOutputStream());
+		this.output = new BufferedInputStream(this.process.getInputStream(), 65536);
+	}
+	
+	/**
+	 * Sends a request line to the process.
+	 * @param line the request, without a line feed
+	 * @throws IOException if the process has stopped
+	 */
+	public void write(String line) throws IOException {
+		this.input.write(line.getBytes(StandardCharsets.UTF_8));
+		this.input.write('\n');
+	}
+	
+	/**
+	 * Sends every request written so far to the process.
+	 * @throws IOException if the process has stopped
+	 */
+	public void flush() throws IOException {
+		this.input.flush();
+	}
+	
+	/**
+	 * Reads one line of the answer.
+	 * @return the line without its line feed
+	 * @throws IOException if the process has stopped
+	 */
+	public String readLine() throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+		int b;
+		while ((b = this.output.read()) != '\n') {
+			if (b < 0)
+				throw new EOFException("git process stopped");
+			line.write(b);
+		}
+		return new String(line.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Reads a number of bytes of the answer, such as the content of an object.
+	 * @param length the number of bytes
+	 * @return the bytes
+	 * @throws IOException if the process has stopped
+	 */
+	public byte[] readBytes(int length) throws IOException {
+		byte[] bytes = new byte[length];
+		int read = 0;
+		while (read < length) {
+			int n = this.output.read(bytes, read, length - read);
+			if (n < 0)
+				throw new EOFException("git process stopped");
+			read += n;
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Kills the process, for a process whose answer can no longer be trusted.
+	 */
+	public void destroy() {
+		this.process.destroyForcibly();
+		try {
+			this.input.close();
+		} catch (IOException e) {
+			//The process is already gone
+		}
+	}
+	
+	/**
+	 * Stops the process by closing its standard input.
+	 */
+	public void close() {
+		try {
+			this.input.close();
+			this.process.waitFor();
+		} catch (Exception e) {
+			this.process.destroy();
+		}
+	}
+}
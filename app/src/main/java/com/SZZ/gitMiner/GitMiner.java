@@ -12,23 +12,41 @@
 package com.SZZ.gitMiner;
 
 import java.io.File;
-
-import java.io.PrintWriter;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.revwalk.RevCommit;
 
-import com.SZZ.entities.BICThread;
+import com.SZZ.entities.AffectedFile;
+import com.SZZ.entities.BlameTask;
 import com.SZZ.entities.Commit;
-import com.SZZ.entities.FileThread;
+import com.SZZ.entities.CommitTable;
+import com.SZZ.entities.FileDiff;
 import com.SZZ.entities.Link;
-import com.SZZ.entities.Suspect;
+import com.SZZ.entities.TaskScheduler;
+import com.SZZ.output.OrderedResultWriter;
+import com.SZZ.output.ResultSink;
+import com.SZZ.state.MappedCommitIndex;
+import com.SZZ.state.RunState;
 /**
- * Clones and mines a github repository. Extracts and returns the commits from an obtained git log.
+ * Mirrors and mines a github repository. Extracts and returns the commits from an obtained git log.
  * @author Thomas Watkins
  */
 public class GitMiner {	
 	
 	private GitUtil gitUtil;
+	private RunState runState;
+	private TaskScheduler scheduler;
+	private CommitTable commitTable;
+	private File commitIndex;
+	private boolean reuseCommitIndex;
+	private ResultSink resultSink;
 	
 	/**
 	 * Creates a GitMiner with specified github repository url.
@@ -36,10 +54,72 @@ public class GitMiner {
 	 */
 	public GitMiner(String githubURL) {		
 		this.gitUtil = new GitUtil(githubURL);
+		this.runState = new RunState("");
+		this.scheduler = new TaskScheduler(Runtime.getRuntime().availableProcessors());
+		this.commitTable = this.runState.getCommitTable();
+	}
+	
+	/**
+	 * Sets the scheduler running the affected file and bug introducing commit tasks.
+	 * @param scheduler the task scheduler
+	 */
+	public void setScheduler(TaskScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+	
+	/**
+	 * Sets the state of the previous run, commits and links it processed are not processed again. 
+	 * Commits are added to the commit table of the state, so it is set before mining.
+	 * @param runState the state of the previous run
+	 */
+	public void setRunState(RunState runState) {
+		this.runState = runState;
+		this.commitTable = runState.getCommitTable();
+	}
+	
+	/**
+	 * Sets the algorithm used to diff bug fixing commits.
+	 * @param diffAlgorithm the diff algorithm (Myers or Histogram)
+	 */
+	public void setDiffAlgorithm(DiffAlgorithm.SupportedAlgorithm diffAlgorithm) {
+		this.gitUtil.setDiffAlgorithm(diffAlgorithm);
+	}
+	
+	/**
+	 * Gives the diff algorithm of a name, as given with --diff-algorithm.
+	 * @param name the name of the diff algorithm in any case, "myers" or "histogram"
+	 * @return the diff algorithm
+	 */
+	public static DiffAlgorithm.SupportedAlgorithm getDiffAlgorithm(String name) {
+		StringBuilder allowed = new StringBuilder();
+		for(DiffAlgorithm.SupportedAlgorithm algorithm: DiffAlgorithm.SupportedAlgorithm.values()) {
+			if(algorithm.name().equalsIgnoreCase(name))
+				return algorithm;
+			allowed.append(allowed.length() == 0 ? "" : ", ").append(algorithm.name().toLowerCase());
+		}
+		throw new IllegalArgumentException("Unknown diff algorithm: " + name + " (allowed: " + allowed + ")");
+	}
+	
+	/**
+	 * Sets the git backend used for affected files, diffs and blames.
+	 * @param backendName "jgit" or "cli"
+	 */
+	public void setBackend(String backendName) {
+		this.gitUtil.setBackend(backendName);
+	}
+	
+	/**
+	 * Opens the repository, creating or updating its local mirror through the repository manager. 
+	 * Walking the logs opens it as well if it has not been opened.
+	 * @throws IOException if the mirror cannot be created or opened
+	 * @throws GitAPIException if cloning or fetching the mirror fails
+	 */
+	public void open() throws IOException, GitAPIException {
+		this.gitUtil.open();
 	}
 	
 	/**
-	 * Clones and mines a github repository, returns an arraylist of commits. 
+	 * Mirrors and mines a github repository, returns an arraylist of commits. 
 	 * Ignores the root commit. 
 	 * 
 	 * @return array list of commits	 
@@ -47,8 +127,72 @@ public class GitMiner {
 	public ArrayList<Commit> mineGit() {		
 		Iterable<RevCommit> logs = null;
 		logs = this.gitUtil.getGitLogs();
-				
-		return generateCommits(logs);		
+		
+		ArrayList<Commit> commits = loadCommitIndex();
+		if(commits != null)
+			return commits;
+		commits = generateCommits(logs);
+		writeCommitIndex(commits);
+		return commits;		
+	}
+	
+	/**
+	 * Sets the file the commits and their affected files are saved to once mined. If the file was 
+	 * written at the current HEAD the next run uses it instead of mining the repository again.
+	 * @param commitIndex the commit index file, null to not use one
+	 * @param reuse false to always mine the repository, replacing the index
+	 */
+	public void setCommitIndex(File commitIndex, boolean reuse) {
+		this.commitIndex = commitIndex;
+		this.reuseCommitIndex = reuse;
+	}
+	
+	/**
+	 * Opens the commit index if it was written at the current HEAD.
+	 * @return the commits of the index, null if there is no usable index
+	 */
+	private ArrayList<Commit> loadCommitIndex() {
+		if(this.commitIndex == null || !this.reuseCommitIndex || !this.commitIndex.exists())
+			return null;
+		try {
+			MappedCommitIndex index = MappedCommitIndex.open(this.commitIndex, true);
+			ObjectId head = this.gitUtil.getRepository().resolve(Constants.HEAD);
+			if(!index.getHead().equals(head)) {
+				System.out.println("Commit index is at " + index.getHead().getName() + ", mining new commits");
+				return null;
+			}
+			System.out.println("Loaded commit index at " + head.getName() + ": " + index.size() + " commits");
+			updateHead();
+			return index.getCommits();
+		} catch (Exception e) {
+			System.out.println("Could not read commit index, mining again");
+			e.printStackTrace();
+		}
+		return null;
+	}
+	
+	/**
+	 * Saves the mined commits to the commit index, exactly the commits of the walk in log order, so 
+	 * a run reading the index sees the same commits as the walk. An index missing the affected files 
+	 * of a commit would give it none for good, so none is written and the next run mines again.
+	 * @param commits the commits of the walk
+	 */
+	private void writeCommitIndex(ArrayList<Commit> commits) {
+		if(this.commitIndex == null)
+			return;
+		int[] rows = new int[commits.size()];
+		for(int i = 0; i < rows.length; i++) {
+			if(commits.get(i).getFileCount() < 0) {
+				System.out.println("Not writing the commit index, the affected files of some commits could not be read");
+				return;
+			}
+			rows[i] = commits.get(i).getRow();
+		}
+		try {
+			MappedCommitIndex.write(this.commitTable, rows, this.gitUtil.getRepository().resolve(Constants.HEAD), this.commitIndex);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 	}
 
 	/**
@@ -60,54 +204,121 @@ public class GitMiner {
 		System.out.println("Getting Git Commits");
 		
 		ArrayList<Commit> commits = new ArrayList<>();
-		//Get root commit (Cant be bug fixing)
-		String rootHash = this.gitUtil.getRootCommit();	
-		
 		//Extract commit data from log entry
+		CommitGraph commitGraph = this.gitUtil.getCommitGraph();
 		for (RevCommit rev : logs) {
-			String hash = rev.getId().getName();			
-			long timeStamp = rev.getCommitTime();
-			String author = rev.getAuthorIdent().getName();
-	        String comment = rev.getShortMessage();	        
-	        
-	        //Ignore root commit
-	        if(!hash.equals(rootHash))	        	
-	        	commits.add(new Commit(hash, timeStamp, author, comment));
+			commitGraph.add(rev);
+	        //Ignore root commits (Cant be bug fixing)
+	        if(rev.getParentCount() > 0)	        	
+	        	commits.add(createCommit(rev));
 	    }
-										
-		return acquireAffectedFiles(commits);
+		commitGraph.publish();
+		commitGraph.printStatistics();
+		
+		//Commits processed by the previous run already have their affected files
+		ArrayList<Commit> newCommits = new ArrayList<>();
+		for(Commit commit: commits) {
+			if(commit.getFileCount() < 0)
+				newCommits.add(commit);
+		}
+		if(!this.runState.getHead().isEmpty())
+			System.out.println("New commits since " + this.runState.getHead() + ": " + newCommits.size());
+		
+		acquireAffectedFiles(newCommits);
+		finishWalk();
+		this.commitTable.printStatistics();
+		return commits;
+	}
+	
+	/**
+	 * Mirrors a github repository and returns its git logs, for callers processing commits as they 
+	 * are walked.
+	 * @return the git logs
+	 */
+	public Iterable<RevCommit> getGitLogs() {
+		return this.gitUtil.getGitLogs();
+	}
+	
+	/**
+	 * @return the graph of the commits walked, commits walked by the caller are added to it
+	 */
+	public CommitGraph getCommitGraph() {
+		return this.gitUtil.getCommitGraph();
+	}
+	
+	/**
+	 * Extracts the commit data from a log entry.
+	 * @param rev the log entry
+	 * @return the commit, a view of its row in the commit table without its affected files
+	 */
+	public Commit createCommit(RevCommit rev) {
+		long timeStamp = rev.getCommitTime();
+		String author = rev.getAuthorIdent().getName();
+		String comment = rev.getShortMessage();	        
+		return this.commitTable.getCommit(this.commitTable.add(rev.getId(), timeStamp, author, comment));
+	}
+	
+	/**
+	 * @return the table holding every commit walked and its affected files
+	 */
+	public CommitTable getCommitTable() {
+		return this.commitTable;
+	}
+	
+	/**
+	 * Acquires the affected files of a single commit, reusing those of the previous run.
+	 * @param commit the commit
+	 */
+	public void acquireAffectedFiles(Commit commit) {
+		if(commit.getFileCount() < 0)
+			readAffectedFiles(commit);
+	}
+	
+	/**
+	 * A helper function reading the affected files of a commit. A commit whose files cannot be read 
+	 * is left without them, so it is not linked, is not saved in the run state and is read again by 
+	 * the next run.
+	 * @param commit the commit
+	 */
+	private void readAffectedFiles(Commit commit) {
+		try {
+			commit.setFiles(this.gitUtil.getFiles(commit.getHash()));
+		} catch (Exception e) {
+			System.out.println("Could not read the affected files of " + commit.getHash() + ", they are read again by the next run");
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Finishes a walk of the whole log. Records the current head, and as every reachable commit has 
+	 * now been added, the commits of the previous run that were not walked again are no longer saved.
+	 */
+	public void finishWalk() {
+		this.runState.setWalked(true);
+		updateHead();
+	}
+	
+	/**
+	 * Records the current head of the repository in the run state, the next run only processes 
+	 * commits after it.
+	 */
+	public void updateHead() {
+		try {
+			this.runState.setHead(this.gitUtil.getRepository().resolve(Constants.HEAD).getName());
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 	}
 	
 	/**
-	 * Function to acquire list of affected files for all commits. Split across cores for
-	 * efficiency.
+	 * Function to acquire list of affected files for all commits. Each commit is a task of the 
+	 * shared scheduler, every thread reuses its own rev walk.
 	 * 	
 	 * @param commits array list of commits
 	 * @return array list of commits
 	 */
 	private ArrayList<Commit> acquireAffectedFiles(ArrayList<Commit> commits) {
-		int CORES = Runtime.getRuntime().availableProcessors();
-		int[] splits = new int[CORES];
-		int rem = commits.size() % CORES;
-		int split = (commits.size() - rem) / CORES; 
-		
-		for(int i = 0; i < CORES; i++) 
-			splits[i] = split;
-		splits[CORES-1] += rem;
-		
-		FileThread[] threads = new FileThread[CORES];
-		for(int i = 0; i < CORES; i++) 
-			threads[i] = new FileThread(splits[i], split, i, this.gitUtil, commits);
-				
-		try {
-			for(FileThread t: threads) 
-				t.start();			
-			for(FileThread t: threads)		
-				t.join();
-		} catch (Exception e) {			
-			e.printStackTrace();
-		}		
-		
+		this.scheduler.forEach(commits, null, this::readAffectedFiles);
 		return commits;		
 	}
 
@@ -118,59 +329,183 @@ public class GitMiner {
 	 */
 	public ArrayList<Link> calculateBugIntroducingCommits(ArrayList<Link> bugFixingCommits) {
 		System.out.println("Calculating Bug Introducing Commits");
-		ArrayList<Link> bugIntroducingCommits = bugFixingCommits;
+		OrderedResultWriter writer = new OrderedResultWriter(this.resultSink, bugFixingCommits.size());
 		
-		int CORES = Runtime.getRuntime().availableProcessors();
-		int[] splits = new int[CORES];
-		int rem = bugIntroducingCommits.size() % CORES;
-		int split = (bugIntroducingCommits.size() - rem) / CORES; 
+		//Only calculate links that were not processed by the previous run
+		ArrayList<Link> bugIntroducingCommits = new ArrayList<>();
+		IdentityHashMap<Link, Integer> positions = new IdentityHashMap<>();
+		for(int i = 0; i < bugFixingCommits.size(); i++) {
+			Link link = bugFixingCommits.get(i);
+			if(this.runState.restoreSuspects(link)) {
+				writer.finished(i, link);
+			} else {
+				bugIntroducingCommits.add(link);
+				positions.put(link, i);
+			}
+		}
+		System.out.println("Links processed by previous run: " + (bugFixingCommits.size() - bugIntroducingCommits.size()));
 		
-		for(int i = 0; i < CORES; i++) 
-			splits[i] = split;
-		splits[CORES-1] += rem;
+		//Diff every bug fixing commit, those with the most java files first
+		this.scheduler.forEach(bugIntroducingCommits, Link::getJavaFileCount, 
+				link -> link.calculateFilesToBlame(this.gitUtil));
 		
-		BICThread[] threads = new BICThread[CORES];
-		for(int i = 0; i < CORES; i++) 
-			threads[i] = new BICThread(splits[i], split, i, this.gitUtil, bugIntroducingCommits);
-				
+		//Blame every file of every bug fixing commit, the largest files first. A link is finished and 
+		//written once its last file has been blamed
+		ArrayList<BlameTask> tasks = new ArrayList<>();
+		IdentityHashMap<Link, AtomicInteger> remaining = new IdentityHashMap<>();
+		for(Link link: bugIntroducingCommits) {
+			if(!hasFilesToBlame(link)) {
+				finishLink(link, positions.get(link), writer);
+				continue;
+			}
+			for(FileDiff diff: link.getFilesToBlame())
+				tasks.add(new BlameTask(link, diff));
+			remaining.put(link, new AtomicInteger(link.getFilesToBlame().size()));
+			if(link.getFilesToBlame().isEmpty())
+				finishLink(link, positions.get(link), writer);
+		}
+		System.out.println("Files to blame: " + tasks.size());
+		this.scheduler.forEach(tasks, BlameTask::getCost, task -> {
+			try {
+				task.run(this.gitUtil);
+			} finally {
+				if(remaining.get(task.getLink()).decrementAndGet() == 0)
+					finishLink(task.getLink(), positions.get(task.getLink()), writer);
+			}
+		});
+		return bugFixingCommits;
+	}
+	
+	/**
+	 * Adds the suspects of a link once all of its files have been blamed, records them and writes them.
+	 * @param link the link
+	 * @param position the position of the link among the bug fixing commits
+	 * @param writer the writer of the results in order
+	 */
+	private void finishLink(Link link, int position, OrderedResultWriter writer) {
+		finishLink(link, () -> writer.finished(position, link));
+	}
+	
+	/**
+	 * Adds the suspects of a link once all of its files have been blamed and records them.
+	 * @param link the link
+	 * @param finished run once the link is finished, even if adding its suspects failed
+	 */
+	private void finishLink(Link link, Runnable finished) {
 		try {
-			for(BICThread t: threads) 
-				t.start();			
-			for(BICThread t: threads)		
-				t.join();
-		} catch (Exception e) {			
-			e.printStackTrace();
-		}		
-		
-		printToFile(bugIntroducingCommits);
-		return bugIntroducingCommits;
+			link.addSuspects();
+			recordSuspects(link);
+		} finally {
+			finished.run();
+		}
 	}
 	
 	/**
-	 * A function to print the bug introducing commits to file.
+	 * Checks that the files to blame of a link were calculated, a link whose diff task did not 
+	 * complete is marked as failed and skipped instead of failing the whole project.
+	 * @param link the link
+	 * @return true if the files of the link can be blamed
 	 */
-	private void printToFile(ArrayList<Link> bugIntroducingCommits) {
-		String key = bugIntroducingCommits.get(0).getBug().getIssueKey();		
-		String projectName = key.substring(0, key.indexOf("-")).toUpperCase();		
+	private boolean hasFilesToBlame(Link link) {
+		if(link.getFilesToBlame() != null)
+			return true;
+		System.out.println("Skipping " + link.getCommit().getHash() + ", its files to blame could not be calculated");
+		link.setFailed();
+		return false;
+	}
+	
+	/**
+	 * Records the suspects of a finished link in the run state, only if its diff and every one of its 
+	 * blames succeeded. A failed link is calculated again by the next run.
+	 * @param link the link
+	 */
+	private void recordSuspects(Link link) {
+		if(link.hasFailed()) {
+			System.out.println("Not recording the suspects of " + link.getCommit().getHash() + ", calculating them failed");
+			return;
+		}
+		this.runState.putSuspects(link);
+	}
+	
+	/**
+	 * Calculates the bug introducing commits of a single link, for callers that link commits as they 
+	 * are walked. The link is diffed by the calling thread and its files are blamed as separate tasks 
+	 * of the scheduler, without waiting for them. The last of them finishes the link, links processed 
+	 * by the previous run are restored instead.
+	 * @param link the bug fixing link
+	 * @param finished run once the link is finished, whether it succeeded or not
+	 */
+	public void calculateBugIntroducingCommit(Link link, Runnable finished) {
 		try {
-			File f = new File(projectName + "-BugIntroducingCommits" + ".csv");
-			PrintWriter writer = new PrintWriter(f);
-			writer.println("BFCHash;BFCTime;File;BICHash;BICTime;IssueKey;");
-			for(Link l: bugIntroducingCommits) {		
-				for (Suspect suspect : l.getBugIntroducingCommits().values()) { 
-					String printString = l.getCommit().getHash() + ";"							
-							+ l.getCommit().getTimeStamp() + ";"
-							+ suspect.getFileName() + ";"
-							+ suspect.getHash() + ";"
-							+ suspect.getDate() + ";"
-							+ l.getBug().getIssueKey() + ";";			
-							writer.println(printString);
-				}				
-			}	
-			writer.close();
+			if(this.runState.restoreSuspects(link)) {
+				finished.run();
+				return;
+			}
+			link.calculateFilesToBlame(this.gitUtil);
 		} catch (Exception e) {
 			e.printStackTrace();
-		}	
+		}
+		if(!hasFilesToBlame(link)) {
+			finishLink(link, finished);
+			return;
+		}
+		ArrayList<BlameTask> tasks = new ArrayList<>();
+		for(FileDiff diff: link.getFilesToBlame())
+			tasks.add(new BlameTask(link, diff));
+		this.scheduler.forEach(tasks, BlameTask::getCost, task -> task.run(this.gitUtil), () -> finishLink(link, finished));
+	}
+	
+	/**
+	 * Sets the manager of the local repository mirrors.
+	 * @param repositoryManager the repository manager
+	 */
+	public void setRepositoryManager(RepositoryManager repositoryManager) {
+		this.gitUtil.setRepositoryManager(repositoryManager);
+	}
+	
+	/**
+	 * Sets the sink the bug introducing commits are written to, each link as soon as it is finished.
+	 * @param resultSink the result sink, null to write nothing
+	 */
+	public void setResultSink(ResultSink resultSink) {
+		this.resultSink = resultSink;
+	}
+	
+	/**
+	 * Sets the maximum size of the blame cache.
+	 * @param maximumBytes the maximum number of bytes of blamed files cached
+	 */
+	public void setBlameCacheSize(long maximumBytes) {
+		this.gitUtil.setBlameCacheSize(maximumBytes);
+	}
+	
+	/**
+	 * Prints the statistics of the git backend for this run.
+	 */
+	public void printStatistics() {
+		this.gitUtil.printStatistics();
+	}
+	
+	/**
+	 * Releases the repository and the object readers used while mining.
+	 */
+	public void close() {
+		this.gitUtil.close();
+	}
+	
+	/**
+	 * Writes the bug introducing commits of links to the result sink, if there is one.
+	 * @param links the bug fixing links
+	 */
+	public void writeBugIntroducingCommits(ArrayList<Link> links) {
+		if(this.resultSink == null)
+			return;
+		try {
+			for(Link l: links)
+				this.resultSink.writeBugIntroducingCommits(l);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 	}
 }
 
@@ -11,61 +11,121 @@
 //
 package com.SZZ.gitMiner;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.blame.BlameResult;
-import org.eclipse.jgit.diff.RawText;
-import org.eclipse.jgit.diff.RawTextComparator;
-import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 
+import com.SZZ.entities.AffectedFile;
 import com.SZZ.entities.BlameLine;
+import com.SZZ.entities.FileDiff;
+import com.SZZ.entities.LineRanges;
 /**
- * A utility class enabling git functionality utilising JGit and ProcessBuilder. 
+ * A utility class enabling git functionality utilising JGit and ProcessBuilder. The git logs are 
+ * always walked with JGit, affected files, diffs and blames are delegated to a git backend.
  * @author Thomas Watkins
  */
 public class GitUtil {
 	private String githubURL;
 	private String path;
+	private RepositoryManager repositoryManager;
+	private JGitBackend jgit;
+	private String backendName;
+	private GitBackend backend;
+	private DiffAlgorithm.SupportedAlgorithm diffAlgorithm;
+	private CommitGraph commitGraph;
+	private Repository repository;
 
 	/**
-	 * Creates a git utility for a given github repository.
+	 * Creates a git utility for a given github repository, which is read once it has been opened.
 	 * @param githubURL the URL for the github repository
 	 */
 	public GitUtil(String githubURL) {
 		this.githubURL = githubURL;
-		this.path = System.getProperty("user.dir") + "/Repo";
+		this.repositoryManager = new RepositoryManager(new File(System.getProperty("user.dir") + "/Repos"));
+		this.commitGraph = new CommitGraph();
+		this.jgit = new JGitBackend(this.commitGraph);
+		this.backendName = "jgit";
+		this.diffAlgorithm = DiffAlgorithm.SupportedAlgorithm.MYERS;
+	}
+	
+	/**
+	 * Sets the git backend used for affected files, diffs and blames.
+	 * @param backendName "jgit" (in process, the default) or "cli" (long lived git processes)
+	 */
+	public void setBackend(String backendName) {
+		if (!backendName.equals("jgit") && !backendName.equals("cli"))
+			throw new IllegalArgumentException("Unknown git backend " + backendName);
+		this.backendName = backendName;
+	}
+	
+	/**
+	 * @return the git backend, created for the repository once it has been opened
+	 * @throws IllegalStateException if the repository has not been opened
+	 */
+	public synchronized GitBackend getBackend() {
+		getRepository();
+		if (this.backend == null)
+			this.backend = this.backendName.equals("cli") ? new CliBackend(new File(this.path), this.diffAlgorithm, this.commitGraph) : this.jgit;
+		return this.backend;
+	}
+	
+	/**
+	 * Sets the algorithm used when diffing a commit against its parent.
+	 * @param diffAlgorithm the diff algorithm (Myers or Histogram)
+	 */
+	public void setDiffAlgorithm(DiffAlgorithm.SupportedAlgorithm diffAlgorithm) {
+		this.diffAlgorithm = diffAlgorithm;
+		this.jgit.setDiffAlgorithm(diffAlgorithm);
+	}
+
+	/**
+	 * Replaces the blame cache of the JGit backend with one of the given size.
+	 * @param maximumBytes the maximum number of bytes of blamed files cached
+	 */
+	public void setBlameCacheSize(long maximumBytes) {
+		this.jgit.setBlameCacheSize(maximumBytes);
 	}
 
 	/**
-	 * Obtains the git logs for a github repository, also clones the repository.
+	 * Sets the manager of the local repository mirrors.
+	 * @param repositoryManager the repository manager
+	 */
+	public void setRepositoryManager(RepositoryManager repositoryManager) {
+		this.repositoryManager = repositoryManager;
+	}
+
+	/**
+	 * Opens the repository through the repository manager, which creates or updates its local mirror. 
+	 * Only the first call opens it, so walking the logs again sees the same commits.
+	 * @return the repository
+	 * @throws IOException if the mirror cannot be created or opened
+	 * @throws GitAPIException if cloning or fetching the mirror fails
+	 */
+	public synchronized Repository open() throws IOException, GitAPIException {
+		if (this.repository == null) {
+			this.repository = this.repositoryManager.open(this.githubURL);
+			this.path = this.repository.getDirectory().getPath();
+			this.jgit.setRepository(this.repository);
+		}
+		return this.repository;
+	}
+
+	/**
+	 * Obtains the git logs for a github repository, opening the repository if it has not been opened.
 	 * @return the git logs for a github repository.
 	 */
 	public Iterable<RevCommit> getGitLogs()	{		
 		try {
-			// Delete repository if exists
-			Path repoPath = Paths.get(this.path);
-			deleteRepository(this.path);
-
-			// Clone repository
-			System.out.println("Cloning github repository");
-			File f = new File(this.path);
-			Git git = Git.cloneRepository().setURI(this.githubURL).setDirectory(f).call();			
-
 			// Get git logs
-			git = Git.open(repoPath.toFile());
-			return git.log().call();
+			return Git.wrap(open()).log().call();
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -73,198 +133,70 @@ public class GitUtil {
 	}
 
 	/**
-	 * A helper funciton to delete a repository if it already exists locally.
-	 * @param directoryFilePath the repository path
+	 * @return the graph of the commits walked, commits are added by the caller walking the git logs
 	 */
-	private void deleteRepository(String directoryFilePath) {
-		Path directory = Paths.get(directoryFilePath);
-		try {
-			if (Files.exists(directory)) {
-				System.out.println("Existing git repository found, deleting repository...");
-				Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
-
-					public FileVisitResult visitFile(Path path, BasicFileAttributes basicFileAttributes)
-							throws IOException {
-						Files.delete(path);
-						return FileVisitResult.CONTINUE;
-					}
-
-					public FileVisitResult postVisitDirectory(Path directory, IOException ioException) throws IOException {
-						Files.delete(directory);
-						return FileVisitResult.CONTINUE;
-					}
-				});
-			}			
-		} catch (Exception e) {
-			e.printStackTrace();
-		}		
+	public CommitGraph getCommitGraph() {
+		return this.commitGraph;
 	}
-
+	
 	/**
-	 * @return The root commit for a given repository
+	 * @return the repository being mined
+	 * @throws IllegalStateException if the repository has not been opened
 	 */
-	public String getRootCommit() {
-		try {
-			String[] command = { "git", "rev-list", "HEAD", "--reverse" };
-			ProcessBuilder processBuilder = new ProcessBuilder(command);
-			File f = new File(this.path);
-			processBuilder.directory(f);
-			Process process = processBuilder.start();
-
-			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-			String line;
-			// Return first line (Root)
-			while ((line = reader.readLine()) != null)
-				return line;
-
-			int ec = process.waitFor();
-			if (ec != 0)
-				System.out.println("Error " + ec);
-
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		return "";
+	public synchronized Repository getRepository() {
+		if (this.repository == null)
+			throw new IllegalStateException("The repository of " + this.githubURL + " has not been opened");
+		return this.repository;
 	}
 	
 	/**
-	 * Obtains the files affected by a commit.
+	 * Obtains the files affected by a commit, the same as "git diff-tree --name-status -r". 
+	 * Merge and root commits have no affected files.
 	 * @param hash the commit hash
 	 * @return the files affected
+	 * @throws IOException if the commit cannot be read
 	 */
-	public String getFiles(String hash) {
-		String[] command = { "git", "diff-tree", "--no-commit-id", "--name-status", "-r", hash };
-		return executeCmd(command);
+	public ArrayList<AffectedFile> getFiles(String hash) throws IOException {
+		return getBackend().getFiles(hash);
 	}
 	
 	/**
-	 * Obtains the diff between a given commit and the commit previous for a given file.
+	 * Calculates the deleted lines of every given file of a commit against its previous commit. 
+	 * Files without a diff are not present in the result.
 	 * @param hash the commit hash
-	 * @param filename the file
-	 * @return the diff between a given commit and the previous commit
+	 * @param paths the files to be diffed
+	 * @return a hashmap of file path to the diff of that file
+	 * @throws IOException if the commit cannot be diffed
 	 */
-	public String getDiff(String hash, String filename) {
-		String[] command = { "git", "rev-parse", hash + "^" };
-		String previousHash = executeCmd(command).replaceAll("\n", "");
-
-		String[] diffCommand = { "git", "diff", "-U0", previousHash, hash, "--", filename };
-
-		return executeCmd(diffCommand);
+	public HashMap<String, FileDiff> getDiffs(String hash, Collection<String> paths) throws IOException {
+		return getBackend().getDiffs(hash, paths);
 	}
 
 	/**
 	 * Conducts a git blame on the previous commit of the commit given (The last commit without the fix).
-	 * Returns an arraylist of Blamed Lines. 
 	 * @param hash the commit hash
 	 * @param file the file to be blamed
 	 * @param linesRemoved the lines to be assessed
 	 * @return an arraylist of blamed lines
+	 * @throws IOException if the file cannot be blamed
 	 */
-	public ArrayList<BlameLine> blame(String hash, String file, ArrayList<Integer> linesRemoved) {
-		String[] command = { "git", "rev-parse", hash + "^" };
-		String previousHash = executeCmd(command).replaceAll("\n", "");
-		ArrayList<BlameLine> blamedLines = new ArrayList<>();
-		
-		try {
-			Git git = Git.open(Paths.get(this.path).toFile());		
-			ObjectId gitCommitToBeBlamed = git.getRepository().resolve(previousHash);		
-			BlameResult result = git.blame().setFilePath(file).setStartCommit(gitCommitToBeBlamed)
-						.setTextComparator(RawTextComparator.WS_IGNORE_ALL).call();
-
-			RawText rawText = result.getResultContents();
-			for (int line: linesRemoved) {
-				PersonIdent sourceAuthor = result.getSourceAuthor(line-1);
-				RevCommit sourceCommit = result.getSourceCommit(line-1);
-				if (sourceCommit != null) {
-					blamedLines.add(new BlameLine(sourceCommit.getName(), sourceCommit.getCommitTime(), line,
-							rawText.getString(line-1), sourceAuthor.getName()));
-				}
-			}		
-		} catch(Exception e) {
-			e.printStackTrace();
-		}		
-		return blamedLines;
+	public ArrayList<BlameLine> blame(String hash, String file, LineRanges linesRemoved) throws IOException {
+		return getBackend().blame(hash, file, linesRemoved);
 	}
 	
 	/**
-	 * Calculates the starting line number of a hunk within a diff. 
-	 * @param line the line of the diff
-	 * @return the starting line number
+	 * Prints the statistics of the git backend.
 	 */
-	private int getStartingHunk(String line) {
-		int lineNumber;
-		int leftIndex = line.indexOf('-');
-		leftIndex++;
-		char[] arr = line.toCharArray();
-		int rightIndex = leftIndex + 1;
-
-		while (arr[rightIndex] != ',' && arr[rightIndex] != ' ') {
-			rightIndex++;
-		}
-		String lineNumberParse = line.substring(leftIndex, rightIndex);
-		lineNumber = Integer.parseInt(lineNumberParse);
-		return lineNumber;
+	public void printStatistics() {
+		getBackend().printStatistics();
 	}
-
-	/**
-	 * Calculates the deleted lines within a diff.
-	 * @param diff the arraylist of diff lines
-	 * @return an arraylist of lines deleted
-	 */
-	public ArrayList<Integer> getLinesRemoved(ArrayList<String> diff) {
-		ArrayList<String> diffLines = diff;
-		int lineNumber = 1;
-		ArrayList<Integer> linesRemoved = new ArrayList<>();
-
-		for (int i = 4; i < diff.size(); i++) {
-			String line = diffLines.get(i);
-			switch (line.charAt(0)) {
-			case '@':
-				lineNumber = getStartingHunk(line);
-				break;
-			case '-':
-				linesRemoved.add(lineNumber);
-				lineNumber++;
-				break;
-			default:
-				break;
-			}
-
-		}
-		return linesRemoved;
-	}
-
+	
 	/**
-	 * A helper function that executes commands using a process builder.
-	 * @param command the command to be executed
-	 * @return the output of execution
+	 * Releases the git backend and the repository.
 	 */
-	private String executeCmd(String[] command) {
-		try {
-			ProcessBuilder processBuilder = new ProcessBuilder(command);
-			File f = new File(this.path);
-			processBuilder.directory(f);
-			Process process = processBuilder.start();
-
-			StringBuilder output = new StringBuilder();
-			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-			String line;
-
-			while ((line = reader.readLine()) != null) {
-				output.append(line + "\n");
-			}
-
-			int exitCode = process.waitFor();
-			if (exitCode != 0) {
-				System.out.println(exitCode);
-				return "";
-			}
-
-			return output.toString();
-
-		} catch (Exception e) {
-			e.printStackTrace();
-		} 
-		return "";
+	public void close() {
+		if (this.backend != null && this.backend != this.jgit)
+			this.backend.close();
+		this.jgit.close();
 	}
 }
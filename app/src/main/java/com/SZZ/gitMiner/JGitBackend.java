@@ -0,0 +1,266 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.jgit.api.BlameCommand;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.SZZ.entities.AffectedFile;
+import com.SZZ.entities.BlameLine;
+import com.SZZ.entities.FileDiff;
+import com.SZZ.entities.LineRanges;
+/**
+ * A git backend running in-process with JGit. One repository is shared by all threads, every 
+ * thread reuses its own object reader (see {@link SharedReaderRepository}) under short lived rev 
+ * walks, and blame results are cached.
+ * @author Thomas Watkins
+ */
+public class JGitBackend implements GitBackend {
+	private Repository repository;
+	private DiffAlgorithm.SupportedAlgorithm diffAlgorithm;
+	private BlameCache blameCache;
+	private CommitGraph commitGraph;
+	
+	/**
+	 * Creates a JGit backend, the repository is set once it has been opened.
+	 * @param commitGraph the graph of the walked commits, used to find parents
+	 */
+	public JGitBackend(CommitGraph commitGraph) {
+		this.commitGraph = commitGraph;
+		//Myers is the default algorithm of the git command line
+		this.diffAlgorithm = DiffAlgorithm.SupportedAlgorithm.MYERS;
+		//Roughly a tenth of the heap
+		this.blameCache = new BlameCache(Math.max(10L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 10));
+	}
+	
+	/**
+	 * Sets the repository used by this backend.
+	 * @param repository the repository
+	 */
+	public synchronized void setRepository(Repository repository) {
+		this.repository = repository;
+	}
+	
+	/**
+	 * @return the repository
+	 * @throws IllegalStateException if the repository has not been set
+	 */
+	public synchronized Repository getRepository() {
+		if (this.repository == null)
+			throw new IllegalStateException("The repository has not been opened");
+		return this.repository;
+	}
+	
+	/**
+	 * Sets the algorithm used when diffing a commit against its parent.
+	 * @param diffAlgorithm the diff algorithm (Myers or Histogram)
+	 */
+	public void setDiffAlgorithm(DiffAlgorithm.SupportedAlgorithm diffAlgorithm) {
+		this.diffAlgorithm = diffAlgorithm;
+	}
+	
+	/**
+	 * Replaces the blame cache with one of the given size.
+	 * @param maximumBytes the maximum number of bytes of blamed files cached
+	 */
+	public void setBlameCacheSize(long maximumBytes) {
+		this.blameCache = new BlameCache(maximumBytes);
+	}
+	
+	/**
+	 * @return the cache of blame results shared by all threads
+	 */
+	public BlameCache getBlameCache() {
+		return this.blameCache;
+	}
+	
+	/**
+	 * Obtains the files affected by a commit by walking the trees of the commit and its parent. 
+	 * Mirrors "git diff-tree --name-status -r", merge and root commits have no affected files.
+	 * @param hash the commit hash
+	 * @return the files affected
+	 * @throws IOException if the commit cannot be read
+	 */
+	@Override
+	public ArrayList<AffectedFile> getFiles(String hash) throws IOException {
+		ArrayList<AffectedFile> affectedFiles = new ArrayList<>();
+		try (RevWalk walk = new RevWalk(getRepository())) {
+			RevCommit commit = walk.parseCommit(ObjectId.fromString(hash));
+			if (commit.getParentCount() != 1)
+				return affectedFiles;
+			RevCommit parent = walk.parseCommit(commit.getParent(0));
+			
+			try (TreeWalk treeWalk = new TreeWalk(walk.getObjectReader())) {
+				treeWalk.setRecursive(true);
+				treeWalk.setFilter(TreeFilter.ANY_DIFF);
+				treeWalk.addTree(parent.getTree());
+				treeWalk.addTree(commit.getTree());
+				
+				while (treeWalk.next())
+					affectedFiles.add(new AffectedFile(getStatus(treeWalk.getRawMode(0), treeWalk.getRawMode(1)), treeWalk.getPathString()));
+			}
+		}
+		return affectedFiles;
+	}
+	
+	/**
+	 * A helper function to convert the modes of a path in the parent and commit trees into its git 
+	 * name-status letter. Renames are not detected, the same as diff-tree without -M.
+	 * @param oldMode the raw mode of the path in the parent
+	 * @param newMode the raw mode of the path in the commit
+	 * @return the status letter (A,M,D,T)
+	 */
+	private String getStatus(int oldMode, int newMode) {
+		if (oldMode == 0)
+			return "A";
+		if (newMode == 0)
+			return "D";
+		//A file replaced by a symlink (or the reverse) is a type change
+		if ((oldMode & FileMode.TYPE_MASK) != (newMode & FileMode.TYPE_MASK))
+			return "T";
+		return "M";
+	}
+	
+	/**
+	 * Calculates the deleted lines of every given file of a commit in a single in-process pass, 
+	 * diffing the commit against its previous commit. Equivalent to running "git diff -U0" for each 
+	 * file and reading its removed lines, files without a diff are not present in the result.
+	 * @param hash the commit hash
+	 * @param paths the files to be diffed
+	 * @return a hashmap of file path to the diff of that file
+	 * @throws IOException if the commit cannot be read
+	 */
+	@Override
+	public HashMap<String, FileDiff> getDiffs(String hash, Collection<String> paths) throws IOException {
+		HashMap<String, FileDiff> diffs = new HashMap<>();
+		if (paths.isEmpty())
+			return diffs;
+		
+		try (DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE); RevWalk walk = new RevWalk(getRepository())) {
+			RevCommit commit = walk.parseCommit(ObjectId.fromString(hash));
+			if (commit.getParentCount() == 0)
+				return diffs;
+			RevCommit parent = walk.parseCommit(commit.getParent(0));
+			
+			formatter.setReader(walk.getObjectReader(), getRepository().getConfig());
+			formatter.setDiffAlgorithm(DiffAlgorithm.getAlgorithm(this.diffAlgorithm));
+			formatter.setDiffComparator(RawTextComparator.DEFAULT);
+			formatter.setDetectRenames(false);
+			formatter.setPathFilter(PathFilterGroup.createFromStrings(paths));
+			
+			for (DiffEntry entry : formatter.scan(parent.getTree(), commit.getTree())) {
+				LineRanges removed = new LineRanges();
+				//Binary files have an empty edit list
+				for (Edit edit : formatter.toFileHeader(entry).toEditList())
+					removed.addRange(edit.getBeginA() + 1, edit.getEndA() + 1);
+				String file = entry.getChangeType() == DiffEntry.ChangeType.DELETE ? entry.getOldPath() : entry.getNewPath();
+				long size = entry.getChangeType() == DiffEntry.ChangeType.ADD ? 0 
+						: walk.getObjectReader().getObjectSize(entry.getOldId().toObjectId(), Constants.OBJ_BLOB);
+				diffs.put(file, new FileDiff(file, removed, size));
+			}
+		}
+		return diffs;
+	}
+	
+	/**
+	 * Conducts a git blame on the previous commit of the commit given (The last commit without the fix).
+	 * Returns an arraylist of Blamed Lines. Blames are cached by previous commit and file, and read 
+	 * through the object reader of the calling thread.
+	 * @param hash the commit hash
+	 * @param file the file to be blamed
+	 * @param linesRemoved the lines to be assessed
+	 * @return an arraylist of blamed lines
+	 * @throws IOException if the file cannot be blamed
+	 */
+	@Override
+	public ArrayList<BlameLine> blame(String hash, String file, LineRanges linesRemoved) throws IOException {
+		ArrayList<BlameLine> blamedLines = new ArrayList<>();
+		
+		ObjectId gitCommitToBeBlamed = getParent(hash);
+		if (gitCommitToBeBlamed == null)
+			return blamedLines;
+		BlamedFile result;
+		try {
+			//A file missing at the blamed commit has no result, so no suspects
+			result = this.blameCache.get(gitCommitToBeBlamed, file, () -> 
+					BlamedFile.of(new BlameCommand(getRepository()).setFilePath(file).setStartCommit(gitCommitToBeBlamed)
+						.setTextComparator(RawTextComparator.WS_IGNORE_ALL).call()));
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException("Could not blame " + file + " at " + gitCommitToBeBlamed.getName(), e.getCause());
+		} catch (UncheckedExecutionException e) {
+			throw new IOException("Could not blame " + file + " at " + gitCommitToBeBlamed.getName(), e.getCause());
+		}
+
+		for (int range = 0; range < linesRemoved.size(); range++) {
+			for (int line = linesRemoved.getStart(range); line < linesRemoved.getEnd(range) && line <= result.size(); line++) {
+				if (result.hasSource(line-1)) {
+					blamedLines.add(new BlameLine(result.getHash(line-1), result.getTime(line-1), line,
+							result.getLine(line-1), result.getAuthor(line-1)));
+				}
+			}
+		}
+		return blamedLines;
+	}
+	
+	/**
+	 * A helper function to find the first parent of a commit, from the commit graph if the commit has 
+	 * been walked.
+	 * @param hash the commit hash
+	 * @return the first parent, null for a root commit
+	 * @throws IOException if the commit cannot be read
+	 */
+	private ObjectId getParent(String hash) throws IOException {
+		if (this.commitGraph.getId(hash) >= 0)
+			return this.commitGraph.getFirstParent(hash);
+		try (RevWalk walk = new RevWalk(getRepository())) {
+			RevCommit commit = walk.parseCommit(ObjectId.fromString(hash));
+			return commit.getParentCount() == 0 ? null : commit.getParent(0).copy();
+		}
+	}
+	
+	@Override
+	public void printStatistics() {
+		this.blameCache.printStatistics();
+	}
+	
+	/**
+	 * Releases the repository and the object readers of all threads.
+	 */
+	@Override
+	public void close() {
+		if (this.repository != null)
+			this.repository.close();
+	}
+}
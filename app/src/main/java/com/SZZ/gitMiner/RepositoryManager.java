@@ -0,0 +1,144 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+/**
+ * Keeps a bare mirror of every mined repository in a cache directory. The first run clones the 
+ * repository (or seeds it from a local repository or git bundle), later runs only fetch new objects.
+ * No working tree is ever written as the pipeline only reads from the object database.
+ * @author Thomas Watkins
+ */
+public class RepositoryManager {
+	private File cacheDirectory;
+	private String seed;
+	private boolean offline;
+	
+	/**
+	 * Creates a repository manager storing mirrors in the given directory.
+	 * @param cacheDirectory the directory holding the mirrors
+	 */
+	public RepositoryManager(File cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+		this.offline = false;
+	}
+	
+	/**
+	 * Sets a local repository path or git bundle file used to create a mirror that does not exist yet.
+	 * @param seed the local repository or bundle
+	 */
+	public void setSeed(String seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * @param offline true to never contact the remote, mirrors are used as they are
+	 */
+	public void setOffline(boolean offline) {
+		this.offline = offline;
+	}
+	
+	/**
+	 * @param url the repository url
+	 * @return the directory of the mirror for the url
+	 */
+	public File getMirrorDirectory(String url) {
+		String name = url.replaceFirst("^[a-zA-Z]+://", "").replaceFirst("\\.git$", "").replaceAll("[^A-Za-z0-9._-]", "_");
+		return new File(this.cacheDirectory, name + ".git");
+	}
+	
+	/**
+	 * Gives a short name of a repository that is safe in a file name, its owner and name, such as 
+	 * apache_ace for https://github.com/apache/ace.git.
+	 * @param url the repository url
+	 * @return the name of the repository
+	 */
+	public static String getRepositoryName(String url) {
+		String[] segments = url.replaceFirst("\\.git/*$", "").split("[/:]+");
+		String name = segments[segments.length - 1];
+		if (segments.length > 1 && !segments[segments.length - 2].isEmpty())
+			name = segments[segments.length - 2] + "_" + name;
+		return name.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+	
+	/**
+	 * Opens the mirror of a repository, creating or updating it first.
+	 * @param url the repository url
+	 * @return the mirror repository
+	 * @throws IOException if the mirror cannot be created or opened
+	 * @throws GitAPIException if cloning or fetching fails
+	 */
+	public Repository open(String url) throws IOException, GitAPIException {
+		File mirror = getMirrorDirectory(url);
+		
+		if (!new File(mirror, "objects").isDirectory()) {
+			if (this.offline && this.seed == null)
+				throw new IOException("No mirror of " + url + " in " + this.cacheDirectory + " and running offline");
+			
+			String source = this.seed != null ? this.seed : url;
+			System.out.println("Creating mirror of " + url + " from " + source);
+			Git git = Git.cloneRepository().setURI(source).setDirectory(mirror).setBare(true).call();
+			
+			//Point the mirror at the real remote so later runs fetch from it
+			if (this.seed != null) {
+				StoredConfig config = git.getRepository().getConfig();
+				config.setString("remote", Constants.DEFAULT_REMOTE_NAME, "url", url);
+				config.save();
+			}
+			git.close();
+			if (this.seed == null || this.offline)
+				return openMirror(mirror);
+		}
+		
+		if (!this.offline) {
+			System.out.println("Fetching new objects for " + url);
+			try (Git git = Git.open(mirror)) {
+				git.fetch().setRemote(Constants.DEFAULT_REMOTE_NAME).setRemoveDeletedRefs(true).call();
+			}
+		}
+		return openMirror(mirror);
+	}
+	
+	/**
+	 * A helper function to open a mirror, ensuring its HEAD points at a branch. Bundles and some 
+	 * remotes do not advertise HEAD, in which case master, main or the first branch is used.
+	 * @param mirror the mirror directory
+	 * @return the mirror repository
+	 * @throws IOException if the mirror cannot be opened
+	 */
+	private Repository openMirror(File mirror) throws IOException {
+		Repository repository = SharedReaderRepository.open(mirror);
+		if (repository.resolve(Constants.HEAD) != null)
+			return repository;
+		
+		Ref branch = repository.exactRef(Constants.R_HEADS + Constants.MASTER);
+		if (branch == null)
+			branch = repository.exactRef(Constants.R_HEADS + "main");
+		if (branch == null && !repository.getRefDatabase().getRefsByPrefix(Constants.R_HEADS).isEmpty())
+			branch = repository.getRefDatabase().getRefsByPrefix(Constants.R_HEADS).get(0);
+		if (branch == null)
+			throw new IOException("Mirror " + mirror + " has no branches");
+		
+		RefUpdate update = repository.updateRef(Constants.HEAD);
+		update.link(branch.getName());
+		return repository;
+	}
+}
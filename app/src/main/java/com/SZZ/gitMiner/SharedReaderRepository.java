@@ -0,0 +1,93 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+/**
+ * A repository on disk giving every thread a single object reader, which is reused by all of the rev walks, 
+ * tree walks, diffs and blames of that thread. A reader keeps the pack windows and inflated delta bases it 
+ * last used, so reusing it saves reading and inflating the same objects again. JGit's blame only takes a 
+ * repository and opens its own reader, so the reuse is done by the repository. The readers handed out 
+ * ignore close and are closed with the repository.
+ * @author Thomas Watkins
+ */
+public class SharedReaderRepository extends FileRepository {
+	private ThreadLocal<ObjectReader> readers;
+	private ConcurrentLinkedQueue<ObjectReader> openReaders;
+	
+	/**
+	 * Opens a repository.
+	 * @param builder the settings of the repository, already set up
+	 * @throws IOException if the repository cannot be opened
+	 */
+	private SharedReaderRepository(FileRepositoryBuilder builder) throws IOException {
+		super(builder);
+		this.openReaders = new ConcurrentLinkedQueue<>();
+		this.readers = ThreadLocal.withInitial(() -> {
+			ObjectReader reader = getObjectDatabase().newReader();
+			this.openReaders.add(reader);
+			return reader;
+		});
+	}
+	
+	/**
+	 * Opens the repository of a git directory, a bare repository or the .git directory of a working tree.
+	 * @param gitDirectory the git directory
+	 * @return the repository
+	 * @throws IOException if there is no repository in the directory or it cannot be opened
+	 */
+	public static SharedReaderRepository open(File gitDirectory) throws IOException {
+		if (!new File(gitDirectory, "objects").isDirectory())
+			throw new RepositoryNotFoundException(gitDirectory);
+		FileRepositoryBuilder builder = new FileRepositoryBuilder();
+		builder.setGitDir(gitDirectory).setMustExist(true).setup();
+		return new SharedReaderRepository(builder);
+	}
+	
+	/**
+	 * Returns the object reader of the calling thread, which must not be passed to other threads.
+	 * @return the object reader of the calling thread, closing it has no effect
+	 */
+	@Override
+	public ObjectReader newObjectReader() {
+		ObjectReader reader = this.readers.get();
+		return new ObjectReader.Filter() {
+			@Override
+			protected ObjectReader delegate() {
+				return reader;
+			}
+			
+			@Override
+			public void close() {
+				//Kept open for the next user of the thread
+			}
+		};
+	}
+	
+	/**
+	 * Closes the readers of every thread, then the repository.
+	 */
+	@Override
+	protected void doClose() {
+		ObjectReader reader;
+		while ((reader = this.openReaders.poll()) != null)
+			reader.close();
+		super.doClose();
+	}
+}
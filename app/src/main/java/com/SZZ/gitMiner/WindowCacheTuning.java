@@ -0,0 +1,100 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheStats;
+/**
+ * Settings for the JGit window cache that holds pack file data in memory. The JGit defaults 
+ * (10MB of pack data, 10MB of delta bases) are far too small for large repositories, so by 
+ * default the settings are sized from the maximum heap of the JVM.
+ * @author Thomas Watkins
+ */
+public class WindowCacheTuning {
+	private static final int MB = 1024 * 1024;
+	private static final int KB = 1024;
+	
+	private long packedGitLimit;
+	private int packedGitWindowSize;
+	private boolean packedGitMMAP;
+	private int deltaBaseCacheLimit;
+	
+	/**
+	 * Creates window cache settings sized from the maximum heap of the JVM.
+	 */
+	public WindowCacheTuning() {
+		long heap = Runtime.getRuntime().maxMemory();
+		this.packedGitLimit = Math.max(10L * MB, heap / 4);
+		this.packedGitWindowSize = this.packedGitLimit >= 256L * MB ? 64 * KB : 8 * KB;
+		this.packedGitMMAP = false;
+		this.deltaBaseCacheLimit = (int) Math.min(256L * MB, Math.max(10L * MB, heap / 16));
+	}
+	
+	/**
+	 * @param packedGitLimit the maximum number of bytes of pack data held in memory
+	 */
+	public void setPackedGitLimit(long packedGitLimit) {
+		this.packedGitLimit = packedGitLimit;
+	}
+	
+	/**
+	 * @param packedGitWindowSize the number of bytes of a pack file read into one window, must be a power of 2
+	 */
+	public void setPackedGitWindowSize(int packedGitWindowSize) {
+		this.packedGitWindowSize = packedGitWindowSize;
+	}
+	
+	/**
+	 * @param packedGitMMAP true to memory map pack files instead of reading them onto the heap
+	 */
+	public void setPackedGitMMAP(boolean packedGitMMAP) {
+		this.packedGitMMAP = packedGitMMAP;
+	}
+	
+	/**
+	 * @param deltaBaseCacheLimit the maximum number of bytes of inflated delta bases held in memory
+	 */
+	public void setDeltaBaseCacheLimit(int deltaBaseCacheLimit) {
+		this.deltaBaseCacheLimit = deltaBaseCacheLimit;
+	}
+	
+	/**
+	 * Installs these settings as the window cache of the JVM. Must be called before any repository is read.
+	 */
+	public void install() {
+		WindowCacheConfig config = new WindowCacheConfig();
+		config.setPackedGitLimit(this.packedGitLimit);
+		config.setPackedGitWindowSize(this.packedGitWindowSize);
+		config.setPackedGitMMAP(this.packedGitMMAP);
+		config.setDeltaBaseCacheLimit(this.deltaBaseCacheLimit);
+		config.install();
+		System.out.println("Window Cache: " + this);
+	}
+	
+	/**
+	 * Prints the hit and miss ratio of the window cache for this run.
+	 */
+	public static void printStatistics() {
+		WindowCacheStats stats = WindowCacheStats.getStats();
+		System.out.println(String.format("Window Cache Hits: %d Misses: %d Hit Ratio: %.3f Evictions: %d Open Files: %d Open Bytes: %d",
+				stats.getHitCount(), stats.getMissCount(), stats.getHitRatio(), stats.getEvictionCount(),
+				stats.getOpenFileCount(), stats.getOpenByteCount()));
+	}
+	
+	@Override
+	public String toString() {
+		return "packedGitLimit=" + (this.packedGitLimit / MB) + "MB"
+				+ " packedGitWindowSize=" + (this.packedGitWindowSize / KB) + "KB"
+				+ " packedGitMMAP=" + this.packedGitMMAP
+				+ " deltaBaseCacheLimit=" + (this.deltaBaseCacheLimit / MB) + "MB";
+	}
+}
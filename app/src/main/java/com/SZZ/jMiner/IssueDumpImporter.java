@@ -0,0 +1,401 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.jMiner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.SZZ.entities.Bug;
+import com.SZZ.entities.TaskScheduler;
+/**
+ * Imports the issues of a Jira export file for trackers that cannot be reached, giving the same 
+ * issues as {@link JiraMiner#mineIssues()}. A dump is either an XML search view export or JSON in 
+ * the form of REST search responses (one or several one after another) or an array of issues. 
+ * The file is memory mapped and a single pass finds where each issue starts and ends, handing 
+ * runs of issues to the scheduler as they are found, where they are read by the parser of the 
+ * matching {@link IssueSource}. The dump is never held in memory as a whole.
+ * @author Thomas Watkins
+ */
+public class IssueDumpImporter {
+	//Bytes of issues read as one task
+	private static final long CHUNK_SIZE = 8 << 20;
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+	private static final byte[] CDATA_START = "<![CDATA[".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CDATA_END = "]]>".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] COMMENT_START = "<!--".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] COMMENT_END = "-->".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] ITEM_START = "<item".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] ITEM_END = "</item>".getBytes(StandardCharsets.US_ASCII);
+	private static final int TEXT = 0;
+	private static final int CDATA = 1;
+	private static final int COMMENT = 2;
+	private static final byte[] ISSUES = "\"issues\"".getBytes(StandardCharsets.US_ASCII);
+	
+	private TaskScheduler scheduler;
+	private HashSet<String> projectKeys;
+	private HashMap<String, Bug> issues;
+	private AtomicReference<IOException> failure;
+	
+	//The state of a single import
+	private FileChannel channel;
+	private MappedByteBuffer[] segments;
+	private long size;
+	private boolean xml;
+	private ArrayList<ForkJoinTask<?>> tasks;
+	private long chunkStart;
+	private long chunkEnd;
+	//Whether only separators have been seen since the end of the last issue
+	private boolean separated;
+	
+	/**
+	 * Creates an importer keeping the fixed bugs of the given projects.
+	 * @param scheduler the scheduler reading runs of issues
+	 * @param projectKeys the keys of the Jira projects whose issues are kept
+	 */
+	public IssueDumpImporter(TaskScheduler scheduler, Collection<String> projectKeys) {
+		this.scheduler = scheduler;
+		this.projectKeys = new HashSet<>();
+		for(String key: projectKeys)
+			this.projectKeys.add(key.toLowerCase());
+	}
+	
+	/**
+	 * Imports the issues of dump files. Only issues that match the query {@link JiraMiner} makes, 
+	 * fixed bugs that are resolved or closed, are kept, as dumps may hold every issue of a tracker.
+	 * @param dumps the dump files
+	 * @return HashMap containing the imported issues
+	 * @throws IOException if a dump cannot be read or is not well formed
+	 */
+	public HashMap<String, Bug> importIssues(List<File> dumps) throws IOException {
+		this.issues = new HashMap<>();
+		this.failure = new AtomicReference<>();
+		for(File dump: dumps) {
+			long start = System.currentTimeMillis();
+			int before = this.issues.size();
+			importDump(dump);
+			System.out.println("Imported " + (this.issues.size() - before) + " issues from " + dump 
+					+ " in " + (System.currentTimeMillis() - start) + "ms");
+		}
+		return this.issues;
+	}
+	
+	/**
+	 * Imports a single dump, waiting for every run of issues to be read.
+	 * @param dump the dump file
+	 */
+	private void importDump(File dump) throws IOException {
+		try (FileChannel channel = FileChannel.open(dump.toPath(), StandardOpenOption.READ)) {
+			this.channel = channel;
+			this.size = channel.size();
+			this.segments = new MappedByteBuffer[(int) ((this.size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+			for(int i = 0; i < this.segments.length; i++) {
+				long offset = (long) i << SEGMENT_BITS;
+				this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(this.size - offset, 1L << SEGMENT_BITS));
+			}
+			this.tasks = new ArrayList<>();
+			this.chunkStart = -1;
+			this.separated = false;
+			
+			long first = 0;
+			while(first < this.size && Character.isWhitespace(get(first)))
+				first++;
+			if(first == this.size)
+				return;
+			this.xml = get(first) == '<';
+			if(this.xml)
+				scanXml();
+			else
+				scanJson();
+			if(this.chunkStart >= 0)
+				submitChunk();
+			for(ForkJoinTask<?> task: this.tasks)
+				task.join();
+		} finally {
+			this.segments = null;
+			this.tasks = null;
+		}
+		if(this.failure.get() != null)
+			throw new IOException("Could not import " + dump, this.failure.get());
+	}
+	
+	/**
+	 * Finds the items of an XML dump. Outside of character data and comments, the start of an 
+	 * item can only be an element, as text and attributes cannot hold a "<".
+	 */
+	private void scanXml() {
+		int depth = 0;
+		long itemStart = 0;
+		int state = TEXT;
+		//Bytes before this offset have already been read as part of a pattern
+		long skip = 0;
+		for(int s = 0; s < this.segments.length; s++) {
+			MappedByteBuffer segment = this.segments[s];
+			long base = (long) s << SEGMENT_BITS;
+			for(int i = 0, limit = segment.limit(); i < limit; i++) {
+				byte b = segment.get(i);
+				long pos = base + i;
+				if(pos < skip)
+					continue;
+				if(state == CDATA) {
+					if(b == ']' && matches(pos, CDATA_END)) {
+						state = TEXT;
+						skip = pos + CDATA_END.length;
+					}
+				} else if(state == COMMENT) {
+					if(b == '-' && matches(pos, COMMENT_END)) {
+						state = TEXT;
+						skip = pos + COMMENT_END.length;
+					}
+				} else if(b == '<') {
+					if(matches(pos, CDATA_START)) {
+						state = CDATA;
+						skip = pos + CDATA_START.length;
+					} else if(matches(pos, COMMENT_START)) {
+						state = COMMENT;
+						skip = pos + COMMENT_START.length;
+					} else if(matches(pos, ITEM_START) && pos + ITEM_START.length < this.size && isNameEnd(get(pos + ITEM_START.length))) {
+						if(depth++ == 0)
+							itemStart = pos;
+					} else if(depth > 0 && matches(pos, ITEM_END)) {
+						skip = pos + ITEM_END.length;
+						if(--depth == 0)
+							issueFound(itemStart, skip);
+					} else if(depth == 0) {
+						this.separated = false;
+					}
+				} else if(depth == 0 && !Character.isWhitespace(b)) {
+					this.separated = false;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Finds the issues of a JSON dump, the objects in a top level array or in an "issues" array.
+	 */
+	private void scanJson() {
+		//Whether each open array holds issues, by depth
+		boolean[] issueArrays = new boolean[64];
+		int depth = 0;
+		//The depth of the issue being read, -1 between issues
+		int issueDepth = -1;
+		long issueStart = 0;
+		long lastString = -1;
+		//The offset of the name of the value that follows, -1 if it is not a member of an object
+		long name = -1;
+		boolean string = false;
+		//Bytes before this offset have already been read as part of an escape
+		long skip = 0;
+		for(int s = 0; s < this.segments.length; s++) {
+			MappedByteBuffer segment = this.segments[s];
+			long base = (long) s << SEGMENT_BITS;
+			for(int i = 0, limit = segment.limit(); i < limit; i++) {
+				byte b = segment.get(i);
+				long pos = base + i;
+				if(string) {
+					if(pos < skip)
+						continue;
+					if(b == '\\')
+						skip = pos + 2;
+					else if(b == '"')
+						string = false;
+					continue;
+				}
+				if(b == ',' || Character.isWhitespace(b))
+					continue;
+				if(b == ':') {
+					name = lastString;
+					continue;
+				}
+				if(issueDepth < 0 && b != '{')
+					this.separated = false;
+				switch(b) {
+				case '"':
+					lastString = pos;
+					string = true;
+					break;
+				case '{':
+				case '[':
+					if(depth == issueArrays.length)
+						issueArrays = Arrays.copyOf(issueArrays, depth * 2);
+					if(b == '{' && issueDepth < 0) {
+						if(depth > 0 && issueArrays[depth - 1]) {
+							issueDepth = depth;
+							issueStart = pos;
+						} else {
+							this.separated = false;
+						}
+					}
+					issueArrays[depth] = b == '[' && issueDepth < 0 && (depth == 0 || (name >= 0 && matches(name, ISSUES)));
+					depth++;
+					break;
+				case '}':
+				case ']':
+					depth--;
+					if(b == '}' && depth == issueDepth) {
+						issueDepth = -1;
+						issueFound(issueStart, pos + 1);
+					}
+					break;
+				default:
+					break;
+				}
+				if(b != '"')
+					name = -1;
+			}
+		}
+	}
+	
+	/**
+	 * Adds an issue to the run of issues being found, handing the run to the scheduler first if it 
+	 * is large enough or the issue does not directly follow it.
+	 * @param start the offset of the issue
+	 * @param end the offset after the issue
+	 */
+	private void issueFound(long start, long end) {
+		if(this.chunkStart >= 0 && (!this.separated || end - this.chunkStart > CHUNK_SIZE))
+			submitChunk();
+		if(this.chunkStart < 0)
+			this.chunkStart = start;
+		this.chunkEnd = end;
+		this.separated = true;
+	}
+	
+	/**
+	 * Hands the run of issues found to the scheduler.
+	 */
+	private void submitChunk() {
+		long start = this.chunkStart;
+		long length = this.chunkEnd - this.chunkStart;
+		this.chunkStart = -1;
+		if(length > Integer.MAX_VALUE) {
+			this.failure.compareAndSet(null, new IOException("Issue of more than 2GB at " + start));
+			return;
+		}
+		ByteBuffer chunk;
+		try {
+			chunk = this.channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+		} catch (IOException e) {
+			this.failure.compareAndSet(null, e);
+			return;
+		}
+		boolean xml = this.xml;
+		this.tasks.add(this.scheduler.submit(() -> readChunk(chunk, xml)));
+	}
+	
+	/**
+	 * Reads a run of issues, wrapped so it is a whole response of the matching source.
+	 * @param chunk the issues
+	 * @param xml true if the issues are XML items, false if they are JSON objects
+	 */
+	private void readChunk(ByteBuffer chunk, boolean xml) {
+		String prefix = xml ? "<?xml version=\"1.0\" encoding=\"UTF-8\"?><rss><channel>" : "{\"issues\":[";
+		String suffix = xml ? "</channel></rss>" : "]}";
+		IssueSource source = xml ? new XmlIssueParser() : new JsonIssueParser();
+		InputStream stream = new SequenceInputStream(new ByteArrayInputStream(prefix.getBytes(StandardCharsets.UTF_8)), 
+				new SequenceInputStream(new BufferInputStream(chunk), new ByteArrayInputStream(suffix.getBytes(StandardCharsets.UTF_8))));
+		HashMap<String, Bug> found = new HashMap<>();
+		try {
+			source.parse(stream, new IssueHandler() {
+				@Override
+				public void total(long total) {
+				}
+				
+				@Override
+				public void issue(String issueKey, Bug bug) {
+					int dash = issueKey.lastIndexOf('-');
+					if(dash > 0 && projectKeys.contains(issueKey.substring(0, dash).toLowerCase()) && JiraMiner.isFixed(bug))
+						found.put(bug.getIssueKey(), bug);
+				}
+			});
+		} catch (IOException e) {
+			this.failure.compareAndSet(null, e);
+			return;
+		}
+		synchronized(this.issues) {
+			this.issues.putAll(found);
+		}
+	}
+	
+	/**
+	 * @param pos an offset in the dump
+	 * @return the byte at the offset
+	 */
+	private byte get(long pos) {
+		return this.segments[(int) (pos >>> SEGMENT_BITS)].get((int) (pos & SEGMENT_MASK));
+	}
+	
+	/**
+	 * @param pos an offset in the dump
+	 * @param pattern the bytes looked for
+	 * @return true if the bytes at the offset are the pattern
+	 */
+	private boolean matches(long pos, byte[] pattern) {
+		if(pos + pattern.length > this.size)
+			return false;
+		for(int i = 0; i < pattern.length; i++) {
+			if(get(pos + i) != pattern[i])
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * @param b the byte after "<item"
+	 * @return true if the element name ends there, so the element is an item
+	 */
+	private static boolean isNameEnd(byte b) {
+		return b == '>' || b == '/' || Character.isWhitespace(b);
+	}
+	
+	/**
+	 * Reads the bytes of a buffer.
+	 */
+	private static class BufferInputStream extends InputStream {
+		private ByteBuffer buffer;
+		
+		private BufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+		
+		@Override
+		public int read() {
+			return this.buffer.hasRemaining() ? this.buffer.get() & 0xff : -1;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if(!this.buffer.hasRemaining())
+				return -1;
+			length = Math.min(length, this.buffer.remaining());
+			this.buffer.get(bytes, offset, length);
+			return length;
+		}
+	}
+}
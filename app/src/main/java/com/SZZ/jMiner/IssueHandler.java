@@ -0,0 +1,40 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.jMiner;
+
+import com.SZZ.entities.Bug;
+/**
+ * Receives issues as they are read from a Jira response.
+ * @author Thomas Watkins
+ */
+public interface IssueHandler {
+	
+	/**
+	 * Called with the total number of issues of the search, before its issues.
+	 * @param total the total number of issues
+	 */
+	void total(long total);
+	
+	/**
+	 * Called with the number of issues the server gives per page when it is fewer than were asked for.
+	 * @param size the number of issues per page
+	 */
+	default void pageSize(int size) {
+	}
+	
+	/**
+	 * Called for every issue as soon as it has been read.
+	 * @param issueKey the issue key as Jira gives it
+	 * @param bug the issue, keyed in lower case
+	 */
+	void issue(String issueKey, Bug bug);
+}
@@ -0,0 +1,64 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.jMiner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+/**
+ * A way of searching Jira for issues: the address of a page of a search and the parser of its response.
+ * @author Thomas Watkins
+ */
+public interface IssueSource {
+	
+	/**
+	 * @param jiraUrl the address of the Jira instance, such as "https://issues.apache.org"
+	 * @param jql the JQL query
+	 * @param start the index of the first issue of the page
+	 * @param max the number of issues asked for
+	 * @return the address of the page
+	 */
+	String getPageUrl(String jiraUrl, String jql, int start, int max);
+	
+	/**
+	 * Reads a page.
+	 * @param stream the response
+	 * @param handler the handler given the total and every issue
+	 * @throws IOException if the response cannot be read or is not well formed
+	 */
+	void parse(InputStream stream, IssueHandler handler) throws IOException;
+	
+	/**
+	 * Creates a source by name.
+	 * @param name "xml" for the XML search view or "rest" for the REST search
+	 * @return the source
+	 */
+	static IssueSource create(String name) {
+		switch(name.toLowerCase()) {
+		case "xml":
+			return new XmlIssueParser();
+		case "rest":
+			return new JsonIssueParser();
+		default:
+			throw new IllegalArgumentException("Unknown Jira API: " + name);
+		}
+	}
+	
+	/**
+	 * @param value a query parameter
+	 * @return the parameter encoded for an address
+	 */
+	static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+	}
+}
@@ -0,0 +1,311 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.jMiner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.SZZ.entities.Bug;
+/**
+ * The issues of a Jira project kept on disk between runs, with the time they were last synchronized. 
+ * After the first full pull only the issues updated since the last synchronization need fetching and 
+ * merging. A store can be seeded from the {@code KEY-i.csv} page files of earlier runs, and is written 
+ * back to page files in the same format once it changes.
+ * @author Thomas Watkins
+ */
+public class IssueStore {
+	private static final int VERSION = 1;
+	private static final int PAGE_SIZE = 1000;
+	private static final String HEADER = "IssueKey;Title;Resolution;Status;Assignee;CreatedDate;ResolvedDate;Attachments;";
+	
+	private String jiraKey;
+	//The time of the start of the last complete synchronization, 0 if there has been none
+	private long lastSync;
+	//The issue keys as given by Jira, by the lower case key of the bug
+	private HashMap<String, String> issueKeys;
+	private HashMap<String, Bug> issues;
+	
+	/**
+	 * Creates an empty issue store.
+	 * @param jiraKey the key of the Jira project
+	 */
+	public IssueStore(String jiraKey) {
+		this.jiraKey = jiraKey;
+		this.issueKeys = new HashMap<>();
+		this.issues = new HashMap<>();
+	}
+	
+	/**
+	 * Loads the issue store of a project. If there is none it is seeded from the page files of an 
+	 * earlier run, and is empty if there are none of those either.
+	 * @param file the store file
+	 * @param jiraKey the key of the Jira project
+	 * @return the issue store
+	 */
+	public static IssueStore load(File file, String jiraKey) {
+		IssueStore store = new IssueStore(jiraKey);
+		if(!file.exists())
+			return seed(jiraKey);
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+			if(in.readInt() != VERSION || !readString(in).equals(jiraKey)) {
+				System.out.println("Issue store of " + jiraKey + " is not usable, fetching every issue");
+				return store;
+			}
+			store.lastSync = in.readLong();
+			int count = in.readInt();
+			for(int i = 0; i < count; i++) {
+				String issueKey = readString(in);
+				String title = readString(in);
+				String resolution = readString(in);
+				String status = readString(in);
+				String assignee = readString(in);
+				long createdDate = in.readLong();
+				long resolvedDate = in.readLong();
+				int attachments = in.readInt();
+				ArrayList<String> attachmentsList = new ArrayList<>(attachments);
+				for(int j = 0; j < attachments; j++)
+					attachmentsList.add(readString(in));
+				store.put(issueKey, new Bug(issueKey.toLowerCase(), title, resolution, status, assignee, createdDate, resolvedDate, attachmentsList));
+			}
+			System.out.println("Loaded " + count + " stored issues of " + jiraKey);
+		} catch (Exception e) {
+			System.out.println("Could not read the issue store of " + jiraKey + ", fetching every issue");
+			e.printStackTrace();
+			return new IssueStore(jiraKey);
+		}
+		return store;
+	}
+	
+	/**
+	 * Seeds a store from the page files of an earlier run. The pages are as old as the oldest of 
+	 * them, so the next synchronization fetches every issue updated since.
+	 * @param jiraKey the key of the Jira project
+	 * @return the seeded store, empty if there are no page files
+	 */
+	private static IssueStore seed(String jiraKey) {
+		IssueStore store = new IssueStore(jiraKey);
+		long oldest = Long.MAX_VALUE;
+		for(int page = 0; ; page++) {
+			File file = getPageFile(jiraKey, page);
+			if(!file.exists())
+				break;
+			oldest = Math.min(oldest, file.lastModified());
+			try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+				reader.readLine();
+				String line;
+				while((line = reader.readLine()) != null) {
+					Bug bug = parseLine(line);
+					if(bug != null)
+						store.put(line.substring(0, line.indexOf(';')), bug);
+				}
+			} catch (IOException e) {
+				System.out.println("Could not read " + file + ", fetching every issue");
+				e.printStackTrace();
+				return new IssueStore(jiraKey);
+			}
+		}
+		if(oldest != Long.MAX_VALUE) {
+			store.lastSync = oldest;
+			System.out.println("Seeded " + store.size() + " issues of " + jiraKey + " from its page files");
+		}
+		return store;
+	}
+	
+	/**
+	 * Reads an issue written to a page file. Titles never contain the separator, so the fields 
+	 * after the title are counted from the end of the line.
+	 * @param line the line of the page file
+	 * @return the issue, or null if the line is not an issue
+	 */
+	private static Bug parseLine(String line) {
+		String[] fields = line.split(";", -1);
+		int n = fields.length;
+		if(n < 9)
+			return null;
+		try {
+			String attachments = fields[n - 2];
+			List<String> attachmentsList = new ArrayList<>();
+			if(attachments.length() > 2)
+				attachmentsList.addAll(Arrays.asList(attachments.substring(1, attachments.length() - 1).split(", ")));
+			return new Bug(fields[0].toLowerCase(), fields[1], fields[n - 7], fields[n - 6], fields[n - 5],
+					Long.parseLong(fields[n - 4]), Long.parseLong(fields[n - 3]), attachmentsList);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Adds an issue, replacing any stored version of it.
+	 * @param issueKey the issue key as given by Jira
+	 * @param bug the issue
+	 */
+	public synchronized void put(String issueKey, Bug bug) {
+		this.issueKeys.put(bug.getIssueKey(), issueKey);
+		this.issues.put(bug.getIssueKey(), bug);
+	}
+	
+	/**
+	 * Removes an issue that no longer belongs in the store.
+	 * @param bug the issue
+	 */
+	public synchronized void remove(Bug bug) {
+		this.issueKeys.remove(bug.getIssueKey());
+		this.issues.remove(bug.getIssueKey());
+	}
+	
+	/**
+	 * @return a copy of the stored issues by issue key
+	 */
+	public synchronized HashMap<String, Bug> getIssues() {
+		return new HashMap<>(this.issues);
+	}
+	
+	/**
+	 * @return the number of stored issues
+	 */
+	public synchronized int size() {
+		return this.issues.size();
+	}
+	
+	/**
+	 * @return the time in milliseconds of the start of the last complete synchronization, 0 if there has been none
+	 */
+	public synchronized long getLastSync() {
+		return this.lastSync;
+	}
+	
+	/**
+	 * @param lastSync the time in milliseconds of the start of a complete synchronization
+	 */
+	public synchronized void setLastSync(long lastSync) {
+		this.lastSync = lastSync;
+	}
+	
+	/**
+	 * Saves the issue store, replacing the previous store only once it has been completely written.
+	 * @param file the store file
+	 */
+	public synchronized void save(File file) {
+		File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temp))))) {
+			out.writeInt(VERSION);
+			writeString(out, this.jiraKey);
+			out.writeLong(this.lastSync);
+			out.writeInt(this.issues.size());
+			for(Bug bug: this.issues.values()) {
+				writeString(out, this.issueKeys.get(bug.getIssueKey()));
+				writeString(out, bug.getTitle());
+				writeString(out, bug.getResolution());
+				writeString(out, bug.getStatus());
+				writeString(out, bug.getAssignee());
+				out.writeLong(bug.getCreatedDate());
+				out.writeLong(bug.getResolvedDate());
+				out.writeInt(bug.getAttachmentsList().size());
+				for(String attachment: bug.getAttachmentsList())
+					writeString(out, attachment);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			temp.delete();
+			return;
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Writes the stored issues to page files, newest first as Jira orders them, removing the 
+	 * page files of an earlier run that are no longer needed.
+	 */
+	public synchronized void writePages() {
+		ArrayList<Bug> bugs = new ArrayList<>(this.issues.values());
+		bugs.sort((a, b) -> a.getCreatedDate() != b.getCreatedDate() ? Long.compare(b.getCreatedDate(), a.getCreatedDate())
+				: b.getIssueKey().compareTo(a.getIssueKey()));
+		int pages = (bugs.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+		for(int page = 0; page < pages; page++) {
+			try (PrintWriter writer = new PrintWriter(getPageFile(this.jiraKey, page))) {
+				writer.println(HEADER);
+				for(Bug bug: bugs.subList(page * PAGE_SIZE, Math.min(bugs.size(), (page + 1) * PAGE_SIZE)))
+					writer.println(toLine(this.issueKeys.get(bug.getIssueKey()), bug));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		for(int page = pages; getPageFile(this.jiraKey, page).delete(); page++);
+	}
+	
+	/**
+	 * @param jiraKey the key of the Jira project
+	 * @param page the page number
+	 * @return the file storing the issues CSV of the page
+	 */
+	public static File getPageFile(String jiraKey, int page) {
+		return new File(jiraKey + "-" + page + ".csv");
+	}
+	
+	/**
+	 * @return the header line of a page file
+	 */
+	public static String getHeader() {
+		return HEADER;
+	}
+	
+	/**
+	 * @param issueKey the issue key as given by Jira
+	 * @param bug the issue
+	 * @return the line of the issue in a page file
+	 */
+	public static String toLine(String issueKey, Bug bug) {
+		return issueKey + ";" + bug.getTitle() + ";" + bug.getResolution() + ";" + bug.getStatus() + ";"
+				+ bug.getAssignee() + ";" + bug.getCreatedDate() + ";" + bug.getResolvedDate() + ";" + bug.getAttachmentsList().toString() + ";";
+	}
+	
+	/**
+	 * A helper function to write a string of any length.
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	/**
+	 * A helper function to read a string written by writeString.
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,178 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.jMiner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+/**
+ * Fetches pages from a Jira server. At most a given number of requests are in flight and requests 
+ * are started no faster than a given rate, shared by every thread using the client. Responses are 
+ * asked for gzip compressed. A request answered with 429 or a 5xx status, or failing to connect or 
+ * time out, is retried after a delay that doubles each time, or after the delay the server asks for.
+ * @author Thomas Watkins
+ */
+public class JiraClient {
+	private HttpClient client;
+	private Semaphore connections;
+	private Duration readTimeout;
+	private int maxRetries;
+	private long requestInterval;
+	private long nextRequest;
+	private long initialBackoff;
+	
+	/**
+	 * Creates a Jira client.
+	 * @param connections the maximum number of requests in flight
+	 * @param timeout the connect and read timeout
+	 * @param requestsPerSecond the maximum number of requests started per second, 0 for no limit
+	 */
+	public JiraClient(int connections, Duration timeout, double requestsPerSecond) {
+		this.client = HttpClient.newBuilder()
+				.connectTimeout(timeout)
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.build();
+		this.connections = new Semaphore(Math.max(1, connections));
+		this.readTimeout = timeout;
+		this.maxRetries = 5;
+		this.requestInterval = requestsPerSecond > 0 ? (long) (1000000000L / requestsPerSecond) : 0;
+		this.initialBackoff = 1000;
+	}
+	
+	/**
+	 * Sets how many times a failed request is retried.
+	 * @param maxRetries the number of retries
+	 */
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+	
+	/**
+	 * Sets the delay before the first retry, doubled for each following one.
+	 * @param initialBackoff the delay in milliseconds
+	 */
+	public void setInitialBackoff(long initialBackoff) {
+		this.initialBackoff = initialBackoff;
+	}
+	
+	/**
+	 * Fetches a page, retrying if the server is busy or failing.
+	 * @param url the url of the page
+	 * @return the body of the page, decompressed
+	 * @throws IOException if the page could not be fetched after every retry
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public byte[] get(String url) throws IOException, InterruptedException {
+		byte[][] page = new byte[1][];
+		get(url, body -> page[0] = body.readAllBytes());
+		return page[0];
+	}
+	
+	/**
+	 * Fetches a page, handing its body to a reader as it arrives. If reading fails the request is 
+	 * retried like a failed request and the reader is given the body again from the start.
+	 * @param url the url of the page
+	 * @param reader the reader of the body, decompressed
+	 * @throws IOException if the page could not be fetched and read after every retry
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void get(String url, BodyReader reader) throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+				.timeout(this.readTimeout)
+				.header("Accept-Encoding", "gzip")
+				.GET()
+				.build();
+		long backoff = this.initialBackoff;
+		for (int attempt = 0; ; attempt++) {
+			HttpResponse<InputStream> response = null;
+			IOException failure = null;
+			this.connections.acquire();
+			try {
+				waitForRate();
+				response = this.client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+				if (response.statusCode() == 200) {
+					try (InputStream body = decode(response)) {
+						reader.read(body);
+						return;
+					}
+				}
+				response.body().close();
+			} catch (IOException e) {
+				failure = e;
+			} finally {
+				this.connections.release();
+			}
+			
+			long delay = backoff;
+			if (failure == null) {
+				int status = response.statusCode();
+				failure = new IOException("HTTP " + status + " from " + url);
+				if (status != 429 && status < 500)
+					throw failure;
+				//Honour the delay asked for by a busy server
+				String retryAfter = response.headers().firstValue("Retry-After").orElse("");
+				if (retryAfter.matches("[0-9]+"))
+					delay = Math.max(delay, Long.parseLong(retryAfter) * 1000);
+			}
+			if (attempt == this.maxRetries)
+				throw failure;
+			System.out.println("Retrying " + url + " in " + delay + "ms: " + failure.getMessage());
+			Thread.sleep(delay);
+			backoff *= 2;
+		}
+	}
+	
+	/**
+	 * Waits until the next request may start under the rate limit.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private void waitForRate() throws InterruptedException {
+		if (this.requestInterval == 0)
+			return;
+		long start;
+		synchronized (this) {
+			start = Math.max(System.nanoTime(), this.nextRequest);
+			this.nextRequest = start + this.requestInterval;
+		}
+		long wait = start - System.nanoTime();
+		if (wait > 0)
+			Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+	}
+	
+	/**
+	 * @param response the response
+	 * @return the body of the response, decompressed if the server compressed it
+	 * @throws IOException if the body cannot be read
+	 */
+	private static InputStream decode(HttpResponse<InputStream> response) throws IOException {
+		String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+		return encoding.equalsIgnoreCase("gzip") ? new GZIPInputStream(response.body()) : response.body();
+	}
+	
+	/**
+	 * Reads the body of a response.
+	 */
+	public interface BodyReader {
+		
+		/**
+		 * @param body the body of the response
+		 * @throws IOException if the body cannot be read
+		 */
+		void read(InputStream body) throws IOException;
+	}
+}
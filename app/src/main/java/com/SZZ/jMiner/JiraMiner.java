@@ -12,39 +12,52 @@
 package com.SZZ.jMiner;
 
 import java.io.File;
-import java.io.InputStream;
 import java.io.PrintWriter;
-import java.net.URL;
-import java.net.URLConnection;
-import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Locale;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.w3c.dom.NamedNodeMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import com.SZZ.entities.Bug;
 /**
- * Mines a given Jira bug database extracting issues and writing them to a file. 
+ * Mines a given Jira bug database extracting issues and writing them to a file. Pages of issues 
+ * are fetched concurrently through a {@link JiraClient} and read as they arrive by an 
+ * {@link IssueSource}, each issue written to file and added to the hashmap once read. Issues are 
+ * kept in an {@link IssueStore} between runs, so after the first full pull only the issues updated 
+ * since the last synchronization are fetched and merged, and offline runs are served from the store.
  * @author Thomas Watkins
  */
 public class JiraMiner {
 	
-	private String jiraIssuesUrl;
+	private static final int PAGE_SIZE = 1000;
+	//Issue keys asked for by a single query of the targeted mode
+	private static final int BATCH_SIZE = 100;
+	
+	private String jiraUrl;
 	private String jiraKey;
-	private String jiraXMLAPI = "/jira/sr/jira.issueviews:searchrequest-xml/temp/SearchRequest.xml";	
-	private String jiraQuery = "?jqlQuery=project=%20{0}%20AND%20resolution%20=%20Fixed%20AND%20status%20in%20(Resolved,%20Closed)%20AND%20issuetype%20=%20bug%20ORDER%20BY%20created%20DESC";
-	private String totalQuery = "&tempMax=1";
-	private String mainQuery = "&tempMax=1000&pager/start={0}";
-	private URL url;
-	private URLConnection con;
-	private Document document;	
-	private HashMap<String, Bug> issues;
+	private String jiraQuery = "project = {0} AND resolution = Fixed AND status in (Resolved, Closed) AND issuetype = bug ORDER BY created DESC";
+	//Issues that stopped matching the main query must be seen too, to be removed from the store
+	private String updatedQuery = "project = {0} AND issuetype = bug AND updated >= \"{1}\" ORDER BY created DESC";
+	private String keysQuery = "key in ({0}) AND issuetype = bug ORDER BY created DESC";
+	private JiraClient client;
+	private int connections;
+	private IssueSource source;
+	private IssueStore store;
+	private boolean offline;
+	private boolean fullSync;
+	private boolean incremental;
+	private volatile boolean failed;
+	private String query;
+	private int totalPages;
+	private int pageSize;
 	
 	/**
 	 * Creates a JiraMiner with specified Jira Issues url and Key for the project.
@@ -53,10 +66,44 @@ public class JiraMiner {
 	 */
 	public JiraMiner(String jiraIssuesUrl, String jiraKey) {	
 		String[] tokens = jiraIssuesUrl.split("/jira/projects/"); 		
-		this.jiraIssuesUrl = tokens[0] + this.jiraXMLAPI;
+		this.jiraUrl = tokens[0];
 		this.jiraKey = jiraKey;
 		this.jiraQuery = this.jiraQuery.replace("{0}",jiraKey);		
-		this.issues = new HashMap<String, Bug>();
+		this.updatedQuery = this.updatedQuery.replace("{0}",jiraKey);
+		this.source = new XmlIssueParser();
+		this.connections = 4;
+		this.client = new JiraClient(this.connections, Duration.ofSeconds(60), 0);
+	}
+	
+	/**
+	 * Sets the client fetching pages, which may be shared with other miners.
+	 * @param client the Jira client
+	 * @param connections the number of pages fetched at once
+	 */
+	public void setClient(JiraClient client, int connections) {
+		this.client = client;
+		this.connections = connections;
+	}
+	
+	/**
+	 * @param source the way Jira is searched
+	 */
+	public void setSource(IssueSource source) {
+		this.source = source;
+	}
+	
+	/**
+	 * @param offline true to never contact Jira and use the stored issues as they are
+	 */
+	public void setOffline(boolean offline) {
+		this.offline = offline;
+	}
+	
+	/**
+	 * @param fullSync true to ignore the stored issues and fetch every issue again
+	 */
+	public void setFullSync(boolean fullSync) {
+		this.fullSync = fullSync;
 	}
 	
 	/**
@@ -65,146 +112,258 @@ public class JiraMiner {
 	 */
 	public HashMap<String, Bug> mineIssues() {
 		System.out.println("Mining Jira Issues for " + this.jiraKey);
+		File storeFile = new File(this.jiraKey + "-Issues.dat");
+		this.store = this.fullSync ? new IssueStore(this.jiraKey) : IssueStore.load(storeFile, this.jiraKey);
+		if(this.offline) {
+			if(this.store.getLastSync() == 0)
+				System.out.println("Offline without stored issues of " + this.jiraKey);
+			System.out.println("Offline, using " + this.store.size() + " stored issues");
+			return this.store.getIssues();
+		}
 		
-		//Calculate total pages needed (1000 response cap per page)	
-		double totalIssues = calculateTotalIssues();
-		int totalPages = (int) Math.ceil((totalIssues/1000));
+		//After the first full pull only issues updated since the last synchronization are fetched
+		long start = System.currentTimeMillis();
+		this.incremental = this.store.getLastSync() > 0;
+		this.query = this.jiraQuery;
+		if(this.incremental) {
+			//A day earlier, as Jira compares dates in its own time zone
+			String since = DateTimeFormatter.ISO_LOCAL_DATE.format(Instant.ofEpochMilli(this.store.getLastSync() - 86400000L).atZone(ZoneOffset.UTC));
+			System.out.println("Fetching issues updated since " + since);
+			this.query = this.updatedQuery.replace("{1}", since);
+		}
 		
-		System.out.println("Total Pages: " + totalPages);
+		//The first page also gives the total, the other pages are requested as soon as it is read
+		this.totalPages = -1;
+		this.pageSize = PAGE_SIZE;
+		this.failed = false;
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, this.connections));
+		minePage(0, executor);
+		if(this.totalPages < 0) {
+			this.totalPages = 0;
+			System.out.println("Total Pages: 0");
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			this.failed = true;
+		}
 		
-		//Create file to store issues CSV and mine issues
-		for(int i = 0; i < totalPages; i++) {
-			String fileName = this.jiraKey + "-" + i + ".csv";
-			File file = new File(fileName);
-			try {			
-				String num = Integer.toString(i * 1000);
-				String tempQuery = this.mainQuery.replace("{0}", num);
-				this.url = new URL(this.jiraIssuesUrl + this.jiraQuery + tempQuery);
-				
-				this.con = url.openConnection();
-				this.document = docFromStream(this.con.getInputStream());
-				PrintWriter writer = null;
-				
-				writer = new PrintWriter(file);
-				String header = "IssueKey;Title;Resolution;Status;Assignee;CreatedDate;ResolvedDate;Attachments;";
-				writer.println(header);
-				writeIssuesToFile(this.document, writer);
-				writer.close();
-							
-			} catch (Exception e) {
-				e.printStackTrace();
-			}	
-			System.out.println("Page " + (i+1) + "/" + totalPages + " completed.");
-		}	
-		return this.issues;
+		//A synchronization with a missing page is done again from the same time by the next run
+		if(!this.failed)
+			this.store.setLastSync(start);
+		this.store.save(storeFile);
+		if(this.incremental)
+			this.store.writePages();
+		return this.store.getIssues();
 	}
 	
 	/**
-	 * Helper function to write issues to file. Also updates the HashMap returned by mineIssues adding
-	 * issues as they're read.
-	 * @param doc the parsed XML document
-	 * @param pw the print writer to write to file
+	 * Extracts only the given issues of the Jira project, fetched in batches of keys sent at once, 
+	 * instead of every fixed bug. The issues are merged into the store and its page files, but as 
+	 * the other issues are not fetched the store is not synchronized. Offline, the stored issues 
+	 * are used.
+	 * @param issueKeys the keys of the issues, those of other projects are ignored
+	 * @return HashMap containing the extracted issues that are fixed bugs
 	 */
-	private void writeIssuesToFile(Document doc, PrintWriter writer) {		
-		SimpleDateFormat patternFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss Z", Locale.ENGLISH);
-		NodeList nodes = doc.getElementsByTagName("item");
-		
-		for (int i = 0; i < nodes.getLength(); i++) {
-			Node node = nodes.item(i);
-			NodeList children = node.getChildNodes();			
-			String issueKey = "";			
-			String title = "";
-			String resolution = "";
-			String status = "";
-			String assignee = "";
-			long createdDateT = 0;
-			long resolvedDateT = 0;		
-			ArrayList<String> attachmentsList = new ArrayList<>();			
-			
-			for (int j = 0; j < children.getLength(); j++) {
-				switch (children.item(j).getNodeName()) {
-					case "title": title = children.item(j).getTextContent().replace(";", ""); break;
-					case "resolution": resolution = children.item(j).getTextContent();        break;
-					case "key":	issueKey = children.item(j).getTextContent();    			  break;
-					case "created":	
-						try {
-							createdDateT = patternFormat.parse(children.item(j).getTextContent()).getTime();
-						} catch (Exception e1) {
-							e1.printStackTrace();
-						}
-						break;
-					case "resolved":						
-						try {
-							resolvedDateT = patternFormat.parse(children.item(j).getTextContent()).getTime();
-						} catch (Exception e) {
-							e.printStackTrace();
-						}
-						break;
-					case "status": status = children.item(j).getTextContent();	    break;
-					case "assignee": assignee = children.item(j).getTextContent(); 	break;					
-					case "attachments":
-						NodeList attachmentNodes = children.item(j).getChildNodes();						
-						for (int l = 0; l < attachmentNodes.getLength(); l++) {
-							Node attachmentNode = attachmentNodes.item(l);
-							NamedNodeMap attchmentName = attachmentNode.getAttributes();
-							if (attchmentName != null) {						
-								String name = attchmentName.getNamedItem("name").getNodeValue();
-								attachmentsList.add(name);
-							}
-						}						
-						break;
-				}					
+	public HashMap<String, Bug> mineIssues(Collection<String> issueKeys) {
+		ArrayList<String> keys = new ArrayList<>();
+		for(String issueKey: issueKeys) {
+			int dash = issueKey.lastIndexOf('-');
+			if(dash > 0 && issueKey.substring(0, dash).equalsIgnoreCase(this.jiraKey))
+				keys.add(issueKey.toUpperCase());
+		}
+		Collections.sort(keys);
+		System.out.println("Mining " + keys.size() + " referenced Jira Issues for " + this.jiraKey);
+		File storeFile = new File(this.jiraKey + "-Issues.dat");
+		this.store = this.fullSync ? new IssueStore(this.jiraKey) : IssueStore.load(storeFile, this.jiraKey);
+		if(!this.offline) {
+			ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, this.connections));
+			int batches = (keys.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+			for(int i = 0; i < batches; i++) {
+				List<String> batch = keys.subList(i * BATCH_SIZE, Math.min(keys.size(), (i + 1) * BATCH_SIZE));
+				int number = i + 1;
+				executor.execute(() -> {
+					mineBatch(batch);
+					System.out.println("Batch " + number + "/" + batches + " completed.");
+				});
 			}
-			//Create new issue to return
-			this.issues.put(issueKey.toLowerCase(), new Bug(issueKey.toLowerCase(),title,resolution,status,assignee,
-					createdDateT,resolvedDateT,attachmentsList));
-			
-			//Write this issue to file
-			String printString = issueKey + ";" + title + ";" + resolution + ";" + status + ";"
-					+ assignee + ";" + createdDateT + ";" + resolvedDateT + ";" + attachmentsList.toString() + ";";			
-			writer.println(printString);					
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+			this.store.save(storeFile);
+			this.store.writePages();
 		}
 		
+		//Issues that could not be fetched keep their stored version
+		HashMap<String, Bug> stored = this.store.getIssues();
+		HashMap<String, Bug> issues = new HashMap<>();
+		for(String key: keys) {
+			Bug bug = stored.get(key.toLowerCase());
+			if(bug != null)
+				issues.put(bug.getIssueKey(), bug);
+		}
+		return issues;
 	}
 	
 	/**
-	 * Helper function to parse XML 
-	 * @param stream the input stream from the API call
-	 * @return doc the parsed XML document
+	 * Fetches a batch of issues by key, merging them into the store. Jira rejects a query naming an 
+	 * issue that does not exist, so a rejected batch is fetched again in halves until the missing 
+	 * issues are found, as is a batch larger than the server gives at once.
+	 * @param keys the issue keys
 	 */
-	private Document docFromStream(InputStream stream) {
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		Document doc = null;
+	private void mineBatch(List<String> keys) {
+		String query = this.keysQuery.replace("{0}", String.join(", ", keys));
+		long[] counts = new long[2];
 		try {
-			DocumentBuilder builder = factory.newDocumentBuilder();			
-			doc = builder.parse(stream);	
-		} catch (Exception e) {			
+			this.client.get(this.source.getPageUrl(this.jiraUrl, query, 0, keys.size()), body -> {
+				counts[0] = 0;
+				counts[1] = 0;
+				this.source.parse(body, new IssueHandler() {
+					@Override
+					public void total(long total) {
+						counts[0] = total;
+					}
+					
+					@Override
+					public void issue(String issueKey, Bug bug) {
+						counts[1]++;
+						//Issues that are no longer fixed bugs leave the store
+						if(isFixed(bug))
+							store.put(issueKey, bug);
+						else
+							store.remove(bug);
+					}
+				});
+			});
+			if(counts[1] >= counts[0] || keys.size() == 1)
+				return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} catch (Exception e) {
+			if(keys.size() == 1) {
+				System.out.println("Could not fetch " + keys.get(0) + ": " + e.getMessage());
+				return;
+			}
+		}
+		mineBatch(keys.subList(0, keys.size() / 2));
+		mineBatch(keys.subList(keys.size() / 2, keys.size()));
+	}
+	
+	/**
+	 * Fetches a page of issues, adding each issue to the store as it is read. A full pull also 
+	 * writes the page's file, which a page read again after a failure starts again.
+	 * @param page the page number
+	 * @param executor the executor fetching the other pages once the total is known
+	 */
+	private void minePage(int page, ExecutorService executor) {
+		try {
+			String url = this.source.getPageUrl(this.jiraUrl, this.query, page * this.pageSize, this.pageSize);
+			this.client.get(url, body -> {
+				PageWriter writer = new PageWriter(page, executor);
+				try {
+					this.source.parse(body, writer);
+				} finally {
+					writer.close();
+				}
+			});
+			if(page < this.totalPages)
+				System.out.println("Page " + (page+1) + "/" + this.totalPages + " completed.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.failed = true;
+		} catch (Exception e) {
 			e.printStackTrace();
-		} 
-		return doc;		
+			this.failed = true;
+		}
 	}
 	
 	/**
-	 * A helper function to calculate the total issues for a project.
-	 * @return the total number of issues
+	 * Merges the issues of a page into the store as they are read, writing them to file on a full 
+	 * pull. Reading the total of the first page starts the other pages.
 	 */
-	private double calculateTotalIssues() {
-		try {			
-			//Append query and retrieve response
-			this.url = new URL(this.jiraIssuesUrl + this.jiraQuery + this.totalQuery);
-			//System.out.println("CalculateTotalIssues URL :" + url.toString());
-			this.con = this.url.openConnection();
+	private class PageWriter implements IssueHandler {
+		private int page;
+		private ExecutorService executor;
+		private PrintWriter writer;
+		
+		private PageWriter(int page, ExecutorService executor) {
+			this.page = page;
+			this.executor = executor;
+		}
+		
+		@Override
+		public void total(long total) {
+			if(this.page != 0 || totalPages >= 0)
+				return;
+			System.out.println("Total Issues: " + total);
+			//Calculate total pages needed (1000 response cap per page, or the server's own cap)
+			totalPages = (int) Math.ceil(total / (double) pageSize);
+			System.out.println("Total Pages: " + totalPages);
+			for(int i = 1; i < totalPages; i++) {
+				int next = i;
+				this.executor.execute(() -> minePage(next, this.executor));
+			}
+			if(totalPages > 0)
+				open();
+		}
+		
+		@Override
+		public void pageSize(int size) {
+			if(this.page == 0 && totalPages < 0 && size > 0 && size < pageSize)
+				pageSize = size;
+		}
+		
+		@Override
+		public void issue(String issueKey, Bug bug) {
+			//Updated issues that are no longer fixed bugs leave the store
+			if(incremental) {
+				if(isFixed(bug))
+					store.put(issueKey, bug);
+				else
+					store.remove(bug);
+				return;
+			}
+			open();
+			store.put(issueKey, bug);
 			
-			//Obtain total attribute from XML response
-			this.document = docFromStream(this.con.getInputStream());
-			NodeList issueNodes = this.document.getElementsByTagName("issue");
-			Node issue = issueNodes.item(0);
-			Element issueElement = (Element) issue;			
-			System.out.println("Total Issues: " + issueElement.getAttribute("total"));
-			return Double.parseDouble(issueElement.getAttribute("total"));				
-		} catch (Exception e) {			
-			e.printStackTrace();
-		}			
-		return 0;
-	}	
+			//Write this issue to file
+			this.writer.println(IssueStore.toLine(issueKey, bug));
+		}
+		
+		/**
+		 * Creates the file to store the issues CSV of the page, once the page has something to store.
+		 */
+		private void open() {
+			if(this.writer != null || incremental)
+				return;
+			try {
+				this.writer = new PrintWriter(IssueStore.getPageFile(jiraKey, this.page));
+				this.writer.println(IssueStore.getHeader());
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		private void close() {
+			if(this.writer != null)
+				this.writer.close();
+		}
+	}
+	
+	/**
+	 * @param bug an issue
+	 * @return true if the issue matches the main query, a fixed bug that is resolved or closed
+	 */
+	static boolean isFixed(Bug bug) {
+		return bug.getResolution().equalsIgnoreCase("Fixed") 
+				&& (bug.getStatus().equalsIgnoreCase("Resolved") || bug.getStatus().equalsIgnoreCase("Closed"));
+	}
 }
@@ -0,0 +1,176 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.jMiner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+
+import com.SZZ.entities.Bug;
+/**
+ * Searches Jira through its REST API, asking only for the fields of a {@link Bug} instead of the 
+ * descriptions, comments and custom fields the XML search view gives for every issue. The JSON 
+ * response is read as a stream and each issue is handed on as soon as it has been read. Issues are 
+ * given the same values as {@link XmlIssueParser} gives them. A parser holds no state between 
+ * responses and may be shared by threads.
+ * @author Thomas Watkins
+ */
+public class JsonIssueParser implements IssueSource {
+	private static final String SEARCH_API = "/jira/rest/api/2/search";
+	private static final String FIELDS = "summary,resolution,status,assignee,created,resolutiondate,attachment";
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+	
+	@Override
+	public String getPageUrl(String jiraUrl, String jql, int start, int max) {
+		return jiraUrl + SEARCH_API + "?jql=" + IssueSource.encode(jql) + "&startAt=" + start + "&maxResults=" + max 
+				+ "&fields=" + FIELDS;
+	}
+	
+	@Override
+	public void parse(InputStream stream, IssueHandler handler) throws IOException {
+		try {
+			JsonReader reader = new JsonReader(stream);
+			reader.begin();
+			while (reader.hasNext()) {
+				switch (reader.nextString()) {
+				case "maxResults":
+					handler.pageSize(Integer.parseInt(reader.nextString()));
+					break;
+				case "total":
+					handler.total(Long.parseLong(reader.nextString()));
+					break;
+				case "issues":
+					reader.begin();
+					while (reader.hasNext())
+						readIssue(reader, handler);
+					reader.end();
+					break;
+				default:
+					reader.skipValue();
+				}
+			}
+			reader.end();
+		} catch (NumberFormatException | NullPointerException e) {
+			throw new IOException("Invalid Jira response", e);
+		}
+	}
+	
+	/**
+	 * Reads an issue.
+	 * @param reader the reader, before the issue
+	 * @param handler the handler given the issue
+	 */
+	private void readIssue(JsonReader reader, IssueHandler handler) throws IOException {
+		String issueKey = "";
+		String summary = "";
+		//Jira's XML view gives these values when a field is empty
+		String resolution = "Unresolved";
+		String status = "";
+		String assignee = "Unassigned";
+		long createdDateT = 0;
+		long resolvedDateT = 0;
+		ArrayList<String> attachmentsList = new ArrayList<>();
+		
+		reader.begin();
+		while (reader.hasNext()) {
+			String name = reader.nextString();
+			if (name.equals("key")) {
+				issueKey = reader.nextString();
+				continue;
+			}
+			if (!name.equals("fields") || reader.peek() != '{') {
+				reader.skipValue();
+				continue;
+			}
+			reader.begin();
+			while (reader.hasNext()) {
+				switch (reader.nextString()) {
+				case "summary": summary = orDefault(reader.nextString(), "");        break;
+				case "resolution": resolution = orDefault(readName(reader, "name"), resolution); break;
+				case "status": status = orDefault(readName(reader, "name"), status);             break;
+				case "assignee": assignee = orDefault(readName(reader, "displayName"), assignee); break;
+				case "created": createdDateT = parseDate(reader.nextString());        break;
+				case "resolutiondate": resolvedDateT = parseDate(reader.nextString()); break;
+				case "attachment":
+					if (reader.peek() != '[') {
+						reader.skipValue();
+						break;
+					}
+					reader.begin();
+					while (reader.hasNext()) {
+						String attachment = readName(reader, "filename");
+						if (attachment != null)
+							attachmentsList.add(attachment);
+					}
+					reader.end();
+					break;
+				default:
+					reader.skipValue();
+				}
+			}
+			reader.end();
+		}
+		reader.end();
+		
+		//The XML view titles an issue with its key
+		String title = ("[" + issueKey + "] " + summary).replace(";", "");
+		handler.issue(issueKey, new Bug(issueKey.toLowerCase(), title, resolution, status, assignee, 
+				createdDateT, resolvedDateT, attachmentsList));
+	}
+	
+	/**
+	 * Reads an object such as a status or user, keeping one of its fields.
+	 * @param reader the reader, before the object
+	 * @param field the name of the field kept
+	 * @return the value of the field, null if the object is null or has no such field
+	 */
+	private String readName(JsonReader reader, String field) throws IOException {
+		if (reader.peek() != '{')
+			return reader.nextString();
+		String value = null;
+		reader.begin();
+		while (reader.hasNext()) {
+			if (reader.nextString().equals(field))
+				value = reader.nextString();
+			else
+				reader.skipValue();
+		}
+		reader.end();
+		return value;
+	}
+	
+	/**
+	 * @param value a value, possibly null
+	 * @param empty the value used for null
+	 * @return the value, or the one used for null
+	 */
+	private static String orDefault(String value, String empty) {
+		return value == null ? empty : value;
+	}
+	
+	/**
+	 * @param date a date such as "2018-01-01T10:00:00.000+0000", possibly null
+	 * @return the date in milliseconds since the epoch, 0 if there is none or it cannot be parsed
+	 */
+	private static long parseDate(String date) {
+		if (date == null)
+			return 0;
+		try {
+			return OffsetDateTime.parse(date.trim(), DATE_FORMAT).toInstant().toEpochMilli();
+		} catch (Exception e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.jMiner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+/**
+ * Reads JSON one value at a time without building a tree, so values that are not wanted are 
+ * skipped without being kept. Separators are not checked, it only reads well formed JSON correctly.
+ * @author Thomas Watkins
+ */
+public class JsonReader {
+	private Reader reader;
+	private char[] buffer = new char[8192];
+	private int position;
+	private int limit;
+	//The next character, -2 if it has not been read yet
+	private int next = -2;
+	private StringBuilder text = new StringBuilder();
+	
+	/**
+	 * Creates a reader of UTF-8 JSON.
+	 * @param stream the JSON
+	 */
+	public JsonReader(InputStream stream) {
+		this.reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * @return the next character of the JSON, -1 at the end
+	 */
+	private int read() throws IOException {
+		if(this.position == this.limit) {
+			this.limit = this.reader.read(this.buffer);
+			this.position = 0;
+			if(this.limit <= 0) {
+				this.limit = 0;
+				return -1;
+			}
+		}
+		return this.buffer[this.position++];
+	}
+	
+	/**
+	 * @return the first character of the next value or name, or of the end of an object or array, -1 at the end
+	 */
+	public int peek() throws IOException {
+		while(true) {
+			if(this.next == -2)
+				this.next = read();
+			if(this.next != ',' && this.next != ':' && !Character.isWhitespace(this.next))
+				return this.next;
+			this.next = -2;
+		}
+	}
+	
+	/**
+	 * @return true if the object or array being read has another member
+	 */
+	public boolean hasNext() throws IOException {
+		int c = peek();
+		return c != '}' && c != ']' && c != -1;
+	}
+	
+	/**
+	 * Starts reading an object or array.
+	 */
+	public void begin() throws IOException {
+		int c = peek();
+		if(c != '{' && c != '[')
+			throw new IOException("Expected an object or array in JSON");
+		this.next = -2;
+	}
+	
+	/**
+	 * Finishes reading an object or array, skipping any members that are left.
+	 */
+	public void end() throws IOException {
+		while(hasNext())
+			skipValue();
+		if(peek() == -1)
+			throw new IOException("Unexpected end of JSON");
+		this.next = -2;
+	}
+	
+	/**
+	 * @return the next name, string or other value as text, null for a JSON null
+	 */
+	public String nextString() throws IOException {
+		int c = peek();
+		this.next = -2;
+		this.text.setLength(0);
+		if(c == '"') {
+			while((c = read()) != '"') {
+				if(c == -1)
+					throw new IOException("Unexpected end of JSON");
+				if(c == '\\')
+					c = readEscape();
+				this.text.append((char) c);
+			}
+			return this.text.toString();
+		}
+		if(c == '{' || c == '[' || c == '}' || c == ']' || c == -1)
+			throw new IOException("Expected a value in JSON");
+		//A number, true, false or null runs up to the next separator
+		do {
+			this.text.append((char) c);
+			c = read();
+		} while(c != ',' && c != '}' && c != ']' && c != -1 && !Character.isWhitespace(c));
+		this.next = c;
+		String value = this.text.toString();
+		return value.equals("null") ? null : value;
+	}
+	
+	/**
+	 * Skips the next value, with everything it contains.
+	 */
+	public void skipValue() throws IOException {
+		int c = peek();
+		if(c == '{' || c == '[') {
+			begin();
+			end();
+		} else if(c == '"') {
+			//Strings are skipped without being kept, an escaped quote does not end them
+			this.next = -2;
+			while((c = read()) != '"') {
+				if(c == -1)
+					throw new IOException("Unexpected end of JSON");
+				if(c == '\\')
+					read();
+			}
+		} else {
+			nextString();
+		}
+	}
+	
+	/**
+	 * @return the character escaped after a backslash
+	 */
+	private int readEscape() throws IOException {
+		int c = read();
+		switch(c) {
+		case 'b': return '\b';
+		case 'f': return '\f';
+		case 'n': return '\n';
+		case 'r': return '\r';
+		case 't': return '\t';
+		case 'u':
+			int code = 0;
+			for(int i = 0; i < 4; i++) {
+				int digit = Character.digit(read(), 16);
+				if(digit < 0)
+					throw new IOException("Invalid escape in JSON");
+				code = code * 16 + digit;
+			}
+			return code;
+		case -1:
+			throw new IOException("Unexpected end of JSON");
+		default:
+			return c;
+		}
+	}
+}
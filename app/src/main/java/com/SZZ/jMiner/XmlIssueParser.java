@@ -0,0 +1,179 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.jMiner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.SZZ.entities.Bug;
+/**
+ * Reads the issues of a Jira XML search response as a stream of events, keeping only the fields 
+ * of a {@link Bug}. Descriptions, comments and every other field are skipped without being kept, 
+ * so memory does not grow with the size of a page, and each issue is handed on as soon as its 
+ * item ends. A parser holds no state between responses and may be shared by threads.
+ * @author Thomas Watkins
+ */
+public class XmlIssueParser implements IssueSource {
+	private static final XMLInputFactory FACTORY = createFactory();
+	private static final String XML_API = "/jira/sr/jira.issueviews:searchrequest-xml/temp/SearchRequest.xml";
+	
+	@Override
+	public String getPageUrl(String jiraUrl, String jql, int start, int max) {
+		return jiraUrl + XML_API + "?jqlQuery=" + IssueSource.encode(jql) + "&tempMax=" + max + "&pager/start=" + start;
+	}
+	
+	@Override
+	public void parse(InputStream stream, IssueHandler handler) throws IOException {
+		try {
+			XMLStreamReader reader = FACTORY.createXMLStreamReader(stream);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() != XMLStreamConstants.START_ELEMENT)
+						continue;
+					switch (reader.getLocalName()) {
+					case "issue":
+						String total = reader.getAttributeValue(null, "total");
+						if (total != null)
+							handler.total(Long.parseLong(total.trim()));
+						break;
+					case "item":
+						readItem(reader, handler);
+						break;
+					default:
+						break;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException | NumberFormatException e) {
+			throw new IOException("Invalid Jira response", e);
+		}
+	}
+	
+	/**
+	 * Reads the fields of an item from its start to its end.
+	 * @param reader the reader, at the start of the item
+	 * @param handler the handler given the issue
+	 */
+	private void readItem(XMLStreamReader reader, IssueHandler handler) throws XMLStreamException {
+		String issueKey = "";			
+		String title = "";
+		String resolution = "";
+		String status = "";
+		String assignee = "";
+		long createdDateT = 0;
+		long resolvedDateT = 0;		
+		ArrayList<String> attachmentsList = new ArrayList<>();
+		
+		//Only the direct children of the item are fields
+		int depth = 0;
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				if (depth-- == 0)
+					break;
+				continue;
+			}
+			if (event != XMLStreamConstants.START_ELEMENT)
+				continue;
+			if (depth++ > 0)
+				continue;
+			switch (reader.getLocalName()) {
+			case "title": title = readText(reader).replace(";", ""); break;
+			case "resolution": resolution = readText(reader);       break;
+			case "key": issueKey = readText(reader);                 break;
+			case "created": createdDateT = parseDate(readText(reader)); break;
+			case "resolved": resolvedDateT = parseDate(readText(reader)); break;
+			case "status": status = readText(reader);               break;
+			case "assignee": assignee = readText(reader);           break;
+			case "attachments":
+				readAttachments(reader, attachmentsList);
+				break;
+			default:
+				continue;
+			}
+			//The field has been read up to its end
+			depth--;
+		}
+		handler.issue(issueKey, new Bug(issueKey.toLowerCase(), title, resolution, status, assignee, 
+				createdDateT, resolvedDateT, attachmentsList));
+	}
+	
+	/**
+	 * @param reader the reader, at the start of an element
+	 * @return every text within the element, nested elements included, leaving the reader at its end
+	 */
+	private String readText(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		int depth = 0;
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA 
+					|| event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE)
+				text.append(reader.getText());
+			else if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT && depth-- == 0)
+				return text.toString();
+		}
+	}
+	
+	/**
+	 * Reads the name of every attachment.
+	 * @param reader the reader, at the start of the attachments, left at their end
+	 * @param attachmentsList the list the names are added to
+	 */
+	private void readAttachments(XMLStreamReader reader, ArrayList<String> attachmentsList) throws XMLStreamException {
+		int depth = 0;
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (depth++ == 0 && reader.getAttributeValue(null, "name") != null)
+					attachmentsList.add(reader.getAttributeValue(null, "name"));
+			} else if (event == XMLStreamConstants.END_ELEMENT && depth-- == 0) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * @param date a date such as "Mon, 1 Jan 2018 10:00:00 +0000"
+	 * @return the date in milliseconds since the epoch, 0 if it cannot be parsed
+	 */
+	private static long parseDate(String date) {
+		try {
+			return OffsetDateTime.parse(date.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+		} catch (Exception e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+	
+	/**
+	 * @return a factory joining adjacent text and never loading external entities
+	 */
+	private static XMLInputFactory createFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+}
@@ -0,0 +1,107 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.linker;
+
+import java.util.Arrays;
+/**
+ * A histogram of the number of files affected per commit, giving the exact median as commits are 
+ * added one at a time. The median is the same element as sorting every count and taking the middle 
+ * (the upper one for an even number of commits), so a boundary taken once every commit has been 
+ * added equals the one calculated by {@link LinkConnector}. Other quantiles are exact too, and 
+ * histograms of separate sets of commits can be merged.
+ * @author Thomas Watkins
+ */
+public class FilesAffectedHistogram implements Quantiles {
+	private int[] counts;
+	private long total;
+	private int median;
+	//The number of commits affecting fewer files than the median
+	private long below;
+	
+	/**
+	 * Creates an empty histogram.
+	 */
+	public FilesAffectedHistogram() {
+		this.counts = new int[64];
+	}
+	
+	@Override
+	public void add(int files) {
+		if(files >= this.counts.length)
+			this.counts = Arrays.copyOf(this.counts, Math.max(files + 1, this.counts.length * 2));
+		this.counts[files]++;
+		this.total++;
+		if(files < this.median)
+			this.below++;
+		moveMedian();
+	}
+	
+	/**
+	 * Adds every commit of another histogram.
+	 * @param histogram the histogram
+	 */
+	public void merge(FilesAffectedHistogram histogram) {
+		if(histogram.counts.length > this.counts.length)
+			this.counts = Arrays.copyOf(this.counts, histogram.counts.length);
+		for(int files = 0; files < histogram.counts.length; files++) {
+			this.counts[files] += histogram.counts[files];
+			if(files < this.median)
+				this.below += histogram.counts[files];
+		}
+		this.total += histogram.total;
+		moveMedian();
+	}
+	
+	/**
+	 * Moves the median to the middle commit.
+	 */
+	private void moveMedian() {
+		if(this.total == 0)
+			return;
+		long index = this.total / 2;
+		while(this.below > index) {
+			this.median--;
+			this.below -= this.counts[this.median];
+		}
+		while(this.below + this.counts[this.median] <= index) {
+			this.below += this.counts[this.median];
+			this.median++;
+		}
+	}
+	
+	@Override
+	public long getTotal() {
+		return this.total;
+	}
+	
+	/**
+	 * @return the median number of files affected, 0 if no commit has been added
+	 */
+	public int getMedian() {
+		return this.total == 0 ? 0 : this.median;
+	}
+	
+	@Override
+	public int getQuantile(double fraction) {
+		if(this.total == 0)
+			return 0;
+		long index = Math.min(this.total - 1, (long) (fraction * this.total));
+		if(index == this.total / 2)
+			return this.median;
+		long seen = 0;
+		for(int files = 0; ; files++) {
+			seen += this.counts[files];
+			if(seen > index)
+				return files;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.linker;
+
+import java.util.Arrays;
+/**
+ * The number of files affected of every commit kept in an int array. Quantiles are found by 
+ * selection in linear time rather than by sorting, reordering the array as they go.
+ * @author Thomas Watkins
+ */
+public class FilesAffectedSample implements Quantiles {
+	private int[] files;
+	private int total;
+	
+	/**
+	 * Creates an empty sample.
+	 */
+	public FilesAffectedSample() {
+		this.files = new int[64];
+	}
+	
+	@Override
+	public void add(int files) {
+		if(this.total == this.files.length)
+			this.files = Arrays.copyOf(this.files, this.total * 2);
+		this.files[this.total++] = files;
+	}
+	
+	@Override
+	public long getTotal() {
+		return this.total;
+	}
+	
+	@Override
+	public int getQuantile(double fraction) {
+		if(this.total == 0)
+			return 0;
+		return select((int) Math.min(this.total - 1, (long) (fraction * this.total)));
+	}
+	
+	/**
+	 * Quickselect with a median of three pivot and a three way partition, so the many commits 
+	 * affecting the same number of files are settled in one pass.
+	 * @param index the position in sorted order
+	 * @return the element at that position
+	 */
+	private int select(int index) {
+		int[] a = this.files;
+		int low = 0;
+		int high = this.total - 1;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			int pivot = Math.max(Math.min(a[low], a[middle]), Math.min(Math.max(a[low], a[middle]), a[high]));
+			//a[low..lt) < pivot, a[lt..i) == pivot, a(gt..high] > pivot
+			int lt = low;
+			int gt = high;
+			int i = low;
+			while(i <= gt) {
+				if(a[i] < pivot)
+					swap(a, lt++, i++);
+				else if(a[i] > pivot)
+					swap(a, i, gt--);
+				else
+					i++;
+			}
+			if(index < lt)
+				high = lt - 1;
+			else if(index > gt)
+				low = gt + 1;
+			else
+				return pivot;
+		}
+		return a[index];
+	}
+	
+	private static void swap(int[] a, int i, int j) {
+		int temp = a[i];
+		a[i] = a[j];
+		a[j] = temp;
+	}
+}
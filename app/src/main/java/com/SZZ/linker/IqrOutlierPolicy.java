@@ -0,0 +1,40 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.linker;
+
+/**
+ * Commits affecting more files than the upper quartile plus a multiple of the interquartile 
+ * range (Tukey's fence) are outliers.
+ * @author Thomas Watkins
+ */
+public class IqrOutlierPolicy implements OutlierPolicy {
+	private double fence;
+	
+	/**
+	 * @param fence the multiple of the interquartile range, 1.5 for Tukey's inner fence
+	 */
+	public IqrOutlierPolicy(double fence) {
+		this.fence = fence;
+	}
+	
+	@Override
+	public int getBoundary(Quantiles filesAffected) {
+		int lower = filesAffected.getQuantile(0.25);
+		int upper = filesAffected.getQuantile(0.75);
+		return upper + (int) (this.fence * (upper - lower));
+	}
+	
+	@Override
+	public String toString() {
+		return "iqr=" + this.fence;
+	}
+}
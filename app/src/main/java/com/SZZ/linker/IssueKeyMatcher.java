@@ -0,0 +1,172 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.linker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+/**
+ * Finds the Jira issue keys of a set of projects in commit messages. The project keys are compiled 
+ * once into an Aho-Corasick automaton over their lower case letters, so a message is read in a 
+ * single pass whatever the number of projects. Wherever a project key ends, the text following it 
+ * must match "[ ]*-[ ]*[0-9]+", as the previous regular expression did, and the key is returned in 
+ * the form of the issues map, "key-number" in lower case without spaces. Matching is stateless, so 
+ * one matcher may be used by many threads at once.
+ * @author Thomas Watkins
+ */
+public class IssueKeyMatcher {
+	//Transitions of every state on every character seen in a key, -1 where there is none
+	private int[][] next;
+	private char[] alphabet;
+	private int[] fail;
+	//The length of the longest key ending at each state and the next state with a shorter key ending, -1 if none
+	private int[] keyLength;
+	private int[] nextKey;
+	
+	/**
+	 * Creates a matcher for the given project keys.
+	 * @param projectKeys the Jira project keys, in any case
+	 */
+	public IssueKeyMatcher(Collection<String> projectKeys) {
+		StringBuilder characters = new StringBuilder();
+		for(String key: projectKeys) {
+			for(char c: key.toLowerCase().toCharArray()) {
+				if(characters.indexOf(String.valueOf(c)) < 0)
+					characters.append(c);
+			}
+		}
+		this.alphabet = characters.toString().toCharArray();
+		Arrays.sort(this.alphabet);
+		
+		//Build the trie of the keys
+		ArrayList<int[]> transitions = new ArrayList<>();
+		ArrayList<Integer> lengths = new ArrayList<>();
+		transitions.add(newState());
+		lengths.add(0);
+		for(String key: projectKeys) {
+			if(key.isEmpty())
+				continue;
+			int state = 0;
+			for(char c: key.toLowerCase().toCharArray()) {
+				int symbol = symbol(c);
+				if(transitions.get(state)[symbol] < 0) {
+					transitions.get(state)[symbol] = transitions.size();
+					transitions.add(newState());
+					lengths.add(0);
+				}
+				state = transitions.get(state)[symbol];
+			}
+			lengths.set(state, key.length());
+		}
+		this.next = transitions.toArray(new int[0][]);
+		this.fail = new int[this.next.length];
+		this.keyLength = new int[this.next.length];
+		this.nextKey = new int[this.next.length];
+		for(int state = 0; state < this.next.length; state++)
+			this.keyLength[state] = lengths.get(state);
+		
+		//Breadth first, complete the transitions with the failure links so matching never backtracks
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		this.nextKey[0] = -1;
+		for(int symbol = 0; symbol < this.alphabet.length; symbol++) {
+			int child = this.next[0][symbol];
+			if(child < 0) {
+				this.next[0][symbol] = 0;
+			} else {
+				this.fail[child] = 0;
+				this.nextKey[child] = -1;
+				queue.add(child);
+			}
+		}
+		while(!queue.isEmpty()) {
+			int state = queue.poll();
+			for(int symbol = 0; symbol < this.alphabet.length; symbol++) {
+				int child = this.next[state][symbol];
+				int fallback = this.next[this.fail[state]][symbol];
+				if(child < 0) {
+					this.next[state][symbol] = fallback;
+				} else {
+					this.fail[child] = fallback;
+					this.nextKey[child] = this.keyLength[fallback] > 0 ? fallback : this.nextKey[fallback];
+					queue.add(child);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Finds every issue key in a message, in the order they appear and each once.
+	 * @param message the commit message
+	 * @return the issue keys, "key-number" in lower case
+	 */
+	public ArrayList<String> match(String message) {
+		ArrayList<String> keys = new ArrayList<>();
+		int state = 0;
+		for(int i = 0; i < message.length(); i++) {
+			int symbol = symbol(Character.toLowerCase(message.charAt(i)));
+			if(symbol < 0) {
+				state = 0;
+				continue;
+			}
+			state = this.next[state][symbol];
+			for(int found = this.keyLength[state] > 0 ? state : this.nextKey[state]; found >= 0; found = this.nextKey[found]) {
+				String key = issueKey(message, i + 1 - this.keyLength[found], i + 1);
+				if(key != null && !keys.contains(key))
+					keys.add(key);
+			}
+		}
+		return keys;
+	}
+	
+	/**
+	 * A helper function reading the issue number following a project key.
+	 * @param message the commit message
+	 * @param start the start of the project key
+	 * @param end the end of the project key
+	 * @return the issue key, null if no issue number follows
+	 */
+	private String issueKey(String message, int start, int end) {
+		int i = end;
+		while(i < message.length() && message.charAt(i) == ' ')
+			i++;
+		if(i == message.length() || message.charAt(i) != '-')
+			return null;
+		i++;
+		while(i < message.length() && message.charAt(i) == ' ')
+			i++;
+		int digits = i;
+		while(i < message.length() && message.charAt(i) >= '0' && message.charAt(i) <= '9')
+			i++;
+		if(i == digits)
+			return null;
+		return message.substring(start, end).toLowerCase() + "-" + message.substring(digits, i);
+	}
+	
+	/**
+	 * @param c a lower case character
+	 * @return the position of the character in the alphabet of the keys, -1 if no key holds it
+	 */
+	private int symbol(char c) {
+		int symbol = Arrays.binarySearch(this.alphabet, c);
+		return symbol < 0 ? -1 : symbol;
+	}
+	
+	/**
+	 * @return a state without transitions
+	 */
+	private int[] newState() {
+		int[] transitions = new int[this.alphabet.length];
+		Arrays.fill(transitions, -1);
+		return transitions;
+	}
+}
@@ -11,30 +11,40 @@
 //
 package com.SZZ.linker;
 
-import java.io.File;
-import java.io.PrintWriter;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.SZZ.entities.Bug;
 import com.SZZ.entities.Commit;
 import com.SZZ.entities.Link;
+import com.SZZ.entities.TaskScheduler;
+import com.SZZ.output.ResultSink;
 /**
  * Formulates links between a given list of issues and commits and returns a list of bug fixing commits.
  * We rule out bug fixing commits that are outliers in terms of the number of files affected. We also
- * use reguglar expressions to find all commits that are first potentially bug fixing by finding their
- * assosiated bug issue number. This is then used to formulate a link.
+ * find all commits that are first potentially bug fixing by finding their assosiated bug issue numbers,
+ * of one or more Jira projects. Each is then used to formulate a link.
  * @author Thomas Watkins
  */
 public class LinkConnector {
+	/** Commits affecting more than this many times the median number of files are outliers */
+	public static final int OUTLIER_FACTOR = 5;
+	/** Number of commits linked by one task when linking in parallel */
+	private static final int LINK_CHUNK = 4096;
+	
 	private HashMap<String, Bug> issues;         
 	private ArrayList<Commit> commits;   		  
 	private ArrayList<Link> bugFixingLinks;       
-	private ArrayList<Commit> bugFixingCommits;   
 	private String projectKey;		
+	private IssueKeyMatcher issueKeyMatcher;
+	private TaskScheduler scheduler;
+	private OutlierPolicy outlierPolicy;
+	private long outlierPeriod;
+	private long maxSuspectAge;
+	private ResultSink resultSink;
 	
 	/**
 	 * Creates a link connector for a given list of issues and commits.
@@ -47,7 +57,66 @@ public class LinkConnector {
 		this.commits = commits;
 		this.projectKey = projectKey;
 		this.bugFixingLinks = new ArrayList<>();
-		this.bugFixingCommits = new ArrayList<>();
+		this.issueKeyMatcher = new IssueKeyMatcher(Collections.singletonList(projectKey));
+		this.outlierPolicy = new MedianOutlierPolicy(OUTLIER_FACTOR);
+		this.maxSuspectAge = Link.MAX_SUSPECT_AGE;
+	}
+	
+	/**
+	 * Sets the multiple of the median number of files affected above which a commit is an outlier.
+	 * @param outlierFactor the outlier factor
+	 */
+	public void setOutlierFactor(int outlierFactor) {
+		this.outlierPolicy = new MedianOutlierPolicy(outlierFactor);
+	}
+	
+	/**
+	 * Sets the policy deciding the number of files affected above which a commit is an outlier.
+	 * @param outlierPolicy the outlier policy
+	 */
+	public void setOutlierPolicy(OutlierPolicy outlierPolicy) {
+		this.outlierPolicy = outlierPolicy;
+	}
+	
+	/**
+	 * Sets the length of the periods of time whose commits are given their own outlier boundary.
+	 * @param outlierPeriod the length of a period in seconds, 0 for one boundary over the whole history
+	 */
+	public void setOutlierPeriod(long outlierPeriod) {
+		this.outlierPeriod = outlierPeriod;
+	}
+	
+	/**
+	 * Sets the Jira projects whose issue keys are looked for in commit messages, by default only 
+	 * the project key of this connector. The issues of every project should be in the issues map.
+	 * @param projectKeys the project keys
+	 */
+	public void setProjectKeys(Collection<String> projectKeys) {
+		this.issueKeyMatcher = new IssueKeyMatcher(projectKeys);
+	}
+	
+	/**
+	 * Sets the scheduler linking commits in parallel, commits are linked on the calling thread without one.
+	 * @param scheduler the task scheduler
+	 */
+	public void setScheduler(TaskScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+	
+	/**
+	 * Sets the maximum time between a bug introducing commit and its fix for the links created.
+	 * @param maxSuspectAge the maximum time in seconds
+	 */
+	public void setMaxSuspectAge(long maxSuspectAge) {
+		this.maxSuspectAge = maxSuspectAge;
+	}
+	
+	/**
+	 * Sets the sink the bug fixing commits are written to once linked.
+	 * @param resultSink the result sink, null to write nothing
+	 */
+	public void setResultSink(ResultSink resultSink) {
+		this.resultSink = resultSink;
 	}
 	
 	/**
@@ -58,67 +127,116 @@ public class LinkConnector {
 	 */
 	public ArrayList<Link> getBugFixingCommits() {
 		System.out.println("Getting Bug Fixing Commits");
-		//Calculate median number files affected per commit
-		ArrayList<Integer> filesAffected = new ArrayList<>();
-		for(int i = 0; i < this.commits.size(); i++) 
-			filesAffected.add(this.commits.get(i).getFiles().size());		
-		
-		//Grab median value and times by 5 to generate outlier boundary
-		Collections.sort(filesAffected);		
-		int outlier = filesAffected.get(filesAffected.size()/2) * 5;
-		
-		//Filter commits that don't have issue numbers within commit message AND filter commits than have more than 5 times median number of files affected
+		//Calculate the outlier boundary of every period from the number of files affected per commit
+		OutlierBoundary outlier = createOutlierBoundary(false);
+		//Commits whose affected files could not be read are left out
 		for(Commit commit: this.commits) {
-			if(potentiallyBugFixing(commit) && !(commit.getFiles().size() > outlier))			
-				this.bugFixingCommits.add(commit);		
-		}	
-		
-		//Create links between commits and issues
-		for(Commit commit: this.bugFixingCommits) {
-			if(this.issues.get(commit.getBugIDLink()) != null) 
-				this.bugFixingLinks.add(new Link(this.issues.get(commit.getBugIDLink()), commit));			
+			if(commit.getFileCount() >= 0)
+				outlier.add(commit.getTimeStamp(), commit.getFileCount());
 		}
 		
-		//Only consider links that satisfy sem > 1 ∨ (sem = 1 ∧ syn > 0)
-		ArrayList<Link> tempLinks = new ArrayList<>();
-		for(Link link: this.bugFixingLinks) {
-			if((link.getSemanticConfidence() > 1) || (link.getSemanticConfidence() == 1 && link.getSyntacticConfidence() > 0))
-				tempLinks.add(link);
-		}		
-		this.bugFixingLinks = tempLinks;	
+		//Link commits that have issue numbers within commit message AND don't affect more files than the outlier boundary, in chunks of commits
+		ArrayList<ArrayList<Link>> chunks = new ArrayList<>();
+		ArrayList<Integer> starts = new ArrayList<>();
+		for(int start = 0; start < this.commits.size(); start += LINK_CHUNK) {
+			chunks.add(null);
+			starts.add(start);
+		}
+		if(this.scheduler != null)
+			this.scheduler.forEach(starts, null, start -> chunks.set(start / LINK_CHUNK, linkChunk(start, outlier)));
+		else
+			for(int start: starts)
+				chunks.set(start / LINK_CHUNK, linkChunk(start, outlier));
+		for(ArrayList<Link> chunk: chunks)
+			this.bugFixingLinks.addAll(chunk);
 		
-		//Check how many unique bugs have been linked to commits
+		printUniqueBugs(this.bugFixingLinks);
+		writeBugFixingCommits(this.bugFixingLinks);
+		return this.bugFixingLinks;
+	}
+	
+	/**
+	 * Links a chunk of commits to their issues.
+	 * @param start the index of the first commit of the chunk
+	 * @param outlier the outlier boundary of every commit
+	 * @return the confident links of the chunk, in commit order
+	 */
+	private ArrayList<Link> linkChunk(int start, OutlierBoundary outlier) {
+		ArrayList<Link> links = new ArrayList<>();
+		for(int i = start; i < Math.min(start + LINK_CHUNK, this.commits.size()); i++) {
+			Commit commit = this.commits.get(i);
+			if(!outlier.isOutlier(commit.getTimeStamp(), commit.getFileCount()))
+				links.addAll(createLinks(commit));
+		}
+		return links;
+	}
+	
+	/**
+	 * Links a single commit to its issues, for callers that see commits one at a time. The same 
+	 * filters as {@link #getBugFixingCommits()} are applied apart from the outlier boundary, which 
+	 * depends on every commit and is left to the caller.
+	 * @param commit the commit, with its affected files
+	 * @return a link for every issue of the commit linked with enough confidence, in the order they 
+	 * appear, none if the affected files of the commit could not be read
+	 */
+	public ArrayList<Link> createLinks(Commit commit) {
+		ArrayList<Link> links = new ArrayList<>();
+		if(commit.getFileCount() < 0 || !potentiallyBugFixing(commit))
+			return links;
+		for(String issueKey: commit.getBugIDLinks()) {
+			Bug bug = this.issues.get(issueKey);
+			if(bug == null)
+				continue;
+			Link link = new Link(bug, commit);
+			link.setMaxSuspectAge(this.maxSuspectAge);
+			//Only consider links that satisfy sem > 1 ∨ (sem = 1 ∧ syn > 0)
+			if(isConfident(link))
+				links.add(link);
+		}
+		return links;
+	}
+	
+	/**
+	 * @param streaming true if the boundary is asked for between commits being added
+	 * @return an empty outlier boundary with this connector's policy and period
+	 */
+	public OutlierBoundary createOutlierBoundary(boolean streaming) {
+		return new OutlierBoundary(this.outlierPolicy, this.outlierPeriod, streaming);
+	}
+	
+	/**
+	 * A helper function to determine if a link satisfies sem > 1 ∨ (sem = 1 ∧ syn > 0).
+	 * @param link the link
+	 * @return true if the link is confident enough
+	 */
+	private boolean isConfident(Link link) {
+		return (link.getSemanticConfidence() > 1) || (link.getSemanticConfidence() == 1 && link.getSyntacticConfidence() > 0);
+	}
+	
+	/**
+	 * Prints how many unique bugs have been linked to commits.
+	 * @param links the bug fixing links
+	 */
+	public void printUniqueBugs(ArrayList<Link> links) {
 		HashMap<String, Bug> uniques = new HashMap<>();
-		for(Link l: this.bugFixingLinks) 
+		for(Link l: links) 
 			uniques.put(l.getBug().getIssueKey(), l.getBug());		
 		System.out.println("Unique Bugs Matched: " + uniques.size());
-		
-		printToFile();
-		return this.bugFixingLinks;
 	}
 	
 	/**
-	 * A function to print the bug fixing commits to file.
+	 * Writes the bug fixing commits to the result sink, if there is one.
+	 * @param links the bug fixing links
 	 */
-	private void printToFile() {
+	public void writeBugFixingCommits(ArrayList<Link> links) {
+		if(this.resultSink == null)
+			return;
 		try {
-			File f = new File(this.projectKey + "-BugFixCommits" + ".csv");
-			PrintWriter writer = new PrintWriter(f);
-			writer.println("CommitHash;CommitTime;CommitComment;IssueKey;IssueOpenD;IssueResolvedD;IssueTitle;");
-			for(Link l: this.bugFixingLinks) {				
-				String printString = l.getCommit().getHash() + ";"
-				 + l.getCommit().getTimeStamp() + ";"
-				 + l.getCommit().getComment().replace(";", "") + ";"
-				 + l.getBug().getIssueKey() + ";"
-				 + l.getBug().getCreatedDate() + ";"
-				 + l.getBug().getResolvedDate() + ";"
-				 + l.getBug().getTitle().replace(";", "") + ";";				
-				writer.println(printString);
-			}	
-			writer.close();
-		} catch (Exception e) {
+			for(Link l: links)
+				this.resultSink.writeBugFixingCommit(l);
+		} catch (IOException e) {
 			e.printStackTrace();
-		}	
+		}
 	}
 
 	/**
@@ -127,17 +245,12 @@ public class LinkConnector {
 	 * @return true if commit message contains jira bug
 	 */
 	private boolean potentiallyBugFixing(Commit commit) {
-		//If commit comment contains projectname-numberid E.g APACHE-1234
-		String regex = projectKey.toLowerCase()+"[ ]*-[ ]*[0-9]+";
-     	Pattern pattern = Pattern.compile(regex);
-	    Matcher matcher = pattern.matcher(commit.getComment().toLowerCase());
-	    boolean found = matcher.find();
+		//If commit comment contains projectname-numberid E.g APACHE-1234, for any of the projects
+		ArrayList<String> issueKeys = this.issueKeyMatcher.match(commit.getComment());
 	    
-	    //Store bug id in commit for link retrieval
-	    if(found) 
-	    	commit.setBugIDLink(matcher.group());
+	    //Store bug ids in commit for link retrieval
+	    commit.setBugIDLinks(issueKeys);
 	    
-	    return found;
-	   	
+	    return !issueKeys.isEmpty();
 	}	
 }
@@ -0,0 +1,37 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.linker;
+
+/**
+ * Commits affecting more than a multiple of the median number of files are outliers.
+ * @author Thomas Watkins
+ */
+public class MedianOutlierPolicy implements OutlierPolicy {
+	private int factor;
+	
+	/**
+	 * @param factor the multiple of the median
+	 */
+	public MedianOutlierPolicy(int factor) {
+		this.factor = factor;
+	}
+	
+	@Override
+	public int getBoundary(Quantiles filesAffected) {
+		return filesAffected.getQuantile(0.5) * this.factor;
+	}
+	
+	@Override
+	public String toString() {
+		return "median*" + this.factor;
+	}
+}
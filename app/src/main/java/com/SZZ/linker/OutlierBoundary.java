@@ -0,0 +1,114 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.linker;
+
+import java.util.HashMap;
+/**
+ * The outlier boundary of every time period of a project, so commits are only compared with 
+ * commits made around the same time. Periods are fixed lengths of time from the epoch, or the 
+ * whole history when no length is given. Commits are kept in a {@link FilesAffectedSample} per 
+ * period, or in a {@link FilesAffectedHistogram} when the boundary is asked for as commits arrive.
+ * @author Thomas Watkins
+ */
+public class OutlierBoundary {
+	private OutlierPolicy policy;
+	private long period;
+	private boolean streaming;
+	private HashMap<Long, Period> periods;
+	private long total;
+	
+	/**
+	 * Creates an empty outlier boundary.
+	 * @param policy the outlier policy applied to each period
+	 * @param period the length of a period in seconds, 0 for the whole history
+	 * @param streaming true if the boundary is asked for between commits being added
+	 */
+	public OutlierBoundary(OutlierPolicy policy, long period, boolean streaming) {
+		this.policy = policy;
+		this.period = period;
+		this.streaming = streaming;
+		this.periods = new HashMap<>();
+	}
+	
+	/**
+	 * Adds a commit.
+	 * @param time the commit time in seconds
+	 * @param files the number of files affected by the commit
+	 */
+	public void add(long time, int files) {
+		Period period = this.periods.get(getPeriod(time));
+		if(period == null) {
+			period = new Period(this.streaming ? new FilesAffectedHistogram() : new FilesAffectedSample());
+			this.periods.put(getPeriod(time), period);
+		}
+		period.filesAffected.add(files);
+		period.boundary = -1;
+		this.total++;
+	}
+	
+	/**
+	 * @param time the commit time in seconds
+	 * @param files the number of files affected by the commit
+	 * @return true if the commit affects more files than the boundary of its period
+	 */
+	public boolean isOutlier(long time, int files) {
+		return files > getBoundary(time);
+	}
+	
+	/**
+	 * @param time the commit time in seconds
+	 * @return the outlier boundary of the period holding that time, 0 if it has no commits
+	 */
+	public int getBoundary(long time) {
+		Period period = this.periods.get(getPeriod(time));
+		if(period == null)
+			return 0;
+		if(period.boundary < 0)
+			period.boundary = this.policy.getBoundary(period.filesAffected);
+		return period.boundary;
+	}
+	
+	/**
+	 * @return the number of commits added
+	 */
+	public long getTotal() {
+		return this.total;
+	}
+	
+	/**
+	 * @return the number of periods with commits
+	 */
+	public int getPeriodCount() {
+		return this.periods.size();
+	}
+	
+	/**
+	 * @param time the commit time in seconds
+	 * @return the period holding that time
+	 */
+	private long getPeriod(long time) {
+		return this.period > 0 ? Math.floorDiv(time, this.period) : 0;
+	}
+	
+	/**
+	 * The commits of one period and its boundary once calculated.
+	 */
+	private static class Period {
+		private Quantiles filesAffected;
+		private int boundary;
+		
+		private Period(Quantiles filesAffected) {
+			this.filesAffected = filesAffected;
+			this.boundary = -1;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.linker;
+
+/**
+ * Decides the number of files affected above which a commit is an outlier.
+ * @author Thomas Watkins
+ */
+public interface OutlierPolicy {
+	
+	/**
+	 * @param filesAffected the number of files affected per commit
+	 * @return the outlier boundary, commits affecting more files are outliers
+	 */
+	int getBoundary(Quantiles filesAffected);
+	
+	/**
+	 * Creates a policy by name.
+	 * @param name "median", "percentile" or "iqr"
+	 * @param factor the multiple of the median for "median"
+	 * @param percentile the percentile for "percentile", from 0 to 100
+	 * @param fence the multiple of the interquartile range for "iqr"
+	 * @return the policy
+	 * @throws IllegalArgumentException if the name is unknown or the percentile is not from 0 to 100
+	 */
+	static OutlierPolicy create(String name, int factor, double percentile, double fence) {
+		switch(name.toLowerCase()) {
+		case "median":
+			return new MedianOutlierPolicy(factor);
+		case "percentile":
+			return new PercentileOutlierPolicy(percentile);
+		case "iqr":
+			return new IqrOutlierPolicy(fence);
+		default:
+			throw new IllegalArgumentException("Unknown outlier policy: " + name);
+		}
+	}
+}
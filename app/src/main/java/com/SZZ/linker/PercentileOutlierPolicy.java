@@ -0,0 +1,40 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.linker;
+
+/**
+ * Commits affecting more files than a given percentile of commits are outliers.
+ * @author Thomas Watkins
+ */
+public class PercentileOutlierPolicy implements OutlierPolicy {
+	private double percentile;
+	
+	/**
+	 * @param percentile the percentile, from 0 to 100
+	 * @throws IllegalArgumentException if the percentile is not from 0 to 100
+	 */
+	public PercentileOutlierPolicy(double percentile) {
+		if(!(percentile >= 0 && percentile <= 100))
+			throw new IllegalArgumentException("--outlier-percentile must be from 0 to 100: " + percentile);
+		this.percentile = percentile;
+	}
+	
+	@Override
+	public int getBoundary(Quantiles filesAffected) {
+		return filesAffected.getQuantile(this.percentile / 100);
+	}
+	
+	@Override
+	public String toString() {
+		return "percentile=" + this.percentile;
+	}
+}
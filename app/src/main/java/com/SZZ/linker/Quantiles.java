@@ -0,0 +1,38 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.linker;
+
+/**
+ * The distribution of the number of files affected per commit, asked for its quantiles.
+ * @author Thomas Watkins
+ */
+public interface Quantiles {
+	
+	/**
+	 * Adds a commit.
+	 * @param files the number of files affected by the commit
+	 */
+	void add(int files);
+	
+	/**
+	 * @return the number of commits added
+	 */
+	long getTotal();
+	
+	/**
+	 * Gives the element at position fraction * total of the sorted file counts, so 0.5 is the 
+	 * median (the upper one for an even number of commits).
+	 * @param fraction the fraction of commits, from 0 to 1
+	 * @return the number of files affected, 0 if no commit has been added
+	 */
+	int getQuantile(double fraction);
+}
@@ -0,0 +1,214 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.output;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.GZIPInputStream;
+/**
+ * Writes results to {@code KEY-Results.bin} in a compact binary form for very large suspect tables. 
+ * Hashes, file names and issue keys repeat across rows, so every string is written once and then 
+ * referred to by its number in a dictionary that grows as the file is written. Numbers are written 
+ * in as few bytes as they need. {@link #read} gives the rows of a file to another sink.
+ * <p>
+ * The file starts with "SZZR" and a version byte, followed by rows. A row is a byte, 1 for a bug 
+ * fixing commit or 2 for a bug introducing commit, and the fields of {@link ResultSink} in order. 
+ * A string is a number, 0 for a new string followed by its length and UTF-8 bytes, otherwise one 
+ * more than the number of a string given before. Times are zigzag encoded.
+ * @author Thomas Watkins
+ */
+public class BinaryResultSink implements ResultSink {
+	private static final byte[] MAGIC = {'S', 'Z', 'Z', 'R'};
+	private static final int VERSION = 1;
+	private static final int BUG_FIXING_COMMIT = 1;
+	private static final int BUG_INTRODUCING_COMMIT = 2;
+	
+	private OutputStream out;
+	private HashMap<String, Integer> dictionary;
+	
+	/**
+	 * Creates the file of a project.
+	 * @param projectKey the key of the project
+	 * @param gzip true to compress the file
+	 * @throws IOException if the file cannot be created
+	 */
+	public BinaryResultSink(String projectKey, boolean gzip) throws IOException {
+		this.out = OutputFiles.open(projectKey + "-Results.bin", gzip);
+		this.dictionary = new HashMap<>();
+		this.out.write(MAGIC);
+		this.out.write(VERSION);
+	}
+	
+	@Override
+	public synchronized void bugFixingCommit(String hash, long time, String comment, String issueKey, long openedDate, long resolvedDate, String title) throws IOException {
+		this.out.write(BUG_FIXING_COMMIT);
+		writeString(hash);
+		writeLong(time);
+		writeString(comment);
+		writeString(issueKey);
+		writeLong(openedDate);
+		writeLong(resolvedDate);
+		writeString(title);
+	}
+	
+	@Override
+	public synchronized void bugIntroducingCommit(String fixHash, long fixTime, String fileName, String hash, long time, String issueKey) throws IOException {
+		this.out.write(BUG_INTRODUCING_COMMIT);
+		writeString(fixHash);
+		writeLong(fixTime);
+		writeString(fileName);
+		writeString(hash);
+		writeLong(time);
+		writeString(issueKey);
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		this.out.close();
+	}
+	
+	/**
+	 * Reads a file written by this sink, compressed or not, giving every row to another sink.
+	 * @param file the file
+	 * @param sink the sink given the rows
+	 * @throws IOException if the file cannot be read or was not written by this sink
+	 */
+	public static void read(File file, ResultSink sink) throws IOException {
+		try (InputStream in = openInput(file)) {
+			byte[] magic = new byte[MAGIC.length];
+			for(int i = 0; i < magic.length; i++)
+				magic[i] = (byte) readByte(in);
+			if(!Arrays.equals(magic, MAGIC) || readByte(in) != VERSION)
+				throw new IOException(file + " is not a results file");
+			
+			ArrayList<String> dictionary = new ArrayList<>();
+			int row;
+			while((row = in.read()) != -1) {
+				if(row == BUG_FIXING_COMMIT)
+					sink.bugFixingCommit(readString(in, dictionary), readLong(in), readString(in, dictionary), readString(in, dictionary), 
+							readLong(in), readLong(in), readString(in, dictionary));
+				else if(row == BUG_INTRODUCING_COMMIT)
+					sink.bugIntroducingCommit(readString(in, dictionary), readLong(in), readString(in, dictionary), readString(in, dictionary), 
+							readLong(in), readString(in, dictionary));
+				else
+					throw new IOException("Unknown row " + row + " in " + file);
+			}
+		}
+	}
+	
+	/**
+	 * A helper function to write a string, or its number if it has been written before.
+	 */
+	private void writeString(String value) throws IOException {
+		Integer number = this.dictionary.get(value);
+		if(number != null) {
+			writeNumber(number + 1L);
+			return;
+		}
+		this.dictionary.put(value, this.dictionary.size());
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeNumber(0);
+		writeNumber(bytes.length);
+		this.out.write(bytes);
+	}
+	
+	/**
+	 * A helper function to write a time, zigzag encoded so negative values stay small.
+	 */
+	private void writeLong(long value) throws IOException {
+		writeNumber((value << 1) ^ (value >> 63));
+	}
+	
+	/**
+	 * A helper function to write an unsigned number seven bits at a time, the lowest first.
+	 */
+	private void writeNumber(long value) throws IOException {
+		while((value & ~0x7FL) != 0) {
+			this.out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		this.out.write((int) value);
+	}
+	
+	/**
+	 * A helper function to read a string written by writeString.
+	 */
+	private static String readString(InputStream in, ArrayList<String> dictionary) throws IOException {
+		long number = readNumber(in);
+		if(number > 0) {
+			if(number > dictionary.size())
+				throw new IOException("Unknown string " + number);
+			return dictionary.get((int) (number - 1));
+		}
+		byte[] bytes = new byte[(int) readNumber(in)];
+		for(int read = 0; read < bytes.length; ) {
+			int count = in.read(bytes, read, bytes.length - read);
+			if(count < 0)
+				throw new EOFException();
+			read += count;
+		}
+		String value = new String(bytes, StandardCharsets.UTF_8);
+		dictionary.add(value);
+		return value;
+	}
+	
+	/**
+	 * A helper function to read a time written by writeLong.
+	 */
+	private static long readLong(InputStream in) throws IOException {
+		long value = readNumber(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	/**
+	 * A helper function to read a number written by writeNumber.
+	 */
+	private static long readNumber(InputStream in) throws IOException {
+		long value = 0;
+		for(int shift = 0; ; shift += 7) {
+			int b = readByte(in);
+			value |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0)
+				return value;
+		}
+	}
+	
+	/**
+	 * A helper function to read a byte that must be there.
+	 */
+	private static int readByte(InputStream in) throws IOException {
+		int b = in.read();
+		if(b < 0)
+			throw new EOFException();
+		return b;
+	}
+	
+	/**
+	 * A helper function to open a file, decompressing it if it starts as a gzip file does.
+	 */
+	private static InputStream openInput(File file) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+		in.mark(2);
+		boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+		in.reset();
+		return gzip ? new BufferedInputStream(new GZIPInputStream(in, 1 << 16), 1 << 16) : in;
+	}
+}
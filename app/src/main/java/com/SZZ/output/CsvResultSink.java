@@ -0,0 +1,73 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.output;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+/**
+ * Writes results to {@code KEY-BugFixCommits.csv} and {@code KEY-BugIntroducingCommits.csv}, fields 
+ * separated by ";". A field holding a separator, quote or line break is quoted, doubling its quotes.
+ * @author Thomas Watkins
+ */
+public class CsvResultSink implements ResultSink {
+	private Writer bugFixingCommits;
+	private Writer bugIntroducingCommits;
+	
+	/**
+	 * Creates the files of a project, writing their headers.
+	 * @param projectKey the key of the project
+	 * @param gzip true to compress the files
+	 * @throws IOException if a file cannot be created
+	 */
+	public CsvResultSink(String projectKey, boolean gzip) throws IOException {
+		this.bugFixingCommits = new OutputStreamWriter(OutputFiles.open(projectKey + "-BugFixCommits.csv", gzip), Charset.defaultCharset());
+		this.bugIntroducingCommits = new OutputStreamWriter(OutputFiles.open(projectKey + "-BugIntroducingCommits.csv", gzip), Charset.defaultCharset());
+		this.bugFixingCommits.write("CommitHash;CommitTime;CommitComment;IssueKey;IssueOpenD;IssueResolvedD;IssueTitle;" + System.lineSeparator());
+		this.bugIntroducingCommits.write("BFCHash;BFCTime;File;BICHash;BICTime;IssueKey;" + System.lineSeparator());
+	}
+	
+	@Override
+	public synchronized void bugFixingCommit(String hash, long time, String comment, String issueKey, long openedDate, long resolvedDate, String title) throws IOException {
+		this.bugFixingCommits.write(hash + ";" + time + ";" + quote(comment) + ";" + quote(issueKey) + ";" 
+				+ openedDate + ";" + resolvedDate + ";" + quote(title) + ";" + System.lineSeparator());
+	}
+	
+	@Override
+	public synchronized void bugIntroducingCommit(String fixHash, long fixTime, String fileName, String hash, long time, String issueKey) throws IOException {
+		this.bugIntroducingCommits.write(fixHash + ";" + fixTime + ";" + quote(fileName) + ";" + hash + ";" + time + ";" 
+				+ quote(issueKey) + ";" + System.lineSeparator());
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			this.bugFixingCommits.close();
+		} finally {
+			this.bugIntroducingCommits.close();
+		}
+	}
+	
+	/**
+	 * @param field a field
+	 * @return the field, quoted if it holds a separator, quote or line break
+	 */
+	static String quote(String field) {
+		for(int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+			if(c == ';' || c == '"' || c == '\n' || c == '\r')
+				return "\"" + field.replace("\"", "\"\"") + "\"";
+		}
+		return field;
+	}
+}
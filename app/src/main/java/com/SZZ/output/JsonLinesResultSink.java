@@ -0,0 +1,101 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.output;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+/**
+ * Writes results as JSON Lines to {@code KEY-BugFixCommits.jsonl} and {@code KEY-BugIntroducingCommits.jsonl}, 
+ * one object per row, for loading into tools that read JSON as a stream.
+ * @author Thomas Watkins
+ */
+public class JsonLinesResultSink implements ResultSink {
+	private Writer bugFixingCommits;
+	private Writer bugIntroducingCommits;
+	private StringBuilder line = new StringBuilder();
+	
+	/**
+	 * Creates the files of a project.
+	 * @param projectKey the key of the project
+	 * @param gzip true to compress the files
+	 * @throws IOException if a file cannot be created
+	 */
+	public JsonLinesResultSink(String projectKey, boolean gzip) throws IOException {
+		this.bugFixingCommits = new OutputStreamWriter(OutputFiles.open(projectKey + "-BugFixCommits.jsonl", gzip), StandardCharsets.UTF_8);
+		this.bugIntroducingCommits = new OutputStreamWriter(OutputFiles.open(projectKey + "-BugIntroducingCommits.jsonl", gzip), StandardCharsets.UTF_8);
+	}
+	
+	@Override
+	public synchronized void bugFixingCommit(String hash, long time, String comment, String issueKey, long openedDate, long resolvedDate, String title) throws IOException {
+		this.line.setLength(0);
+		this.line.append("{\"commitHash\":");
+		append(hash);
+		this.line.append(",\"commitTime\":").append(time).append(",\"commitComment\":");
+		append(comment);
+		this.line.append(",\"issueKey\":");
+		append(issueKey);
+		this.line.append(",\"issueOpened\":").append(openedDate).append(",\"issueResolved\":").append(resolvedDate).append(",\"issueTitle\":");
+		append(title);
+		this.line.append("}\n");
+		this.bugFixingCommits.append(this.line);
+	}
+	
+	@Override
+	public synchronized void bugIntroducingCommit(String fixHash, long fixTime, String fileName, String hash, long time, String issueKey) throws IOException {
+		this.line.setLength(0);
+		this.line.append("{\"bfcHash\":");
+		append(fixHash);
+		this.line.append(",\"bfcTime\":").append(fixTime).append(",\"file\":");
+		append(fileName);
+		this.line.append(",\"bicHash\":");
+		append(hash);
+		this.line.append(",\"bicTime\":").append(time).append(",\"issueKey\":");
+		append(issueKey);
+		this.line.append("}\n");
+		this.bugIntroducingCommits.append(this.line);
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			this.bugFixingCommits.close();
+		} finally {
+			this.bugIntroducingCommits.close();
+		}
+	}
+	
+	/**
+	 * Appends a string to the line as a JSON string.
+	 * @param value the string
+	 */
+	private void append(String value) {
+		this.line.append('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch(c) {
+			case '"': this.line.append("\\\""); break;
+			case '\\': this.line.append("\\\\"); break;
+			case '\n': this.line.append("\\n"); break;
+			case '\r': this.line.append("\\r"); break;
+			case '\t': this.line.append("\\t"); break;
+			default:
+				if(c < 0x20)
+					this.line.append(String.format("\\u%04x", (int) c));
+				else
+					this.line.append(c);
+			}
+		}
+		this.line.append('"');
+	}
+}
@@ -0,0 +1,56 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.output;
+
+import java.io.IOException;
+
+import com.SZZ.entities.Link;
+/**
+ * Writes the bug introducing commits of links in the order of the links, each link as soon as it 
+ * and every link before it have finished, so rows reach the sink while later links are still 
+ * being blamed and the files come out the same however the work was scheduled.
+ * @author Thomas Watkins
+ */
+public class OrderedResultWriter {
+	private ResultSink sink;
+	private Link[] finished;
+	private int next;
+	
+	/**
+	 * Creates a writer of a number of links.
+	 * @param sink the sink, null to write nothing
+	 * @param count the number of links
+	 */
+	public OrderedResultWriter(ResultSink sink, int count) {
+		this.sink = sink;
+		this.finished = new Link[count];
+	}
+	
+	/**
+	 * Records that a link has finished, writing it and any finished links after it once every 
+	 * link before it has been written.
+	 * @param index the position of the link
+	 * @param link the link
+	 */
+	public synchronized void finished(int index, Link link) {
+		this.finished[index] = link;
+		while(this.next < this.finished.length && this.finished[this.next] != null) {
+			try {
+				if(this.sink != null)
+					this.sink.writeBugIntroducingCommits(this.finished[this.next]);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			this.finished[this.next++] = null;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.output;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+/**
+ * Opens the files results are written to.
+ * @author Thomas Watkins
+ */
+class OutputFiles {
+	//Rows are written to the file a megabyte at a time
+	private static final int BUFFER_SIZE = 1 << 20;
+	
+	private OutputFiles() {
+	}
+	
+	/**
+	 * Opens a file for writing, replacing what it held.
+	 * @param name the name of the file, without the ".gz" added when compressed
+	 * @param gzip true to compress the file
+	 * @return the buffered stream writing the file
+	 * @throws IOException if the file cannot be created
+	 */
+	static OutputStream open(String name, boolean gzip) throws IOException {
+		File file = new File(gzip ? name + ".gz" : name);
+		OutputStream out = Channels.newOutputStream(FileChannel.open(file.toPath(), 
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+		if(gzip)
+			out = new GZIPOutputStream(out, 1 << 16);
+		return new BufferedOutputStream(out, BUFFER_SIZE);
+	}
+}
@@ -0,0 +1,113 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import com.SZZ.entities.Link;
+import com.SZZ.entities.Suspect;
+/**
+ * Receives the results of a run, the bug fixing commits and their bug introducing commits, as they 
+ * are found. A sink may be written by several threads.
+ * @author Thomas Watkins
+ */
+public interface ResultSink extends Closeable {
+	
+	/**
+	 * Writes a bug fixing commit, linked to the issue it fixes.
+	 * @param hash the hash of the commit
+	 * @param time the time of the commit in seconds
+	 * @param comment the short message of the commit
+	 * @param issueKey the key of the issue
+	 * @param openedDate the time the issue was created in milliseconds
+	 * @param resolvedDate the time the issue was resolved in milliseconds
+	 * @param title the title of the issue
+	 * @throws IOException if the row cannot be written
+	 */
+	void bugFixingCommit(String hash, long time, String comment, String issueKey, long openedDate, long resolvedDate, String title) throws IOException;
+	
+	/**
+	 * Writes a bug introducing commit of a bug fixing commit.
+	 * @param fixHash the hash of the bug fixing commit
+	 * @param fixTime the time of the bug fixing commit in seconds
+	 * @param fileName the file blamed
+	 * @param hash the hash of the bug introducing commit
+	 * @param time the time of the bug introducing commit in seconds
+	 * @param issueKey the key of the issue fixed
+	 * @throws IOException if the row cannot be written
+	 */
+	void bugIntroducingCommit(String fixHash, long fixTime, String fileName, String hash, long time, String issueKey) throws IOException;
+	
+	/**
+	 * Writes the bug fixing commit of a link.
+	 * @param link the link
+	 * @throws IOException if the row cannot be written
+	 */
+	default void writeBugFixingCommit(Link link) throws IOException {
+		bugFixingCommit(link.getCommit().getHash(), link.getCommit().getTimeStamp(), link.getCommit().getComment(), 
+				link.getBug().getIssueKey(), link.getBug().getCreatedDate(), link.getBug().getResolvedDate(), link.getBug().getTitle());
+	}
+	
+	/**
+	 * Writes every bug introducing commit of a link.
+	 * @param link the link
+	 * @throws IOException if a row cannot be written
+	 */
+	default void writeBugIntroducingCommits(Link link) throws IOException {
+		for(Suspect suspect: link.getBugIntroducingCommits().values())
+			bugIntroducingCommit(link.getCommit().getHash(), link.getCommit().getTimeStamp(), suspect.getFileName(), 
+					suspect.getHash(), suspect.getDate(), link.getBug().getIssueKey());
+	}
+	
+	/**
+	 * Creates a sink writing the files of a project.
+	 * @param formats comma separated formats: "csv", "jsonl" or "binary"
+	 * @param projectKey the key of the project, the start of every file name
+	 * @param compression "none" or "gzip"
+	 * @return the sink
+	 * @throws IOException if a file cannot be created
+	 */
+	static ResultSink create(String formats, String projectKey, String compression) throws IOException {
+		boolean gzip;
+		switch(compression.toLowerCase()) {
+		case "none":
+			gzip = false;
+			break;
+		case "gzip":
+			gzip = true;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown output compression: " + compression);
+		}
+		ArrayList<ResultSink> sinks = new ArrayList<>();
+		for(String format: formats.split(",")) {
+			switch(format.trim().toLowerCase()) {
+			case "csv":
+				sinks.add(new CsvResultSink(projectKey, gzip));
+				break;
+			case "jsonl":
+				sinks.add(new JsonLinesResultSink(projectKey, gzip));
+				break;
+			case "binary":
+				sinks.add(new BinaryResultSink(projectKey, gzip));
+				break;
+			default:
+				for(ResultSink sink: sinks)
+					sink.close();
+				throw new IllegalArgumentException("Unknown output format: " + format);
+			}
+		}
+		return sinks.size() == 1 ? sinks.get(0) : new TeeResultSink(sinks);
+	}
+}
@@ -0,0 +1,56 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.output;
+
+import java.io.IOException;
+import java.util.List;
+/**
+ * Writes results to several sinks, to produce several formats in one run.
+ * @author Thomas Watkins
+ */
+public class TeeResultSink implements ResultSink {
+	private List<ResultSink> sinks;
+	
+	/**
+	 * Creates a sink writing to every given sink.
+	 * @param sinks the sinks
+	 */
+	public TeeResultSink(List<ResultSink> sinks) {
+		this.sinks = sinks;
+	}
+	
+	@Override
+	public void bugFixingCommit(String hash, long time, String comment, String issueKey, long openedDate, long resolvedDate, String title) throws IOException {
+		for(ResultSink sink: this.sinks)
+			sink.bugFixingCommit(hash, time, comment, issueKey, openedDate, resolvedDate, title);
+	}
+	
+	@Override
+	public void bugIntroducingCommit(String fixHash, long fixTime, String fileName, String hash, long time, String issueKey) throws IOException {
+		for(ResultSink sink: this.sinks)
+			sink.bugIntroducingCommit(fixHash, fixTime, fileName, hash, time, issueKey);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for(ResultSink sink: this.sinks) {
+			try {
+				sink.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		if(failure != null)
+			throw failure;
+	}
+}
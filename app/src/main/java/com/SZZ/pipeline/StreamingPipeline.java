@@ -0,0 +1,254 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.pipeline;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import com.SZZ.entities.Commit;
+import com.SZZ.entities.Link;
+import com.SZZ.entities.TaskScheduler;
+import com.SZZ.gitMiner.CommitGraph;
+import com.SZZ.gitMiner.GitMiner;
+import com.SZZ.linker.LinkConnector;
+import com.SZZ.linker.OutlierBoundary;
+/**
+ * Runs the phases of the algorithm as overlapping stages rather than one after another. Commits 
+ * flow from the log walk into affected file extraction and linking on the scheduler, and 
+ * every link that passes is blamed straight away, so the newest fixes are blamed while older 
+ * commits are still being walked. Only a bounded number of commits and links are in flight, a slow 
+ * stage holds back the stages before it and commits that are not linked are not kept.
+ * 
+ * The outlier boundary depends on every commit of its period, so links are admitted against the 
+ * boundary of the commits seen so far. Once the walk is finished the exact boundary is known: admitted 
+ * links above it are dropped and held back links below it are blamed, giving the same links and 
+ * suspects as the phased run.
+ * @author Thomas Watkins
+ */
+public class StreamingPipeline {
+	private static final Item END = new Item(-1, null);
+	
+	private GitMiner gitMiner;
+	private LinkConnector connector;
+	private TaskScheduler scheduler;
+	private int commitCapacity;
+	private int linkCapacity;
+	private long commitCount;
+	
+	/**
+	 * Creates a streaming pipeline.
+	 * @param gitMiner the git miner of the repository
+	 * @param connector the link connector holding the issues
+	 * @param scheduler the scheduler running extraction and blame tasks
+	 */
+	public StreamingPipeline(GitMiner gitMiner, LinkConnector connector, TaskScheduler scheduler) {
+		this.gitMiner = gitMiner;
+		this.connector = connector;
+		this.scheduler = scheduler;
+		this.commitCapacity = 4096;
+		this.linkCapacity = scheduler.getParallelism() * 4;
+	}
+	
+	/**
+	 * Sets the maximum number of commits walked but not yet linked.
+	 * @param commitCapacity the number of commits
+	 */
+	public void setCommitCapacity(int commitCapacity) {
+		this.commitCapacity = commitCapacity;
+	}
+	
+	/**
+	 * Sets the maximum number of links being blamed at once before linking waits.
+	 * @param linkCapacity the number of links
+	 */
+	public void setLinkCapacity(int linkCapacity) {
+		this.linkCapacity = linkCapacity;
+	}
+	
+	/**
+	 * @return the number of commits linked by the last run
+	 */
+	public long getCommitCount() {
+		return this.commitCount;
+	}
+	
+	/**
+	 * Walks, links and blames the repository, writing the bug fixing and bug introducing commits to file.
+	 * @return the bug fixing links with their bug introducing commits, in log order
+	 * @throws InterruptedException if the pipeline is interrupted
+	 */
+	public ArrayList<Link> run() throws InterruptedException {
+		System.out.println("Streaming Commits, Links and Blames");
+		Semaphore commitPermits = new Semaphore(this.commitCapacity);
+		Semaphore linkPermits = new Semaphore(this.linkCapacity);
+		LinkedBlockingQueue<Item> extracted = new LinkedBlockingQueue<>();
+		
+		Thread walker = new Thread(() -> walk(commitPermits, extracted), "log-walker");
+		walker.start();
+		
+		//Link commits as their files arrive, blaming those within the outlier boundary so far
+		OutlierBoundary outlier = this.connector.createOutlierBoundary(true);
+		ArrayList<Candidate> admitted = new ArrayList<>();
+		ArrayList<Candidate> heldBack = new ArrayList<>();
+		Item item;
+		while((item = extracted.take()) != END) {
+			commitPermits.release();
+			int files = item.commit.getFileCount();
+			long time = item.commit.getTimeStamp();
+			//A commit whose affected files could not be read has no links
+			if(files < 0)
+				continue;
+			outlier.add(time, files);
+			for(Link link: item.links) {
+				Candidate candidate = new Candidate(item.sequence, link, time, files);
+				if(outlier.isOutlier(time, files)) {
+					heldBack.add(candidate);
+					continue;
+				}
+				admitted.add(candidate);
+				blame(link, linkPermits);
+			}
+		}
+		walker.join();
+		this.commitCount = outlier.getTotal();
+		System.out.println("Total Commits List: " + this.commitCount);
+		
+		//Correct the links against the exact outlier boundary
+		ArrayList<Candidate> candidates = new ArrayList<>();
+		int dropped = 0;
+		for(Candidate candidate: admitted) {
+			if(!outlier.isOutlier(candidate.time, candidate.files))
+				candidates.add(candidate);
+			else
+				dropped++;
+		}
+		ArrayList<Link> late = new ArrayList<>();
+		for(Candidate candidate: heldBack) {
+			if(!outlier.isOutlier(candidate.time, candidate.files)) {
+				candidates.add(candidate);
+				late.add(candidate.link);
+			}
+		}
+		System.out.println("Links blamed while streaming: " + admitted.size() + " Dropped: " + dropped + " Blamed late: " + late.size());
+		late.sort(Comparator.comparingInt(Link::getJavaFileCount).reversed());
+		for(Link link: late)
+			blame(link, linkPermits);
+		linkPermits.acquire(this.linkCapacity);
+		
+		candidates.sort(Comparator.comparingLong(candidate -> candidate.sequence));
+		ArrayList<Link> links = new ArrayList<>();
+		for(Candidate candidate: candidates)
+			links.add(candidate.link);
+		System.out.println("Total Bug Fixing Commits: " + links.size());
+		this.connector.printUniqueBugs(links);
+		this.connector.writeBugFixingCommits(links);
+		this.gitMiner.writeBugIntroducingCommits(links);
+		return links;
+	}
+	
+	/**
+	 * Blames a link on the scheduler, once a link permit is free. The permit is released by the 
+	 * last blame task of the link rather than by a task waiting on them.
+	 * @param link the bug fixing link
+	 * @param linkPermits the permits of the links being blamed
+	 * @throws InterruptedException if interrupted waiting for a permit
+	 */
+	private void blame(Link link, Semaphore linkPermits) throws InterruptedException {
+		linkPermits.acquire();
+		AtomicBoolean released = new AtomicBoolean();
+		Runnable finished = () -> {
+			if(released.compareAndSet(false, true))
+				linkPermits.release();
+		};
+		this.scheduler.submit(() -> {
+			try {
+				this.gitMiner.calculateBugIntroducingCommit(link, finished);
+			} catch (RuntimeException | Error e) {
+				finished.run();
+				throw e;
+			}
+		});
+	}
+	
+	/**
+	 * Walks the git logs, newest first, submitting the affected file extraction and linking of every commit. 
+	 * Waits while too many commits are in flight and marks the end once every commit has been linked.
+	 */
+	private void walk(Semaphore commitPermits, LinkedBlockingQueue<Item> extracted) {
+		try {
+			CommitGraph commitGraph = this.gitMiner.getCommitGraph();
+			long sequence = 0;
+			for(RevCommit rev: this.gitMiner.getGitLogs()) {
+				commitGraph.add(rev);
+				//Ignore root commits
+				if(rev.getParentCount() == 0)
+					continue;
+				Item item = new Item(sequence++, this.gitMiner.createCommit(rev));
+				commitPermits.acquire();
+				this.scheduler.submit(() -> {
+					try {
+						this.gitMiner.acquireAffectedFiles(item.commit);
+						item.links = this.connector.createLinks(item.commit);
+					} finally {
+						extracted.add(item);
+					}
+				});
+			}
+			commitGraph.publish();
+			this.gitMiner.finishWalk();
+			commitGraph.printStatistics();
+			this.gitMiner.getCommitTable().printStatistics();
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			commitPermits.acquireUninterruptibly(this.commitCapacity);
+			extracted.add(END);
+		}
+	}
+	
+	/**
+	 * A commit, its position in the log and its links once extracted.
+	 */
+	private static class Item {
+		private long sequence;
+		private Commit commit;
+		private ArrayList<Link> links;
+		
+		private Item(long sequence, Commit commit) {
+			this.sequence = sequence;
+			this.commit = commit;
+			this.links = new ArrayList<>();
+		}
+	}
+	
+	/**
+	 * A link waiting on the exact outlier boundary.
+	 */
+	private static class Candidate {
+		private long sequence;
+		private Link link;
+		private long time;
+		private int files;
+		
+		private Candidate(long sequence, Link link, long time, int files) {
+			this.sequence = sequence;
+			this.link = link;
+			this.time = time;
+			this.files = files;
+		}
+	}
+}
@@ -0,0 +1,423 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.state;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import com.SZZ.entities.AffectedFile;
+import com.SZZ.entities.Commit;
+import com.SZZ.entities.CommitStore;
+import com.SZZ.entities.StringDictionary;
+/**
+ * A commit table saved to disk in a compact binary form and read back by memory mapping the file. 
+ * Nothing is parsed or copied when an index is opened, the columns are read straight from the 
+ * mapped pages, so opening takes milliseconds and processes on the same host share the pages 
+ * through the page cache. Later runs, experiments and other tools can use the commits and their 
+ * affected files without mining the repository again.
+ * 
+ * The file starts with a fixed header (magic, version, the HEAD the index was built at, counts, 
+ * section offsets and a CRC32C of the body), followed by the int columns and then the byte columns. 
+ * The index is read only and limited to 2GB.
+ * @author Thomas Watkins
+ */
+public class MappedCommitIndex implements CommitStore {
+	private static final long MAGIC = 0x535A5A434F4D4958L; // "SZZCOMIX"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 128;
+	private static final String[] STATUSES = new String[128];
+	
+	private ByteBuffer buffer;
+	private ObjectId head;
+	private int commitCount;
+	private int slotCount;
+	private int ids;
+	private int times;
+	private int authors;
+	private int commentOffsets;
+	private int fileOffsets;
+	private int filePaths;
+	private int slots;
+	private int authorOffsets;
+	private int pathOffsets;
+	private int fileStatuses;
+	private int comments;
+	private int authorBytes;
+	private int pathBytes;
+	private String[] authorCache;
+	private String[] pathCache;
+	
+	static {
+		for (int i = 0; i < STATUSES.length; i++)
+			STATUSES[i] = String.valueOf((char) i);
+	}
+	
+	private MappedCommitIndex(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+	
+	/**
+	 * Opens an index by memory mapping it.
+	 * @param file the index file
+	 * @param verify true to check the checksum of the whole file, which reads every page
+	 * @return the index
+	 * @throws IOException if the file cannot be read, is not an index of this version or is corrupt
+	 */
+	public static MappedCommitIndex open(File file, boolean verify) throws IOException {
+		MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Not a commit index: " + file);
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		
+		MappedCommitIndex index = new MappedCommitIndex(mapped);
+		ByteBuffer header = mapped.duplicate();
+		if (header.getLong(0) != MAGIC)
+			throw new IOException("Not a commit index: " + file);
+		if (header.getInt(8) != VERSION)
+			throw new IOException("Unsupported commit index version " + header.getInt(8) + ": " + file);
+		byte[] head = new byte[Constants.OBJECT_ID_LENGTH];
+		header.position(16);
+		header.get(head);
+		index.head = ObjectId.fromRaw(head);
+		index.commitCount = header.getInt(36);
+		index.slotCount = header.getInt(56);
+		long bodyLength = header.getLong(60);
+		int checksum = header.getInt(68);
+		if (bodyLength != mapped.capacity() - HEADER_SIZE)
+			throw new IOException("Truncated commit index: " + file);
+		
+		int position = 72;
+		index.ids = header.getInt(position);
+		index.times = header.getInt(position += 4);
+		index.authors = header.getInt(position += 4);
+		index.commentOffsets = header.getInt(position += 4);
+		index.fileOffsets = header.getInt(position += 4);
+		index.filePaths = header.getInt(position += 4);
+		index.slots = header.getInt(position += 4);
+		index.authorOffsets = header.getInt(position += 4);
+		index.pathOffsets = header.getInt(position += 4);
+		index.fileStatuses = header.getInt(position += 4);
+		index.comments = header.getInt(position += 4);
+		index.authorBytes = header.getInt(position += 4);
+		index.pathBytes = header.getInt(position += 4);
+		index.authorCache = new String[header.getInt(40)];
+		index.pathCache = new String[header.getInt(44)];
+		
+		if (verify) {
+			CRC32C crc = new CRC32C();
+			ByteBuffer body = mapped.duplicate();
+			body.position(HEADER_SIZE);
+			crc.update(body);
+			if ((int) crc.getValue() != checksum)
+				throw new IOException("Corrupt commit index: " + file);
+		}
+		return index;
+	}
+	
+	/**
+	 * Writes commits of a commit store to an index file, replacing the previous file only once it 
+	 * has been completely written. The commits keep the order they are given in.
+	 * @param store the commits
+	 * @param rows the rows of the commits written, in order, every commit must have its affected files
+	 * @param head the HEAD the commits were mined at
+	 * @param file the index file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(CommitStore store, int[] rows, AnyObjectId head, File file) throws IOException {
+		int commitCount = rows.length;
+		StringDictionary authorDictionary = new StringDictionary();
+		StringDictionary pathDictionary = new StringDictionary();
+		int[] authorIds = new int[commitCount];
+		int[] fileOffsetColumn = new int[commitCount + 1];
+		int[] commentOffsetColumn = new int[commitCount + 1];
+		ArrayList<Integer> pathIds = new ArrayList<>();
+		ArrayList<byte[]> commentColumn = new ArrayList<>(commitCount);
+		ByteArrayOutputStream statusColumn = new ByteArrayOutputStream();
+		
+		for (int row = 0; row < commitCount; row++) {
+			authorIds[row] = authorDictionary.intern(store.getAuthor(rows[row]));
+			byte[] comment = store.getComment(rows[row]).getBytes(StandardCharsets.UTF_8);
+			commentColumn.add(comment);
+			commentOffsetColumn[row + 1] = commentOffsetColumn[row] + comment.length;
+			ArrayList<AffectedFile> files = store.getFiles(rows[row]);
+			if (files != null) {
+				for (AffectedFile affectedFile: files) {
+					pathIds.add(pathDictionary.intern(affectedFile.getPath()));
+					statusColumn.write(affectedFile.getStatus().charAt(0));
+				}
+			}
+			fileOffsetColumn[row + 1] = pathIds.size();
+		}
+		
+		//Half full hash table of rows (plus one, 0 is empty) by the first four bytes of the id
+		int slotCount = Integer.highestOneBit(Math.max(1, commitCount) * 2) * 2;
+		int[] slotColumn = new int[slotCount];
+		byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+		for (int row = 0; row < commitCount; row++) {
+			store.getObjectId(rows[row]).copyRawTo(raw, 0);
+			int slot = ByteBuffer.wrap(raw).getInt(0) & (slotCount - 1);
+			while (slotColumn[slot] != 0)
+				slot = (slot + 1) & (slotCount - 1);
+			slotColumn[slot] = row + 1;
+		}
+		
+		byte[][] authorStrings = encode(authorDictionary);
+		byte[][] pathStrings = encode(pathDictionary);
+		long[] sizes = { (long) commitCount * Constants.OBJECT_ID_LENGTH, commitCount * 4L, commitCount * 4L, 
+				(commitCount + 1) * 4L, (commitCount + 1) * 4L, pathIds.size() * 4L, slotCount * 4L, 
+				(authorStrings.length + 1) * 4L, (pathStrings.length + 1) * 4L, pathIds.size(), 
+				commentOffsetColumn[commitCount], length(authorStrings), length(pathStrings) };
+		int[] offsets = new int[sizes.length];
+		long position = HEADER_SIZE;
+		for (int i = 0; i < sizes.length; i++) {
+			offsets[i] = (int) position;
+			position += sizes[i];
+		}
+		if (position > Integer.MAX_VALUE)
+			throw new IOException("Commit index would exceed 2GB");
+		
+		File temp = new File(file.getPath() + ".tmp");
+		CRC32C crc = new CRC32C();
+		long bodyLength;
+		try (FileOutputStream stream = new FileOutputStream(temp)) {
+			stream.write(new byte[HEADER_SIZE]);
+			CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(stream, 65536), crc);
+			DataOutputStream out = new DataOutputStream(checked);
+			for (int row = 0; row < commitCount; row++) {
+				store.getObjectId(rows[row]).copyRawTo(raw, 0);
+				out.write(raw);
+			}
+			for (int row = 0; row < commitCount; row++)
+				out.writeInt((int) store.getTime(rows[row]));
+			for (int row = 0; row < commitCount; row++)
+				out.writeInt(authorIds[row]);
+			for (int offset: commentOffsetColumn)
+				out.writeInt(offset);
+			for (int offset: fileOffsetColumn)
+				out.writeInt(offset);
+			for (int pathId: pathIds)
+				out.writeInt(pathId);
+			for (int slot: slotColumn)
+				out.writeInt(slot);
+			writeOffsets(out, authorStrings);
+			writeOffsets(out, pathStrings);
+			statusColumn.writeTo(out);
+			for (byte[] comment: commentColumn)
+				out.write(comment);
+			for (byte[] string: authorStrings)
+				out.write(string);
+			for (byte[] string: pathStrings)
+				out.write(string);
+			out.flush();
+			bodyLength = out.size();
+		}
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putLong(0, MAGIC);
+		header.putInt(8, VERSION);
+		head.copyRawTo(raw, 0);
+		header.position(16);
+		header.put(raw);
+		header.putInt(36, commitCount);
+		header.putInt(40, authorStrings.length);
+		header.putInt(44, pathStrings.length);
+		header.putInt(48, pathIds.size());
+		header.putInt(52, commentOffsetColumn[commitCount]);
+		header.putInt(56, slotCount);
+		header.putLong(60, bodyLength);
+		header.putInt(68, (int) crc.getValue());
+		for (int i = 0; i < offsets.length; i++)
+			header.putInt(72 + i * 4, offsets[i]);
+		try (RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+			out.write(header.array());
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * @return the HEAD the index was built at
+	 */
+	public ObjectId getHead() {
+		return this.head;
+	}
+	
+	/**
+	 * @return views of every commit in the index, in the order they were written
+	 */
+	public ArrayList<Commit> getCommits() {
+		ArrayList<Commit> commits = new ArrayList<>(this.commitCount);
+		for (int row = 0; row < this.commitCount; row++)
+			commits.add(getCommit(row));
+		return commits;
+	}
+	
+	@Override
+	public int size() {
+		return this.commitCount;
+	}
+	
+	@Override
+	public int find(AnyObjectId objectId) {
+		byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+		objectId.copyRawTo(raw, 0);
+		int mask = this.slotCount - 1;
+		int slot = ByteBuffer.wrap(raw).getInt(0) & mask;
+		int entry;
+		while ((entry = this.buffer.getInt(this.slots + slot * 4)) != 0) {
+			int offset = this.ids + (entry - 1) * Constants.OBJECT_ID_LENGTH;
+			boolean equal = true;
+			for (int i = 0; i < Constants.OBJECT_ID_LENGTH && equal; i++)
+				equal = this.buffer.get(offset + i) == raw[i];
+			if (equal)
+				return entry - 1;
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+	
+	@Override
+	public Commit getCommit(int row) {
+		return new Commit(this, row);
+	}
+	
+	@Override
+	public ObjectId getObjectId(int row) {
+		byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+		read(this.ids + row * Constants.OBJECT_ID_LENGTH, raw);
+		return ObjectId.fromRaw(raw);
+	}
+	
+	@Override
+	public String getHash(int row) {
+		return getObjectId(row).getName();
+	}
+	
+	@Override
+	public long getTime(int row) {
+		return this.buffer.getInt(this.times + row * 4);
+	}
+	
+	@Override
+	public String getAuthor(int row) {
+		int id = this.buffer.getInt(this.authors + row * 4);
+		if (this.authorCache[id] == null)
+			this.authorCache[id] = readString(this.authorOffsets, this.authorBytes, id);
+		return this.authorCache[id];
+	}
+	
+	@Override
+	public String getComment(int row) {
+		int start = this.buffer.getInt(this.commentOffsets + row * 4);
+		int end = this.buffer.getInt(this.commentOffsets + (row + 1) * 4);
+		return readString(this.comments + start, end - start);
+	}
+	
+	@Override
+	public int getFileCount(int row) {
+		return this.buffer.getInt(this.fileOffsets + (row + 1) * 4) - this.buffer.getInt(this.fileOffsets + row * 4);
+	}
+	
+	@Override
+	public ArrayList<AffectedFile> getFiles(int row) {
+		int start = this.buffer.getInt(this.fileOffsets + row * 4);
+		int end = this.buffer.getInt(this.fileOffsets + (row + 1) * 4);
+		ArrayList<AffectedFile> files = new ArrayList<>(end - start);
+		for (int i = start; i < end; i++) {
+			int id = this.buffer.getInt(this.filePaths + i * 4);
+			if (this.pathCache[id] == null)
+				this.pathCache[id] = readString(this.pathOffsets, this.pathBytes, id);
+			files.add(new AffectedFile(STATUSES[this.buffer.get(this.fileStatuses + i)], this.pathCache[id]));
+		}
+		return files;
+	}
+
+	
+	/**
+	 * A helper function reading a string of a dictionary section.
+	 */
+	private String readString(int offsets, int bytes, int id) {
+		int start = this.buffer.getInt(offsets + id * 4);
+		int end = this.buffer.getInt(offsets + (id + 1) * 4);
+		return readString(bytes + start, end - start);
+	}
+	
+	/**
+	 * A helper function decoding a UTF-8 string from the mapped file.
+	 */
+	private String readString(int position, int length) {
+		byte[] bytes = new byte[length];
+		read(position, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * A helper function copying bytes of the mapped file, without moving the shared position.
+	 */
+	private void read(int position, byte[] bytes) {
+		ByteBuffer view = this.buffer.duplicate();
+		view.position(position);
+		view.get(bytes);
+	}
+	
+	/**
+	 * A helper function encoding every string of a dictionary as UTF-8.
+	 */
+	private static byte[][] encode(StringDictionary dictionary) {
+		byte[][] strings = new byte[dictionary.size()][];
+		for (int id = 0; id < strings.length; id++)
+			strings[id] = dictionary.get(id).getBytes(StandardCharsets.UTF_8);
+		return strings;
+	}
+	
+	/**
+	 * A helper function giving the total length of encoded strings.
+	 */
+	private static long length(byte[][] strings) {
+		long length = 0;
+		for (byte[] string: strings)
+			length += string.length;
+		return length;
+	}
+	
+	/**
+	 * A helper function writing the start offset of every encoded string and the end of the last.
+	 */
+	private static void writeOffsets(DataOutputStream out, byte[][] strings) throws IOException {
+		int offset = 0;
+		out.writeInt(offset);
+		for (byte[] string: strings) {
+			offset += string.length;
+			out.writeInt(offset);
+		}
+	}
+}
@@ -0,0 +1,242 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.state;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+import com.SZZ.entities.Suspect;
+/**
+ * An append-only journal of the links finished during a run, so a run that is killed part way can 
+ * resume where it stopped instead of blaming everything again. Every link is written as a record of its 
+ * length, checksum and suspects as soon as it is finished. Records reach the operating system at once, 
+ * so they survive the process dying, and are forced to disk in batches. A record cut short by a crash 
+ * fails its checksum and is dropped when the journal is replayed. The journal is emptied once the run 
+ * state has been saved, as the state then holds every link.
+ * @author Thomas Watkins
+ */
+public class RunJournal implements Closeable {
+	private static final int MAGIC = 0x535A5A4A;
+	private static final int VERSION = 1;
+	//Records appended before the journal is forced to disk
+	public static final int SYNC_RECORDS = 64;
+	//Milliseconds after which the journal is forced to disk whatever the number of records
+	public static final long SYNC_INTERVAL = 1000;
+	
+	private FileChannel channel;
+	private long headerSize;
+	private HashMap<String, ArrayList<Suspect>> recovered;
+	private int unsynced;
+	private long lastSync;
+	private boolean closed;
+	
+	/**
+	 * Creates a journal on an open file.
+	 * @param channel the channel of the journal file
+	 */
+	private RunJournal(FileChannel channel) {
+		this.channel = channel;
+		this.recovered = new HashMap<>();
+		this.lastSync = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Opens the journal, replaying the links of an interrupted run when resuming. The journal is started 
+	 * again if it is not resumed, was written with a different configuration or cannot be read.
+	 * @param file the journal file
+	 * @param configuration a description of every setting that changes the results of a run
+	 * @param resume true to replay the links of an interrupted run
+	 * @return the journal, positioned after its last complete record
+	 * @throws IOException if the journal file cannot be opened or written
+	 */
+	public static RunJournal open(File file, String configuration, boolean resume) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, 
+				StandardOpenOption.WRITE);
+		RunJournal journal = new RunJournal(channel);
+		byte[] header = getHeader(configuration);
+		journal.headerSize = header.length;
+		
+		long end = 0;
+		if(channel.size() > header.length) {
+			if(resume)
+				end = journal.replay(header);
+			else
+				System.out.println("Discarding the journal of an interrupted run, --resume continues it instead");
+		}
+		if(end == 0) {
+			channel.truncate(0);
+			channel.write(ByteBuffer.wrap(header), 0);
+			channel.force(false);
+			end = header.length;
+		} else {
+			channel.truncate(end);
+		}
+		channel.position(end);
+		return journal;
+	}
+	
+	/**
+	 * Reads every complete record of the journal.
+	 * @param header the header the journal must start with
+	 * @return the position after the last complete record, 0 if the journal cannot be used
+	 * @throws IOException if the journal file cannot be read
+	 */
+	private long replay(byte[] header) throws IOException {
+		long size = this.channel.size();
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(this.channel.position(0)), 1 << 16));
+		byte[] start = new byte[header.length];
+		if(size < header.length || in.read(start) != start.length || !Arrays.equals(start, header)) {
+			System.out.println("Journal written by a different configuration, discarding it");
+			return 0;
+		}
+		
+		long position = header.length;
+		CRC32 crc = new CRC32();
+		try {
+			while(position < size) {
+				int length = in.readInt();
+				int checksum = in.readInt();
+				if(length < 0 || length > size - position - 8)
+					break;
+				byte[] payload = new byte[length];
+				in.readFully(payload);
+				crc.reset();
+				crc.update(payload);
+				if((int) crc.getValue() != checksum)
+					break;
+				
+				DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+				String key = RunState.readString(record);
+				this.recovered.put(key, RunState.readSuspects(record));
+				position += 8 + length;
+			}
+		} catch (EOFException e) {
+			//A record cut short by a crash
+		}
+		if(position < size)
+			System.out.println("Dropped an incomplete record at the end of the journal");
+		System.out.println("Resumed " + this.recovered.size() + " links from the journal");
+		return position;
+	}
+	
+	/**
+	 * Appends a finished link to the journal, forcing the journal to disk once enough records or time 
+	 * have built up. Nothing is appended once the journal is closed.
+	 * @param key the key of the link
+	 * @param linkSuspects the suspects of the link
+	 */
+	public synchronized void append(String key, ArrayList<Suspect> linkSuspects) {
+		if(this.closed)
+			return;
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			RunState.writeString(out, key);
+			RunState.writeSuspects(out, linkSuspects);
+			byte[] payload = bytes.toByteArray();
+			CRC32 crc = new CRC32();
+			crc.update(payload);
+			
+			ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+			record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+			while(record.hasRemaining())
+				this.channel.write(record);
+			this.unsynced++;
+			if(this.unsynced >= SYNC_RECORDS || System.currentTimeMillis() - this.lastSync >= SYNC_INTERVAL)
+				sync();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Forces the records appended since the last time to disk.
+	 * @throws IOException if the journal cannot be written
+	 */
+	private void sync() throws IOException {
+		if(this.unsynced == 0)
+			return;
+		this.channel.force(false);
+		this.unsynced = 0;
+		this.lastSync = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Removes every record once the run state holding them has been saved.
+	 */
+	public synchronized void clear() {
+		if(this.closed)
+			return;
+		try {
+			this.channel.truncate(this.headerSize);
+			this.channel.position(this.headerSize);
+			this.channel.force(false);
+			this.unsynced = 0;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * @return the links replayed from an interrupted run and their suspects
+	 */
+	public HashMap<String, ArrayList<Suspect>> getRecovered() {
+		return this.recovered;
+	}
+	
+	/**
+	 * Forces the remaining records to disk and closes the journal. Safe to call more than once, including 
+	 * from a shutdown hook while links are still being finished.
+	 */
+	@Override
+	public synchronized void close() {
+		if(this.closed)
+			return;
+		this.closed = true;
+		try {
+			sync();
+			this.channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * A helper function giving the header of a journal, so a journal is only replayed by a run with 
+	 * the same configuration.
+	 * @param configuration a description of every setting that changes the results of a run
+	 * @return the header
+	 */
+	private static byte[] getHeader(String configuration) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		RunState.writeString(out, configuration);
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,296 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.state;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import com.SZZ.entities.AffectedFile;
+import com.SZZ.entities.CommitTable;
+import com.SZZ.entities.Link;
+import com.SZZ.entities.Suspect;
+/**
+ * The state of a previous run saved to disk so the next run only processes what is new. Records the 
+ * last processed HEAD, the affected files of every commit, and the links with their suspects. The state 
+ * is only reused if it was produced with the same configuration, otherwise everything is recomputed.
+ * @author Thomas Watkins
+ */
+public class RunState {
+	private static final int VERSION = 1;
+	
+	private String configuration;
+	private String head;
+	//The commits of this run, holding the affected files of the previous run until they are walked
+	private CommitTable commitTable;
+	private boolean walked;
+	private HashMap<String, ArrayList<Suspect>> suspects;
+	private RunJournal journal;
+	
+	/**
+	 * Creates an empty run state.
+	 * @param configuration a description of every setting that changes the results of a run
+	 */
+	public RunState(String configuration) {
+		this.configuration = configuration;
+		this.head = "";
+		this.commitTable = new CommitTable();
+		this.suspects = new HashMap<>();
+	}
+	
+	/**
+	 * Loads the run state of a previous run. An empty state is returned if there is no previous 
+	 * run or the previous run used a different configuration.
+	 * @param file the state file
+	 * @param configuration a description of every setting that changes the results of a run
+	 * @return the run state
+	 */
+	public static RunState load(File file, String configuration) {
+		RunState state = new RunState(configuration);
+		if(!file.exists())
+			return state;
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+			if(in.readInt() != VERSION || !readString(in).equals(configuration)) {
+				System.out.println("Configuration changed since the last run, recomputing everything");
+				return state;
+			}
+			state.head = readString(in);
+			
+			int commits = in.readInt();
+			for(int i = 0; i < commits; i++) {
+				String hash = readString(in);
+				int count = in.readInt();
+				ArrayList<AffectedFile> affectedFiles = new ArrayList<>(count);
+				for(int j = 0; j < count; j++)
+					affectedFiles.add(new AffectedFile(readString(in), readString(in)));
+				state.commitTable.addFiles(ObjectId.fromString(hash), affectedFiles);
+			}
+			
+			int links = in.readInt();
+			for(int i = 0; i < links; i++) {
+				String key = readString(in);
+				state.suspects.put(key, readSuspects(in));
+			}
+			System.out.println("Loaded previous run at " + state.head + ": " + commits + " commits, " + links + " links");
+		} catch (Exception e) {
+			System.out.println("Could not read previous run state, recomputing everything");
+			e.printStackTrace();
+			return new RunState(configuration);
+		}
+		return state;
+	}
+	
+	/**
+	 * Saves the run state, replacing the previous state only once it has been completely written 
+	 * and forced to disk.
+	 * @param file the state file
+	 * @return true if the state was saved, false if the previous state is left in place
+	 */
+	public synchronized boolean save(File file) {
+		File temp = new File(file.getPath() + ".tmp");
+		try (FileOutputStream fileOut = new FileOutputStream(temp); 
+				GZIPOutputStream gzip = new GZIPOutputStream(fileOut);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip))) {
+			out.writeInt(VERSION);
+			writeString(out, this.configuration);
+			writeString(out, this.head);
+			
+			int rows = this.commitTable.size();
+			int commits = 0;
+			for(int row = 0; row < rows; row++) {
+				if(isSaved(row))
+					commits++;
+			}
+			out.writeInt(commits);
+			for(int row = 0; row < rows; row++) {
+				if(!isSaved(row))
+					continue;
+				ArrayList<AffectedFile> affectedFiles = this.commitTable.getFiles(row);
+				writeString(out, this.commitTable.getHash(row));
+				out.writeInt(affectedFiles.size());
+				for(AffectedFile affectedFile: affectedFiles) {
+					writeString(out, affectedFile.getStatus());
+					writeString(out, affectedFile.getPath());
+				}
+			}
+			
+			out.writeInt(this.suspects.size());
+			for(String key: this.suspects.keySet()) {
+				writeString(out, key);
+				writeSuspects(out, this.suspects.get(key));
+			}
+			
+			//A crash after the rename must not leave a state file that was never written out
+			out.flush();
+			gzip.finish();
+			fileOut.getFD().sync();
+		} catch (Exception e) {
+			System.out.println("Could not save the run state to " + temp);
+			e.printStackTrace();
+			return false;
+		}
+		
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (IOException e) {
+			System.out.println("Could not replace the run state " + file);
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	/**
+	 * @param row a row of the commit table
+	 * @return true if the affected files of the commit are saved: they are known, and the commit was 
+	 * walked by this run unless it did not walk the log
+	 */
+	private boolean isSaved(int row) {
+		return this.commitTable.getFileCount(row) >= 0 && (!this.walked || this.commitTable.hasDetails(row));
+	}
+	
+	/**
+	 * Marks the log as walked. Every commit reachable from HEAD has then been added to the commit 
+	 * table, so the rows of the previous run that were not added again are unreachable and not saved.
+	 * @param walked true once the whole log has been walked
+	 */
+	public void setWalked(boolean walked) {
+		this.walked = walked;
+	}
+	
+	/**
+	 * @return the HEAD processed by the previous run, empty if there was none
+	 */
+	public String getHead() {
+		return this.head;
+	}
+	
+	/**
+	 * @param head the HEAD processed by this run
+	 */
+	public void setHead(String head) {
+		this.head = head;
+	}
+	
+	/**
+	 * The table the commits of this run are added to. It already holds the affected files of the 
+	 * commits processed by the previous run, and the affected files it holds are saved for the next run, 
+	 * so they are only stored once.
+	 * @return the commit table
+	 */
+	public CommitTable getCommitTable() {
+		return this.commitTable;
+	}
+	
+	/**
+	 * Restores the suspects of a link processed by a previous run.
+	 * @param link the link
+	 * @return true if the link had been processed and its suspects restored, false otherwise
+	 */
+	public synchronized boolean restoreSuspects(Link link) {
+		ArrayList<Suspect> linkSuspects = this.suspects.get(getKey(link));
+		if(linkSuspects == null)
+			return false;
+		for(Suspect suspect: linkSuspects)
+			link.getBugIntroducingCommits().put(suspect.getHash(), suspect);
+		return true;
+	}
+	
+	/**
+	 * Records a processed link and its suspects, appending them to the journal if there is one.
+	 * @param link the link
+	 */
+	public void putSuspects(Link link) {
+		ArrayList<Suspect> linkSuspects = new ArrayList<>(link.getBugIntroducingCommits().values());
+		synchronized(this) {
+			this.suspects.put(getKey(link), linkSuspects);
+		}
+		if(this.journal != null)
+			this.journal.append(getKey(link), linkSuspects);
+	}
+	
+	/**
+	 * Sets the journal every processed link is appended to, first restoring the links it recovered 
+	 * from an interrupted run.
+	 * @param journal the journal
+	 */
+	public synchronized void setJournal(RunJournal journal) {
+		this.suspects.putAll(journal.getRecovered());
+		this.journal = journal;
+	}
+	
+	/**
+	 * A helper function giving the key of a link, its commit and issue.
+	 * @param link the link
+	 * @return the key of the link
+	 */
+	private static String getKey(Link link) {
+		return link.getCommit().getHash() + ";" + link.getBug().getIssueKey();
+	}
+	
+	/**
+	 * A helper function to write the suspects of a link.
+	 */
+	static void writeSuspects(DataOutputStream out, ArrayList<Suspect> linkSuspects) throws IOException {
+		out.writeInt(linkSuspects.size());
+		for(Suspect suspect: linkSuspects) {
+			writeString(out, suspect.getHash());
+			writeString(out, suspect.getAuthor());
+			out.writeLong(suspect.getDate());
+			writeString(out, suspect.getFileName());
+		}
+	}
+	
+	/**
+	 * A helper function to read the suspects written by writeSuspects.
+	 */
+	static ArrayList<Suspect> readSuspects(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		ArrayList<Suspect> linkSuspects = new ArrayList<>(count);
+		for(int i = 0; i < count; i++)
+			linkSuspects.add(new Suspect(readString(in), readString(in), in.readLong(), readString(in)));
+		return linkSuspects;
+	}
+	
+	/**
+	 * A helper function to write a string of any length.
+	 */
+	static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	/**
+	 * A helper function to read a string written by writeString.
+	 */
+	static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
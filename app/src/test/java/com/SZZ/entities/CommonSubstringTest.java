@@ -0,0 +1,82 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+/**
+ * Checks {@link CommonSubstring} against the longest common substring table it replaced.
+ * @author Thomas Watkins
+ */
+public class CommonSubstringTest {
+	
+	@Test
+	public void matchesLongestCommonSubstringOnRandomStrings() {
+		Random random = new Random(42);
+		//Small alphabets make long common substrings and hash collisions likely
+		String[] alphabets = { "a", "ab", "abc", "abcdefghijklmnopqrstuvwxyz ", "é中\u0001x" };
+		for (int i = 0; i < 20000; i++) {
+			String alphabet = alphabets[random.nextInt(alphabets.length)];
+			String s1 = randomString(random, alphabet, random.nextInt(60));
+			String s2 = randomString(random, alphabet, random.nextInt(60));
+			int length = 1 + random.nextInt(20);
+			assertEquals(longestCommonSubstring(s1, s2) >= length, CommonSubstring.contains(s1, s2, length),
+					"\"" + s1 + "\", \"" + s2 + "\", " + length);
+		}
+	}
+	
+	@Test
+	public void findsSharedTitleInCommitMessage() {
+		String title = "NullPointerException when closing the dependency manager";
+		String message = "ACE-123 fix NullPointerException when closing the dependency manager twice";
+		assertTrue(CommonSubstring.contains(title, message, 16));
+		assertTrue(CommonSubstring.contains(message, title, 16));
+		assertFalse(CommonSubstring.contains(title, "ACE-123 fix closing the manager", 16));
+	}
+	
+	@Test
+	public void shorterThanLengthNeverMatches() {
+		assertFalse(CommonSubstring.contains("", "", 1));
+		assertFalse(CommonSubstring.contains("abc", "abc", 4));
+		assertTrue(CommonSubstring.contains("abc", "abc", 3));
+	}
+	
+	/**
+	 * The longest common substring table previously used by {@link Link}.
+	 */
+	private static int longestCommonSubstring(String s1, String s2) {
+		int[][] dp = new int[2][s2.length() + 1];
+		int result = 0;
+		for (int i = 1; i <= s1.length(); i++) {
+			for (int j = 1; j <= s2.length(); j++) {
+				if (s1.charAt(i - 1) == s2.charAt(j - 1)) {
+					dp[i % 2][j] = dp[(i - 1) % 2][j - 1] + 1;
+					result = Math.max(result, dp[i % 2][j]);
+				} else
+					dp[i % 2][j] = 0;
+			}
+		}
+		return result;
+	}
+	
+	private static String randomString(Random random, String alphabet, int length) {
+		StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+			builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		return builder.toString();
+	}
+}
@@ -0,0 +1,232 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.SZZ.entities.LineRanges;
+/**
+ * Checks {@link DiffParser} against diffs with known removed lines.
+ * @author Thomas Watkins
+ */
+public class DiffParserTest {
+	
+	/**
+	 * A file reported by the parser, with a copy of its removed lines.
+	 */
+	private static class ParsedFile {
+		final String oldPath;
+		final String newPath;
+		final LineRanges linesRemoved;
+		final boolean binary;
+		
+		ParsedFile(String oldPath, String newPath, LineRanges linesRemoved, boolean binary) {
+			this.oldPath = oldPath;
+			this.newPath = newPath;
+			this.linesRemoved = linesRemoved.copy();
+			this.binary = binary;
+		}
+	}
+	
+	@Test
+	public void recordsRemovedLinesOfSeveralHunks() throws IOException {
+		List<ParsedFile> files = parse(
+				"diff --git a/src/Foo.java b/src/Foo.java",
+				"index 83db48f..bf269f4 100644",
+				"--- a/src/Foo.java",
+				"+++ b/src/Foo.java",
+				"@@ -1,5 +1,4 @@",
+				" package foo;",
+				"-import bar;",
+				"-import baz;",
+				"+import qux;",
+				" ",
+				"",
+				"@@ -20,3 +19,3 @@ public class Foo {",
+				" \tint a;",
+				"-\tint b;",
+				"+\tint c;",
+				" }");
+		assertEquals(1, files.size());
+		ParsedFile file = files.get(0);
+		assertEquals("src/Foo.java", file.oldPath);
+		assertEquals("src/Foo.java", file.newPath);
+		assertFalse(file.binary);
+		assertEquals(expected(2, 4, 21, 22), file.linesRemoved);
+		assertEquals(3, file.linesRemoved.getLineCount());
+	}
+	
+	@Test
+	public void countsMissingHunkLengthsAsOne() throws IOException {
+		List<ParsedFile> files = parse(
+				"diff --git a/A.java b/A.java",
+				"--- a/A.java",
+				"+++ b/A.java",
+				"@@ -7 +7 @@",
+				"-old",
+				"+new",
+				"\\ No newline at end of file",
+				"diff --git a/B.java b/B.java",
+				"--- a/B.java",
+				"+++ b/B.java",
+				"@@ -3,0 +4 @@",
+				"+added");
+		assertEquals(2, files.size());
+		assertEquals(expected(7, 8), files.get(0).linesRemoved);
+		assertEquals("B.java", files.get(1).oldPath);
+		assertTrue(files.get(1).linesRemoved.isEmpty());
+	}
+	
+	@Test
+	public void readsAddedDeletedAndRenamedFiles() throws IOException {
+		List<ParsedFile> files = parse(
+				"diff --git a/New.java b/New.java",
+				"new file mode 100644",
+				"index 0000000..e69de29",
+				"--- /dev/null",
+				"+++ b/New.java",
+				"@@ -0,0 +1 @@",
+				"+class New {}",
+				"diff --git a/Old.java b/Old.java",
+				"deleted file mode 100644",
+				"--- a/Old.java",
+				"+++ /dev/null",
+				"@@ -1,2 +0,0 @@",
+				"-class Old {",
+				"-}",
+				"diff --git a/dir one/X.java b/dir two/X.java",
+				"similarity index 90%",
+				"rename from dir one/X.java",
+				"rename to dir two/X.java",
+				"--- a/dir one/X.java\t",
+				"+++ b/dir two/X.java\t",
+				"@@ -4,2 +4,2 @@",
+				"-a",
+				" b",
+				"+c");
+		assertEquals(3, files.size());
+		assertNull(files.get(0).oldPath);
+		assertEquals("New.java", files.get(0).newPath);
+		assertTrue(files.get(0).linesRemoved.isEmpty());
+		assertEquals("Old.java", files.get(1).oldPath);
+		assertNull(files.get(1).newPath);
+		assertEquals(expected(1, 3), files.get(1).linesRemoved);
+		assertEquals("dir one/X.java", files.get(2).oldPath);
+		assertEquals("dir two/X.java", files.get(2).newPath);
+		assertEquals(expected(4, 5), files.get(2).linesRemoved);
+	}
+	
+	@Test
+	public void readsBinaryFilesAndQuotedPaths() throws IOException {
+		List<ParsedFile> files = parse(
+				"diff --git a/logo.png b/logo.png",
+				"index 1111111..2222222 100644",
+				"Binary files a/logo.png and b/logo.png differ",
+				"diff --git \"a/caf\\303\\251.java\" \"b/caf\\303\\251.java\"",
+				"--- \"a/caf\\303\\251.java\"",
+				"+++ \"b/caf\\303\\251.java\"",
+				"@@ -1 +1 @@",
+				"-x",
+				"+y");
+		assertEquals(2, files.size());
+		assertTrue(files.get(0).binary);
+		assertEquals("logo.png", files.get(0).oldPath);
+		assertEquals("café.java", files.get(1).oldPath);
+		assertEquals("café.java", files.get(1).newPath);
+		assertEquals(expected(1, 2), files.get(1).linesRemoved);
+	}
+	
+	@Test
+	public void removedLineLookingLikeHeaderStaysInHunk() throws IOException {
+		List<ParsedFile> files = parse(
+				"diff --git a/notes.txt b/notes.txt",
+				"--- a/notes.txt",
+				"+++ b/notes.txt",
+				"@@ -1,2 +1,1 @@",
+				"--- a/not a header",
+				" kept");
+		assertEquals(1, files.size());
+		assertEquals("notes.txt", files.get(0).oldPath);
+		assertEquals(expected(1, 2), files.get(0).linesRemoved);
+	}
+	
+	@Test
+	public void readsLinesSplitAcrossBufferReads() throws IOException {
+		StringBuilder diff = new StringBuilder("diff --git a/Big.java b/Big.java\n--- a/Big.java\n+++ b/Big.java\n");
+		diff.append("@@ -1,3000 +1,0 @@\n");
+		for (int i = 0; i < 3000; i++)
+			diff.append('-').append("x".repeat(i % 100)).append('\n');
+		List<ParsedFile> files = new ArrayList<>();
+		//Returns a few bytes per read, so lines cross the ends of reads
+		InputStream in = new ByteArrayInputStream(diff.toString().getBytes(StandardCharsets.UTF_8)) {
+			@Override
+			public synchronized int read(byte[] buffer, int offset, int length) {
+				return super.read(buffer, offset, Math.min(length, 7));
+			}
+		};
+		new DiffParser().parse(in, (oldPath, newPath, linesRemoved, binary) -> files.add(new ParsedFile(oldPath, newPath, linesRemoved, binary)));
+		assertEquals(1, files.size());
+		assertEquals(expected(1, 3001), files.get(0).linesRemoved);
+	}
+	
+	@Test
+	public void mergesConsecutiveLinesIntoRanges() {
+		LineRanges ranges = new LineRanges();
+		for (int line = 1; line <= 3; line++)
+			ranges.add(line);
+		ranges.add(10);
+		ranges.addRange(11, 14);
+		ranges.addRange(20, 20);
+		assertEquals(2, ranges.size());
+		assertEquals(1, ranges.getStart(0));
+		assertEquals(4, ranges.getEnd(0));
+		assertEquals(10, ranges.getStart(1));
+		assertEquals(14, ranges.getEnd(1));
+		assertEquals(7, ranges.getLineCount());
+		assertEquals("[1-3, 10-13]", ranges.toString());
+		
+		LineRanges copy = ranges.copy();
+		ranges.clear();
+		assertTrue(ranges.isEmpty());
+		assertEquals(expected(1, 4, 10, 14), copy);
+	}
+	
+	private static List<ParsedFile> parse(String... lines) throws IOException {
+		List<ParsedFile> files = new ArrayList<>();
+		byte[] diff = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+		new DiffParser().parse(new ByteArrayInputStream(diff), (oldPath, newPath, linesRemoved, binary) -> files.add(new ParsedFile(oldPath, newPath, linesRemoved, binary)));
+		return files;
+	}
+	
+	/**
+	 * @param bounds the first line and the line after the last line of each range
+	 * @return the ranges
+	 */
+	private static LineRanges expected(int... bounds) {
+		LineRanges ranges = new LineRanges();
+		for (int i = 0; i < bounds.length; i += 2)
+			ranges.addRange(bounds[i], bounds[i + 1]);
+		return ranges;
+	}
+}
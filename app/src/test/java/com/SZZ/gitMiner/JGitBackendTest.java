@@ -0,0 +1,130 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.gitMiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.SZZ.entities.FileDiff;
+import com.SZZ.entities.LineRanges;
+/**
+ * Checks the --diff-algorithm names and the removed lines {@link JGitBackend} finds with each 
+ * algorithm in a small repository.
+ * @author Thomas Watkins
+ */
+public class JGitBackendTest {
+	//Myers and histogram remove different lines of this file
+	private static final String OLD = "count--;\n{\ncount--;\n\nreturn;\n";
+	private static final String NEW = "return;\n{\nreturn;\ncount++;\n";
+	
+	private File directory;
+	private Git git;
+	private String fix;
+	
+	@BeforeEach
+	public void createRepository() throws Exception {
+		this.directory = Files.createTempDirectory("szz-jgit").toFile();
+		this.git = Git.init().setDirectory(this.directory).call();
+		commit("Counter.java", OLD, "Add counter");
+		write("Readme.txt", "readme\n");
+		this.fix = commit("Counter.java", NEW, "ACE-1 fix counter");
+	}
+	
+	@AfterEach
+	public void deleteRepository() throws IOException {
+		this.git.close();
+		try (Stream<Path> paths = Files.walk(this.directory.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+	
+	@Test
+	public void diffAlgorithmNamesIgnoreCase() {
+		assertEquals(DiffAlgorithm.SupportedAlgorithm.MYERS, GitMiner.getDiffAlgorithm("myers"));
+		assertEquals(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM, GitMiner.getDiffAlgorithm("Histogram"));
+	}
+	
+	@Test
+	public void unknownDiffAlgorithmListsAllowedNames() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> GitMiner.getDiffAlgorithm("patience"));
+		assertEquals("Unknown diff algorithm: patience (allowed: myers, histogram)", e.getMessage());
+	}
+	
+	@Test
+	public void removedLinesFollowDiffAlgorithm() throws IOException {
+		assertEquals(ranges(1, 2, 3, 5), diff(DiffAlgorithm.SupportedAlgorithm.MYERS).getLinesRemoved());
+		assertEquals(ranges(1, 5), diff(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM).getLinesRemoved());
+	}
+	
+	@Test
+	public void onlyAskedForFilesAreDiffed() throws IOException {
+		JGitBackend backend = new JGitBackend(new CommitGraph());
+		backend.setRepository(this.git.getRepository());
+		HashMap<String, FileDiff> diffs = backend.getDiffs(this.fix, List.of("Counter.java"));
+		assertEquals(1, diffs.size());
+		assertEquals(OLD.length(), diffs.get("Counter.java").getSize());
+		assertFalse(diffs.containsKey("Readme.txt"));
+		assertTrue(backend.getDiffs(this.fix, List.of()).isEmpty());
+	}
+	
+	private FileDiff diff(DiffAlgorithm.SupportedAlgorithm algorithm) throws IOException {
+		JGitBackend backend = new JGitBackend(new CommitGraph());
+		backend.setRepository(this.git.getRepository());
+		backend.setDiffAlgorithm(algorithm);
+		return backend.getDiffs(this.fix, List.of("Counter.java", "Readme.txt")).get("Counter.java");
+	}
+	
+	private void write(String path, String content) throws IOException {
+		Files.write(new File(this.directory, path).toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Writes a file and commits every change.
+	 * @return the hash of the commit
+	 */
+	private String commit(String path, String content, String message) throws Exception {
+		write(path, content);
+		this.git.add().addFilepattern(".").call();
+		PersonIdent author = new PersonIdent("Test", "test@example.com");
+		return this.git.commit().setMessage(message).setAuthor(author).setCommitter(author).setSign(false).call().getName();
+	}
+	
+	/**
+	 * @param bounds the first line and the line after the last line of each range
+	 * @return the ranges
+	 */
+	private static LineRanges ranges(int... bounds) {
+		LineRanges ranges = new LineRanges();
+		for (int i = 0; i < bounds.length; i += 2)
+			ranges.addRange(bounds[i], bounds[i + 1]);
+		return ranges;
+	}
+}
@@ -0,0 +1,175 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.jMiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+/**
+ * Checks the retries, decompression and connection limit of {@link JiraClient} against a local 
+ * server stub.
+ * @author Thomas Watkins
+ */
+public class JiraClientTest {
+	private HttpServer server;
+	private ExecutorService serverThreads;
+	private String url;
+	//The statuses answered in turn, 200 once they run out
+	private List<Integer> statuses;
+	private AtomicInteger requests;
+	private AtomicInteger inFlight;
+	private AtomicInteger maxInFlight;
+	private long delay;
+	
+	@BeforeEach
+	public void startServer() throws IOException {
+		this.statuses = new ArrayList<>();
+		this.requests = new AtomicInteger();
+		this.inFlight = new AtomicInteger();
+		this.maxInFlight = new AtomicInteger();
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.server.createContext("/page", this::answer);
+		this.serverThreads = Executors.newFixedThreadPool(8);
+		this.server.setExecutor(this.serverThreads);
+		this.server.start();
+		this.url = "http://localhost:" + this.server.getAddress().getPort() + "/page";
+	}
+	
+	@AfterEach
+	public void stopServer() {
+		this.server.stop(0);
+		this.serverThreads.shutdownNow();
+	}
+	
+	@Test
+	public void retriesBusyServerThenDecompresses() throws Exception {
+		this.statuses.add(503);
+		this.statuses.add(429);
+		byte[] page = newClient(1, 5).get(this.url);
+		assertEquals("page", new String(page, StandardCharsets.UTF_8));
+		assertEquals(3, this.requests.get());
+	}
+	
+	@Test
+	public void clientErrorIsNotRetried() {
+		this.statuses.add(404);
+		IOException e = assertThrows(IOException.class, () -> newClient(1, 5).get(this.url));
+		assertTrue(e.getMessage().contains("HTTP 404"), e.getMessage());
+		assertEquals(1, this.requests.get());
+	}
+	
+	@Test
+	public void givesUpAfterEveryRetry() {
+		for (int i = 0; i < 10; i++)
+			this.statuses.add(500);
+		assertThrows(IOException.class, () -> newClient(1, 2).get(this.url));
+		assertEquals(3, this.requests.get());
+	}
+	
+	@Test
+	public void readsBodyAgainAfterReaderFails() throws Exception {
+		AtomicInteger reads = new AtomicInteger();
+		ByteArrayOutputStream read = new ByteArrayOutputStream();
+		newClient(1, 5).get(this.url, body -> {
+			if (reads.incrementAndGet() == 1)
+				throw new IOException("Connection reset");
+			body.transferTo(read);
+		});
+		assertEquals(2, this.requests.get());
+		assertEquals("page", read.toString(StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void limitsRequestsInFlight() throws Exception {
+		this.delay = 50;
+		JiraClient client = newClient(2, 0);
+		ExecutorService threads = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<byte[]>> pages = new ArrayList<>();
+			for (int i = 0; i < 16; i++)
+				pages.add(threads.submit(() -> client.get(this.url)));
+			for (Future<byte[]> page : pages)
+				assertEquals("page", new String(page.get(), StandardCharsets.UTF_8));
+		} finally {
+			threads.shutdownNow();
+		}
+		assertEquals(16, this.requests.get());
+		assertTrue(this.maxInFlight.get() <= 2, this.maxInFlight.get() + " requests in flight");
+	}
+	
+	private JiraClient newClient(int connections, int maxRetries) {
+		JiraClient client = new JiraClient(connections, Duration.ofSeconds(10), 0);
+		client.setMaxRetries(maxRetries);
+		client.setInitialBackoff(1);
+		return client;
+	}
+	
+	/**
+	 * Answers a request with the next status, or with the gzip compressed page.
+	 */
+	private void answer(HttpExchange exchange) throws IOException {
+		int count = this.requests.incrementAndGet();
+		this.maxInFlight.accumulateAndGet(this.inFlight.incrementAndGet(), Math::max);
+		try {
+			if (this.delay > 0)
+				Thread.sleep(this.delay);
+			int status = 200;
+			synchronized (this.statuses) {
+				if (count <= this.statuses.size())
+					status = this.statuses.get(count - 1);
+			}
+			if (status != 200) {
+				exchange.sendResponseHeaders(status, -1);
+				return;
+			}
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+				gzip.write("page".getBytes(StandardCharsets.UTF_8));
+			}
+			boolean gzip = "gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+			byte[] body = gzip ? compressed.toByteArray() : "page".getBytes(StandardCharsets.UTF_8);
+			if (gzip)
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			this.inFlight.decrementAndGet();
+			exchange.close();
+		}
+	}
+}
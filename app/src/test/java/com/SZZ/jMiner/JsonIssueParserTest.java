@@ -0,0 +1,176 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.jMiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.SZZ.entities.Bug;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+/**
+ * Checks {@link JsonIssueParser} on a REST search response, and the paging of {@link JiraMiner} 
+ * through it against a local server stub that gives fewer issues per page than are asked for.
+ * @author Thomas Watkins
+ */
+public class JsonIssueParserTest {
+	private static final String KEY = "JSONTEST";
+	private static final int TOTAL = 250;
+	//The most issues the stub gives per page, as Jira caps maxResults
+	private static final int SERVER_PAGE_SIZE = 100;
+	
+	private HttpServer server;
+	
+	@AfterEach
+	public void cleanUp() {
+		if (this.server != null)
+			this.server.stop(0);
+		new File(KEY + "-Issues.dat").delete();
+		for (int page = 0; page < 10; page++)
+			IssueStore.getPageFile(KEY, page).delete();
+	}
+	
+	@Test
+	public void readsFieldsAsXmlViewGivesThem() throws IOException {
+		String response = "{\"expand\":\"names\",\"startAt\":0,\"maxResults\":50,\"total\":2,\"issues\":["
+				+ "{\"id\":\"1\",\"key\":\"ACE-7\",\"fields\":{"
+				+ "\"summary\":\"Fails on \\\"quoted\\\"; paths\","
+				+ "\"resolution\":{\"self\":\"x\",\"name\":\"Fixed\"},"
+				+ "\"status\":{\"name\":\"Closed\",\"statusCategory\":{\"key\":\"done\"}},"
+				+ "\"assignee\":{\"displayName\":\"Jane Doe\",\"avatarUrls\":{}},"
+				+ "\"created\":\"2018-01-01T10:00:00.000+0000\","
+				+ "\"resolutiondate\":\"2018-01-02T10:00:00.000+0100\","
+				+ "\"attachment\":[{\"filename\":\"a.patch\"},{\"filename\":\"b.log\"}]}},"
+				+ "{\"key\":\"ACE-8\",\"fields\":{\"summary\":\"Open\",\"resolution\":null,\"status\":{\"name\":\"Open\"},"
+				+ "\"assignee\":null,\"created\":\"2018-01-03T00:00:00.000+0000\",\"resolutiondate\":null,\"attachment\":[]}}]}";
+		List<Bug> bugs = new ArrayList<>();
+		long[] total = new long[1];
+		int[] pageSize = new int[1];
+		new JsonIssueParser().parse(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)), new IssueHandler() {
+			@Override
+			public void total(long t) {
+				total[0] = t;
+			}
+			
+			@Override
+			public void pageSize(int size) {
+				pageSize[0] = size;
+			}
+			
+			@Override
+			public void issue(String issueKey, Bug bug) {
+				bugs.add(bug);
+			}
+		});
+		assertEquals(2, total[0]);
+		assertEquals(50, pageSize[0]);
+		assertEquals(2, bugs.size());
+		
+		Bug fixed = bugs.get(0);
+		assertEquals("ace-7", fixed.getIssueKey());
+		assertEquals("[ACE-7] Fails on \"quoted\" paths", fixed.getTitle());
+		assertEquals("Fixed", fixed.getResolution());
+		assertEquals("Closed", fixed.getStatus());
+		assertEquals("Jane Doe", fixed.getAssignee());
+		assertEquals(1514800800000L, fixed.getCreatedDate());
+		assertEquals(1514883600000L, fixed.getResolvedDate());
+		assertEquals(List.of("a.patch", "b.log"), fixed.getAttachmentsList());
+		
+		Bug open = bugs.get(1);
+		assertEquals("Unresolved", open.getResolution());
+		assertEquals("Unassigned", open.getAssignee());
+		assertEquals(0, open.getResolvedDate());
+		assertTrue(open.getAttachmentsList().isEmpty());
+	}
+	
+	@Test
+	public void pagesFollowServerPageSize() throws IOException {
+		Map<Integer, Integer> starts = new ConcurrentHashMap<>();
+		AtomicInteger requests = new AtomicInteger();
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.server.createContext("/jira/rest/api/2/search", exchange -> {
+			requests.incrementAndGet();
+			Map<String, String> query = parseQuery(exchange);
+			int start = Integer.parseInt(query.get("startAt"));
+			int max = Math.min(SERVER_PAGE_SIZE, Integer.parseInt(query.get("maxResults")));
+			starts.merge(start, 1, Integer::sum);
+			answer(exchange, page(start, max));
+		});
+		this.server.start();
+		
+		JiraMiner miner = new JiraMiner("http://localhost:" + this.server.getAddress().getPort() + "/jira/projects/" + KEY, KEY);
+		miner.setSource(new JsonIssueParser());
+		miner.setFullSync(true);
+		HashMap<String, Bug> issues = miner.mineIssues();
+		
+		assertEquals(TOTAL, issues.size());
+		for (int i = 0; i < TOTAL; i++)
+			assertEquals("[" + KEY + "-" + i + "] Bug " + i, issues.get(KEY.toLowerCase() + "-" + i).getTitle());
+		//Every page is asked for once, from the page size the server gave
+		assertEquals(Map.of(0, 1, 100, 1, 200, 1), starts);
+		assertEquals(3, requests.get());
+		assertTrue(IssueStore.getPageFile(KEY, 2).exists());
+	}
+	
+	/**
+	 * @return a page of the search of every issue
+	 */
+	private static String page(int start, int max) {
+		StringBuilder page = new StringBuilder("{\"startAt\":" + start + ",\"maxResults\":" + max + ",\"total\":" + TOTAL + ",\"issues\":[");
+		for (int i = start; i < Math.min(TOTAL, start + max); i++) {
+			if (i > start)
+				page.append(',');
+			page.append("{\"key\":\"").append(KEY).append('-').append(i).append("\",\"fields\":{")
+					.append("\"summary\":\"Bug ").append(i).append("\",")
+					.append("\"resolution\":{\"name\":\"Fixed\"},\"status\":{\"name\":\"Resolved\"},\"assignee\":null,")
+					.append("\"created\":\"2019-05-01T12:00:00.000+0000\",\"resolutiondate\":\"2019-05-02T12:00:00.000+0000\",")
+					.append("\"attachment\":[]}}");
+		}
+		return page.append("]}").toString();
+	}
+	
+	private static Map<String, String> parseQuery(HttpExchange exchange) {
+		Map<String, String> query = new HashMap<>();
+		for (String parameter : exchange.getRequestURI().getRawQuery().split("&")) {
+			int equals = parameter.indexOf('=');
+			query.put(parameter.substring(0, equals), URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+		}
+		return query;
+	}
+	
+	private static void answer(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
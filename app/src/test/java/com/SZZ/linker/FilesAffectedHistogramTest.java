@@ -0,0 +1,87 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.linker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+/**
+ * Checks the median and quantiles of {@link FilesAffectedHistogram} against sorting every count.
+ * @author Thomas Watkins
+ */
+public class FilesAffectedHistogramTest {
+	private static final double[] FRACTIONS = { 0, 0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 1 };
+	
+	@Test
+	public void medianMatchesSortedCountsAfterEveryAdd() {
+		Random random = new Random(7);
+		for (int run = 0; run < 200; run++) {
+			FilesAffectedHistogram histogram = new FilesAffectedHistogram();
+			int[] counts = new int[1 + random.nextInt(300)];
+			int maximum = 1 + random.nextInt(run % 2 == 0 ? 5 : 500);
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = random.nextInt(maximum);
+				histogram.add(counts[i]);
+				assertEquals(sortAndIndex(Arrays.copyOf(counts, i + 1), 0.5), histogram.getMedian());
+			}
+			for (double fraction : FRACTIONS)
+				assertEquals(sortAndIndex(counts, fraction), histogram.getQuantile(fraction), "fraction " + fraction);
+		}
+	}
+	
+	@Test
+	public void mergedHistogramsMatchSortedCounts() {
+		Random random = new Random(11);
+		for (int run = 0; run < 200; run++) {
+			FilesAffectedHistogram histogram = new FilesAffectedHistogram();
+			int[] all = new int[0];
+			for (int part = 0; part < 4; part++) {
+				FilesAffectedHistogram other = new FilesAffectedHistogram();
+				int[] counts = new int[random.nextInt(100)];
+				int maximum = 1 + random.nextInt(1000);
+				for (int i = 0; i < counts.length; i++) {
+					counts[i] = random.nextInt(maximum);
+					other.add(counts[i]);
+				}
+				histogram.merge(other);
+				all = concat(all, counts);
+				assertEquals(all.length, histogram.getTotal());
+				assertEquals(all.length == 0 ? 0 : sortAndIndex(all, 0.5), histogram.getMedian());
+			}
+		}
+	}
+	
+	@Test
+	public void emptyHistogramIsZero() {
+		FilesAffectedHistogram histogram = new FilesAffectedHistogram();
+		assertEquals(0, histogram.getMedian());
+		assertEquals(0, histogram.getQuantile(0.75));
+	}
+	
+	/**
+	 * The element at position fraction * length of the sorted counts, as calculated before.
+	 */
+	static int sortAndIndex(int[] counts, double fraction) {
+		int[] sorted = counts.clone();
+		Arrays.sort(sorted);
+		return sorted[(int) Math.min(sorted.length - 1, (long) (fraction * sorted.length))];
+	}
+	
+	private static int[] concat(int[] a, int[] b) {
+		int[] result = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+}
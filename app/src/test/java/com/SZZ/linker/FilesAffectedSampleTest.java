@@ -0,0 +1,76 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.linker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+/**
+ * Checks the quantiles of {@link FilesAffectedSample} against sorting every count.
+ * @author Thomas Watkins
+ */
+public class FilesAffectedSampleTest {
+	private static final double[] FRACTIONS = { 0, 0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 1 };
+	
+	@Test
+	public void quantilesMatchSortedCounts() {
+		Random random = new Random(3);
+		for (int run = 0; run < 500; run++) {
+			FilesAffectedSample sample = new FilesAffectedSample();
+			int[] counts = new int[1 + random.nextInt(1000)];
+			//Few distinct values exercise the three way partition
+			int maximum = 1 + random.nextInt(run % 2 == 0 ? 4 : 100000);
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = random.nextInt(maximum);
+				sample.add(counts[i]);
+			}
+			assertEquals(counts.length, sample.getTotal());
+			//Selection reorders the sample, so later quantiles see it partly sorted
+			for (double fraction : FRACTIONS)
+				assertEquals(sortAndIndex(counts, fraction), sample.getQuantile(fraction), "fraction " + fraction);
+		}
+	}
+	
+	@Test
+	public void sortedAndReversedCountsMatch() {
+		int[] counts = new int[5001];
+		for (int i = 0; i < counts.length; i++)
+			counts[i] = i;
+		FilesAffectedSample ascending = new FilesAffectedSample();
+		FilesAffectedSample descending = new FilesAffectedSample();
+		for (int i = 0; i < counts.length; i++) {
+			ascending.add(counts[i]);
+			descending.add(counts[counts.length - 1 - i]);
+		}
+		for (double fraction : FRACTIONS) {
+			assertEquals(sortAndIndex(counts, fraction), ascending.getQuantile(fraction));
+			assertEquals(sortAndIndex(counts, fraction), descending.getQuantile(fraction));
+		}
+	}
+	
+	@Test
+	public void emptySampleIsZero() {
+		assertEquals(0, new FilesAffectedSample().getQuantile(0.5));
+	}
+	
+	/**
+	 * The element at position fraction * length of the sorted counts.
+	 */
+	private static int sortAndIndex(int[] counts, double fraction) {
+		int[] sorted = counts.clone();
+		Arrays.sort(sorted);
+		return sorted[(int) Math.min(sorted.length - 1, (long) (fraction * sorted.length))];
+	}
+}
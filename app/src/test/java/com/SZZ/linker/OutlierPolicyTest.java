@@ -0,0 +1,44 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.linker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+/**
+ * Checks the outlier policies accepted by {@link OutlierPolicy#create}.
+ * @author Thomas Watkins
+ */
+public class OutlierPolicyTest {
+	
+	@Test
+	public void createsPolicyByName() {
+		assertEquals("percentile=0.0", OutlierPolicy.create("Percentile", 10, 0, 1.5).toString());
+		assertEquals("percentile=100.0", OutlierPolicy.create("percentile", 10, 100, 1.5).toString());
+	}
+	
+	@Test
+	public void rejectsUnknownPolicy() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> OutlierPolicy.create("mean", 10, 95, 1.5));
+		assertEquals("Unknown outlier policy: mean", e.getMessage());
+	}
+	
+	@Test
+	public void rejectsPercentileOutsideRange() {
+		for (double percentile : new double[] { -1, 100.5, Double.NaN }) {
+			IllegalArgumentException e = assertThrows(IllegalArgumentException.class, 
+					() -> OutlierPolicy.create("percentile", 10, percentile, 1.5));
+			assertEquals("--outlier-percentile must be from 0 to 100: " + percentile, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,155 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.output;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+/**
+ * Checks the quoting of CSV fields, the files of a run without results and that the binary 
+ * format reads back the rows it was given.
+ * @author Thomas Watkins
+ */
+public class ResultSinkTest {
+	private static final String NEWLINE = System.lineSeparator();
+	
+	private File directory;
+	private String projectKey;
+	
+	@BeforeEach
+	public void createDirectory() throws IOException {
+		this.directory = Files.createTempDirectory("szz-output").toFile();
+		//The files of a project are named from its key, so the key places them in the directory
+		this.projectKey = new File(this.directory, "ACE").getPath();
+	}
+	
+	@AfterEach
+	public void deleteDirectory() throws IOException {
+		try (Stream<Path> paths = Files.walk(this.directory.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+	
+	@Test
+	public void csvQuotesSeparatorsQuotesAndLineBreaks() {
+		assertEquals("ACE-1 fix", CsvResultSink.quote("ACE-1 fix"));
+		assertEquals("", CsvResultSink.quote(""));
+		assertEquals("\"a;b\"", CsvResultSink.quote("a;b"));
+		assertEquals("\"say \"\"hi\"\"\"", CsvResultSink.quote("say \"hi\""));
+		assertEquals("\"first\nsecond\"", CsvResultSink.quote("first\nsecond"));
+		assertEquals("\"first\r\nsecond\"", CsvResultSink.quote("first\r\nsecond"));
+	}
+	
+	@Test
+	public void csvRowsQuoteTheirFields() throws IOException {
+		try (CsvResultSink sink = new CsvResultSink(this.projectKey, false)) {
+			sink.bugFixingCommit("abc", 10, "Fix; \"quoted\"\nbody", "ACE-1", 1, 2, "Title");
+			sink.bugIntroducingCommit("abc", 10, "src/A;B.java", "def", 5, "ACE-1");
+		}
+		assertEquals("CommitHash;CommitTime;CommitComment;IssueKey;IssueOpenD;IssueResolvedD;IssueTitle;" + NEWLINE 
+				+ "abc;10;\"Fix; \"\"quoted\"\"\nbody\";ACE-1;1;2;Title;" + NEWLINE, read("ACE-BugFixCommits.csv"));
+		assertEquals("BFCHash;BFCTime;File;BICHash;BICTime;IssueKey;" + NEWLINE 
+				+ "abc;10;\"src/A;B.java\";def;5;ACE-1;" + NEWLINE, read("ACE-BugIntroducingCommits.csv"));
+	}
+	
+	@Test
+	public void runWithoutResultsWritesOnlyHeaders() throws IOException {
+		ResultSink.create("csv,jsonl,binary", this.projectKey, "none").close();
+		assertEquals("CommitHash;CommitTime;CommitComment;IssueKey;IssueOpenD;IssueResolvedD;IssueTitle;" + NEWLINE, 
+				read("ACE-BugFixCommits.csv"));
+		assertEquals("BFCHash;BFCTime;File;BICHash;BICTime;IssueKey;" + NEWLINE, read("ACE-BugIntroducingCommits.csv"));
+		assertEquals("", read("ACE-BugFixCommits.jsonl"));
+		assertEquals("", read("ACE-BugIntroducingCommits.jsonl"));
+		
+		RecordingSink rows = new RecordingSink();
+		BinaryResultSink.read(new File(this.directory, "ACE-Results.bin"), rows);
+		assertTrue(rows.rows.isEmpty());
+	}
+	
+	@Test
+	public void binaryRowsReadBack() throws IOException {
+		assertEquals(expectedRows(), readBack(false));
+	}
+	
+	@Test
+	public void compressedBinaryRowsReadBack() throws IOException {
+		assertEquals(expectedRows(), readBack(true));
+		byte[] bytes = Files.readAllBytes(new File(this.directory, "ACE-Results.bin.gz").toPath());
+		assertEquals(0x1f, bytes[0] & 0xff);
+		assertEquals(0x8b, bytes[1] & 0xff);
+	}
+	
+	private static List<String> expectedRows() throws IOException {
+		RecordingSink rows = new RecordingSink();
+		writeRows(rows);
+		return rows.rows;
+	}
+	
+	/**
+	 * Writes the rows to a binary sink and reads them back.
+	 * @return the rows read
+	 */
+	private List<String> readBack(boolean gzip) throws IOException {
+		try (BinaryResultSink sink = new BinaryResultSink(this.projectKey, gzip)) {
+			writeRows(sink);
+		}
+		RecordingSink rows = new RecordingSink();
+		BinaryResultSink.read(new File(this.directory, gzip ? "ACE-Results.bin.gz" : "ACE-Results.bin"), rows);
+		return rows.rows;
+	}
+	
+	private static void writeRows(ResultSink sink) throws IOException {
+		sink.bugFixingCommit("abc", 1650000000000L, "ACE-1 fix é中", "ACE-1", -1, 0, "Title; \"quoted\"\n");
+		sink.bugIntroducingCommit("abc", 1650000000000L, "src/A.java", "def", Long.MIN_VALUE, "ACE-1");
+		//Repeated strings are written once and referred back to
+		sink.bugIntroducingCommit("abc", 1650000000000L, "src/A.java", "ghi", Long.MAX_VALUE, "ACE-1");
+		sink.bugFixingCommit("jkl", 0, "", "ACE-2", 1, 2, "");
+	}
+	
+	private String read(String name) throws IOException {
+		return new String(Files.readAllBytes(new File(this.directory, name).toPath()), Charset.defaultCharset());
+	}
+	
+	/**
+	 * Keeps every row it is given as a string.
+	 */
+	private static class RecordingSink implements ResultSink {
+		private ArrayList<String> rows = new ArrayList<>();
+		
+		@Override
+		public void bugFixingCommit(String hash, long time, String comment, String issueKey, long openedDate, long resolvedDate, String title) {
+			this.rows.add(List.of(hash, time, comment, issueKey, openedDate, resolvedDate, title).toString());
+		}
+		
+		@Override
+		public void bugIntroducingCommit(String fixHash, long fixTime, String fileName, String hash, long time, String issueKey) {
+			this.rows.add(List.of(fixHash, fixTime, fileName, hash, time, issueKey).toString());
+		}
+		
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,174 @@
+//
+// =============================================================
+// Thomas Watkins
+// University of Lancaster UK 2022
+// Project undertaken for my Undergraduate Dissertation Thesis
+// 
+// Supervised by Dr David Bowes
+// 
+// MIT License  
+// =============================================================
+//
+package com.SZZ.state;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.SZZ.entities.Suspect;
+/**
+ * Checks which links {@link RunJournal} replays after a run is interrupted.
+ * @author Thomas Watkins
+ */
+public class RunJournalTest {
+	private static final String CONFIGURATION = "ACE;myers;--full";
+	
+	private File file;
+	
+	@BeforeEach
+	public void createFile() throws IOException {
+		this.file = File.createTempFile("szz-journal", ".journal");
+	}
+	
+	@AfterEach
+	public void deleteFile() {
+		this.file.delete();
+	}
+	
+	@Test
+	public void replaysEveryLink() throws IOException {
+		write("abc", "def");
+		assertEquals(describe("abc", "def"), replay(CONFIGURATION));
+	}
+	
+	@Test
+	public void dropsTornLastRecord() throws IOException {
+		write("abc", "def");
+		//A crash part way through writing the last record
+		try (RandomAccessFile journal = new RandomAccessFile(this.file, "rw")) {
+			journal.setLength(journal.length() - 3);
+		}
+		assertEquals(describe("abc"), replay(CONFIGURATION));
+		
+		//The torn record is cut off, so links appended afterwards are replayed
+		try (RunJournal journal = RunJournal.open(this.file, CONFIGURATION, true)) {
+			journal.append("ghi", suspects("ghi"));
+		}
+		assertEquals(describe("abc", "ghi"), replay(CONFIGURATION));
+	}
+	
+	@Test
+	public void dropsRecordFailingChecksum() throws IOException {
+		write("abc", "def");
+		try (RandomAccessFile journal = new RandomAccessFile(this.file, "rw")) {
+			journal.seek(journal.length() - 1);
+			int last = journal.read();
+			journal.seek(journal.length() - 1);
+			journal.write(last ^ 0xff);
+		}
+		assertEquals(describe("abc"), replay(CONFIGURATION));
+	}
+	
+	@Test
+	public void discardsJournalOfDifferentConfiguration() throws IOException {
+		write("abc", "def");
+		assertEquals(describe(), replay("ACE;histogram;--full"));
+		//The journal has been started again for the new configuration
+		try (RunJournal journal = RunJournal.open(this.file, "ACE;histogram;--full", true)) {
+			journal.append("ghi", suspects("ghi"));
+		}
+		assertEquals(describe("ghi"), replay("ACE;histogram;--full"));
+	}
+	
+	@Test
+	public void discardsJournalWhenNotResumed() throws IOException {
+		write("abc");
+		RunJournal.open(this.file, CONFIGURATION, false).close();
+		assertEquals(describe(), replay(CONFIGURATION));
+	}
+	
+	@Test
+	public void ignoresAppendsAfterClose() throws IOException {
+		RunJournal journal = RunJournal.open(this.file, CONFIGURATION, true);
+		journal.append("abc", suspects("abc"));
+		journal.close();
+		long length = this.file.length();
+		journal.append("def", suspects("def"));
+		journal.clear();
+		journal.close();
+		assertEquals(length, this.file.length());
+		assertEquals(describe("abc"), replay(CONFIGURATION));
+	}
+	
+	@Test
+	public void clearRemovesEveryLink() throws IOException {
+		try (RunJournal journal = RunJournal.open(this.file, CONFIGURATION, true)) {
+			journal.append("abc", suspects("abc"));
+			journal.clear();
+			journal.append("def", suspects("def"));
+		}
+		assertEquals(describe("def"), replay(CONFIGURATION));
+	}
+	
+	/**
+	 * Appends a link of each key to a new journal.
+	 */
+	private void write(String... keys) throws IOException {
+		try (RunJournal journal = RunJournal.open(this.file, CONFIGURATION, true)) {
+			for (String key : keys)
+				journal.append(key, suspects(key));
+		}
+	}
+	
+	/**
+	 * Opens the journal, resuming, and describes the links it replays.
+	 */
+	private Map<String, List<String>> replay(String configuration) throws IOException {
+		try (RunJournal journal = RunJournal.open(this.file, configuration, true)) {
+			return describe(journal.getRecovered());
+		}
+	}
+	
+	/**
+	 * Describes the links of each key as appended by {@link #write}.
+	 */
+	private static Map<String, List<String>> describe(String... keys) {
+		HashMap<String, ArrayList<Suspect>> links = new HashMap<>();
+		for (String key : keys)
+			links.put(key, suspects(key));
+		return describe(links);
+	}
+	
+	private static Map<String, List<String>> describe(HashMap<String, ArrayList<Suspect>> links) {
+		TreeMap<String, List<String>> descriptions = new TreeMap<>();
+		for (Map.Entry<String, ArrayList<Suspect>> link : links.entrySet()) {
+			ArrayList<String> suspects = new ArrayList<>();
+			for (Suspect suspect : link.getValue())
+				suspects.add(suspect.getHash() + " " + suspect.getAuthor() + " " + suspect.getDate() + " " + suspect.getFileName());
+			descriptions.put(link.getKey(), suspects);
+		}
+		return descriptions;
+	}
+	
+	/**
+	 * The suspects of a link, some made from its key so every link differs.
+	 */
+	private static ArrayList<Suspect> suspects(String key) {
+		ArrayList<Suspect> suspects = new ArrayList<>();
+		suspects.add(new Suspect(key + "01", "Alice", 1650000000000L, "src/" + key + ".java"));
+		suspects.add(new Suspect(key + "02", "Bob", -1, "src/Common.java"));
+		return suspects;
+	}
+}